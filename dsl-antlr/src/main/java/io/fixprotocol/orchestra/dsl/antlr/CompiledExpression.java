@@ -0,0 +1,143 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A Score expression that has been parsed and compiled once and may be evaluated many times
+ * <p>
+ * Obtain an instance from {@link Evaluator#compile(String)}. Instances are not tied to a
+ * particular {@code SymbolResolver}, so they may be shared by Evaluators.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class CompiledExpression {
+
+  private final boolean isCodeSetBound;
+  private volatile boolean isPredicateGenerated = false;
+  private final String normalizedText;
+  private volatile CompiledPredicate predicate;
+  private final ExpressionNode root;
+  private final Set<String> scopes;
+  private final String text;
+
+  /**
+   * Constructor
+   *
+   * @param text source text
+   * @param normalizedText tokens of the source text separated by single spaces
+   * @param root root node of the compiled expression
+   */
+  CompiledExpression(String text, String normalizedText, ExpressionNode root) {
+    this(text, normalizedText, root, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param text source text
+   * @param normalizedText tokens of the source text separated by single spaces
+   * @param root root node of the compiled expression
+   * @param isCodeSetBound {@code true} if references to codes were bound when compiled
+   */
+  CompiledExpression(String text, String normalizedText, ExpressionNode root,
+      boolean isCodeSetBound) {
+    this.isCodeSetBound = isCodeSetBound;
+    this.text = text;
+    this.normalizedText = normalizedText;
+    this.root = root;
+    final Set<String> scopes = new HashSet<>();
+    root.forEachVar(var -> scopes.add(var.getScopeStep().getName()));
+    this.scopes = Collections.unmodifiableSet(scopes);
+  }
+
+  /**
+   * Returns the text of the expression in a canonical form, with tokens separated by single
+   * spaces. Expressions that differ only in whitespace have the same normalized text.
+   *
+   * @return normalized source text
+   */
+  public String getNormalizedText() {
+    return normalizedText;
+  }
+
+  /**
+   * Returns the root scopes of the variables and message elements referenced by this expression,
+   * for example {@code "in."}, {@code "$"} or {@code "^"}. An unqualified name has scope
+   * {@code "this."}.
+   *
+   * @return an immutable set of scope names
+   */
+  public Set<String> getScopes() {
+    return scopes;
+  }
+
+  /**
+   * @return the source text of the expression
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Tells whether references to codes were bound to constants when this expression was compiled.
+   * Such an expression may differ from another with the same text that was bound to other code
+   * sets. Codes that were not found are still resolved at evaluation, so their scope remains in
+   * {@link #getScopes()}.
+   *
+   * @return {@code true} if compiled by
+   *         {@link Evaluator#compile(String, io.fixprotocol.orchestra.model.Scope, java.util.function.Function)}
+   *         from an expression that references codes
+   */
+  public boolean isCodeSetBound() {
+    return isCodeSetBound;
+  }
+
+  /**
+   * @return {@code true} if this expression assigns a value, so evaluating it has a side effect
+   */
+  public boolean isAssignment() {
+    return root instanceof ExpressionNode.AssignmentNode;
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+  /**
+   * Returns a generated predicate, generating it on first request. Generation may race, but
+   * either result is equivalent.
+   *
+   * @param generator generates bytecode
+   * @return a predicate, or {@code null} if this expression cannot be generated
+   */
+  CompiledPredicate getPredicate(PredicateGenerator generator) {
+    if (!isPredicateGenerated) {
+      predicate = generator.generate(root);
+      isPredicateGenerated = true;
+    }
+    return predicate;
+  }
+
+  ExpressionNode getRoot() {
+    return root;
+  }
+
+}
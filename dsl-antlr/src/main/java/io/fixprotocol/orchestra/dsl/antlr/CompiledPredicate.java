@@ -0,0 +1,38 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * A Boolean Score expression implemented by a generated class
+ * <p>
+ * Implementations are generated by the optional bytecode backend and are invoked through
+ * {@link Evaluator#test(CompiledExpression)}, which falls back to interpretation when a generated
+ * predicate cannot handle its operands.
+ *
+ * @author Don Mendelson
+ *
+ */
+public interface CompiledPredicate {
+
+  /**
+   * Evaluates the predicate
+   *
+   * @param symbolResolver resolves symbols in variable and message spaces
+   * @return the value of the predicate
+   */
+  boolean test(SymbolResolver symbolResolver);
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import java.util.Objects;
+
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * State that a compiled expression needs to be evaluated
+ * <p>
+ * A {@link CompiledExpression} is immutable and holds no evaluation state, so it may be evaluated
+ * concurrently by many threads, provided that each thread passes its own context to
+ * {@link Evaluator#evaluate(CompiledExpression, EvaluationContext)} or
+ * {@link Evaluator#test(CompiledExpression, EvaluationContext)}. A context is lightweight; it may
+ * be kept for the life of a thread or created for each evaluation. A context is not itself
+ * thread-safe since its SymbolResolver is not.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class EvaluationContext {
+
+  /**
+   * Reports a semantic error by throwing, which the Evaluator converts to a ScoreException
+   */
+  private static final SemanticErrorListener DEFAULT_ERROR_LISTENER = msg -> {
+    throw new IllegalStateException(msg);
+  };
+
+  private final SemanticErrorListener errorListener;
+  private final SymbolResolver symbolResolver;
+
+  /**
+   * Constructor with default SemanticErrorListener, which causes evaluation to fail with a
+   * {@link ScoreException}
+   *
+   * @param symbolResolver resolves symbols in variable and message spaces
+   */
+  public EvaluationContext(SymbolResolver symbolResolver) {
+    this(symbolResolver, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param symbolResolver resolves symbols in variable and message spaces
+   * @param errorListener listens for semantic errors. If {@code null}, a default listener is
+   *        used.
+   */
+  public EvaluationContext(SymbolResolver symbolResolver, SemanticErrorListener errorListener) {
+    this.symbolResolver = Objects.requireNonNull(symbolResolver, "Missing symbol resolver");
+    this.errorListener = errorListener != null ? errorListener : DEFAULT_ERROR_LISTENER;
+  }
+
+  /**
+   * @return listener for semantic errors
+   */
+  public SemanticErrorListener getErrorListener() {
+    return errorListener;
+  }
+
+  /**
+   * @return resolver of symbols in variable and message spaces
+   */
+  public SymbolResolver getSymbolResolver() {
+    return symbolResolver;
+  }
+
+  void onError(String format, Object... args) {
+    errorListener.onError(String.format(format, args));
+  }
+}
@@ -14,18 +14,31 @@
  */
 package io.fixprotocol.orchestra.dsl.antlr;
 
+import java.util.function.Function;
+
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
 
 import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.AnyExpressionContext;
+import io.fixprotocol.orchestra.model.BooleanFixValue;
 import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.FixValueFactory;
+import io.fixprotocol.orchestra.model.ModelException;
+import io.fixprotocol.orchestra.model.Scope;
 import io.fixprotocol.orchestra.model.SymbolResolver;
 
 /**
  * Evaluates a Score expression
+ * <p>
+ * Compilation is thread-safe, and compiled expressions are immutable. Methods that take an
+ * {@link EvaluationContext} may be invoked concurrently, given a separate context for each thread,
+ * so one Evaluator and one set of compiled expressions can serve many threads without locks.
+ * Methods without a context parameter use the context given to the constructor, so they must be
+ * confined to one thread at a time.
  * 
  * @author Don Mendelson
  *
@@ -41,16 +54,29 @@ public class Evaluator {
     }
   };
 
-  private class DefaultSemanticErrorListener implements SemanticErrorListener {
+  /**
+   * System property that turns on bytecode generation of predicates by default. Generation also
+   * requires the ASM library on the classpath.
+   */
+  public static final String GENERATE_PREDICATES_PROPERTY =
+      "io.fixprotocol.orchestra.dsl.generatePredicates";
 
-    @Override
-    public void onError(String msg) {
-      throw new IllegalStateException(msg);
-    }
+  private static final ScoreCompiler compiler = new ScoreCompiler();
+  private static final PredicateGenerator predicateGenerator = createPredicateGenerator();
 
+  private static PredicateGenerator createPredicateGenerator() {
+    try {
+      Class.forName("org.objectweb.asm.ClassWriter", false, Evaluator.class.getClassLoader());
+      return new PredicateGenerator();
+    } catch (ClassNotFoundException | LinkageError e) {
+      // optional dependency not present
+      return null;
+    }
   }
 
-  private final ScoreVisitorImpl visitor;
+  private final ExpressionCache cache;
+  private final EvaluationContext context;
+  private volatile boolean generatePredicates = Boolean.getBoolean(GENERATE_PREDICATES_PROPERTY);
 
 
   /**
@@ -59,7 +85,7 @@ public class Evaluator {
    * @param symbolResolver resolves symbols
    */
   public Evaluator(SymbolResolver symbolResolver) {
-    visitor = new ScoreVisitorImpl(symbolResolver, new DefaultSemanticErrorListener());
+    this(symbolResolver, null, ExpressionCache.getDefault());
   }
 
   /**
@@ -69,9 +95,109 @@ public class Evaluator {
    * @param semanticErrorListener reports semantic errors
    */
   public Evaluator(SymbolResolver symbolResolver, SemanticErrorListener semanticErrorListener) {
-    visitor = new ScoreVisitorImpl(symbolResolver, semanticErrorListener);
+    this(symbolResolver, semanticErrorListener, ExpressionCache.getDefault());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param symbolResolver resolves symbols
+   * @param semanticErrorListener reports semantic errors. If {@code null}, a default listener is
+   *        used.
+   * @param cache holds compiled expressions. If {@code null}, expressions are parsed every time
+   *        they are compiled.
+   */
+  public Evaluator(SymbolResolver symbolResolver, SemanticErrorListener semanticErrorListener,
+      ExpressionCache cache) {
+    context = new EvaluationContext(symbolResolver, semanticErrorListener);
+    this.cache = cache;
   }
 
+  /**
+   * Parses and compiles a Score expression for repeated evaluation
+   * <p>
+   * If this Evaluator has a cache, an expression with the same text is only parsed once.
+   *
+   * @param expression an expression in the Score grammar
+   * @return a compiled expression
+   * @throws ScoreException if the expression is invalid syntactically
+   */
+  public CompiledExpression compile(String expression) throws ScoreException {
+    if (cache != null) {
+      final CompiledExpression cached = cache.get(expression);
+      if (cached != null) {
+        return cached;
+      }
+      return cache.putIfAbsent(parse(expression, compiler, false));
+    } else {
+      return parse(expression, compiler, false);
+    }
+  }
+
+  /**
+   * Parses and compiles a Score expression with references to codes, such as {@code ^Buy}, bound
+   * to constants, so that evaluating it does not require a code set to be nested in the
+   * SymbolResolver
+   * <p>
+   * A code is resolved in the code set of the field most recently referenced before it in the
+   * expression, or else in the initial code set. A code that is not found is left to be resolved
+   * at evaluation. An expression that does not reference codes is compiled as by
+   * {@link #compile(String)}. Otherwise, the result is not cached, so the caller should retain it.
+   *
+   * @param expression an expression in the Score grammar
+   * @param codeSet scope of the initial code set, for example that of a field under validation.
+   *        May be {@code null}.
+   * @param fieldCodeSets maps the name of a field to the scope of its code set, or to
+   *        {@code null} if the field is not enumerated. May be {@code null}.
+   * @return a compiled expression
+   * @throws ScoreException if the expression is invalid syntactically
+   */
+  public CompiledExpression compile(String expression, Scope codeSet,
+      Function<String, Scope> fieldCodeSets) throws ScoreException {
+    final CompiledExpression compiled = compile(expression);
+    if (!compiled.getScopes().contains(SymbolResolver.CODE_SET_ROOT.getName())) {
+      return compiled;
+    }
+    return parse(expression, new ScoreCompiler(codeSet, fieldCodeSets), true);
+  }
+
+  /**
+   * Evaluates a compiled Score expression
+   *
+   * @param expression a compiled expression
+   * @return the value of the expression
+   * @throws ScoreException if the expression is invalid semantically
+   */
+  public FixValue<?> evaluate(CompiledExpression expression) throws ScoreException {
+    return evaluate(expression, context);
+  }
+
+  /**
+   * Evaluates a compiled Score expression in a context supplied by the caller
+   * <p>
+   * The caller owns the returned value and may modify it. Values shared between evaluations, such
+   * as constants and the immutable results of comparisons, are copied, as are values held by a
+   * scope, such as variables and message fields.
+   *
+   * @param expression a compiled expression
+   * @param context resolves symbols and receives semantic errors for this evaluation
+   * @return the value of the expression
+   * @throws ScoreException if the expression is invalid semantically
+   */
+  public FixValue<?> evaluate(CompiledExpression expression, EvaluationContext context)
+      throws ScoreException {
+    final FixValue<?> value = evaluateShared(expression, context);
+    // a constant is shared by all evaluations, and a reference by its scope, so give the caller
+    // its own copy
+    final ExpressionNode root = expression.getRoot();
+    if (value != null && (root.isConstant() || root.isReference())) {
+      return copy(value);
+    } else if (value instanceof BooleanFixValue && ((BooleanFixValue) value).isImmutable()) {
+      return new BooleanFixValue(value.getName(), value.getType(),
+          ((BooleanFixValue) value).getBoolean());
+    }
+    return value;
+  }
 
   /**
    * Parses and evaluates a Score expression
@@ -81,12 +207,155 @@ public class Evaluator {
    * @throws ScoreException if the expression is invalid syntactically or semantically
    */
   public FixValue<?> evaluate(String expression) throws ScoreException {
+    return evaluate(compile(expression));
+  }
+
+  /**
+   * Evaluates a compiled Score expression as a Boolean predicate
+   * <p>
+   * If predicate generation is enabled, the expression is executed by a generated class when
+   * possible. Otherwise, or if the generated class cannot handle its operands, the expression is
+   * interpreted.
+   *
+   * @param expression a compiled Boolean expression
+   * @return {@code true} if the expression evaluates to true, {@code false} if it evaluates to
+   *         false or cannot be evaluated
+   * @throws ScoreException if the expression is invalid semantically
+   */
+  public boolean test(CompiledExpression expression) throws ScoreException {
+    return test(expression, context);
+  }
+
+  /**
+   * Evaluates a compiled Score expression as a Boolean predicate in a context supplied by the
+   * caller
+   *
+   * @param expression a compiled Boolean expression
+   * @param context resolves symbols and receives semantic errors for this evaluation
+   * @return {@code true} if the expression evaluates to true, {@code false} if it evaluates to
+   *         false or cannot be evaluated
+   * @throws ScoreException if the expression is invalid semantically
+   * @see #test(CompiledExpression)
+   */
+  public boolean test(CompiledExpression expression, EvaluationContext context)
+      throws ScoreException {
+    if (generatePredicates && predicateGenerator != null) {
+      final CompiledPredicate predicate = expression.getPredicate(predicateGenerator);
+      if (predicate != null) {
+        try {
+          return predicate.test(context.getSymbolResolver());
+        } catch (PredicateSupport.FallbackException e) {
+          // interpret to report errors
+        }
+      }
+    }
+    final FixValue<?> value = evaluateShared(expression, context);
+    return value != null && Boolean.TRUE.equals(value.getValue());
+  }
+
+  /**
+   * @return {@code true} if predicates are executed by generated classes when possible
+   */
+  public boolean isGeneratePredicates() {
+    return generatePredicates && predicateGenerator != null;
+  }
+
+  /**
+   * @return {@code true} if decimal message fields are represented as scaled longs
+   * @see SymbolResolver#isScaledDecimals()
+   */
+  public boolean isScaledDecimals() {
+    return context.getSymbolResolver().isScaledDecimals();
+  }
+
+  /**
+   * Selects the representation of decimal message fields resolved through the SymbolResolver
+   * of this Evaluator
+   *
+   * @param isScaledDecimals {@code true} to represent decimals as scaled longs
+   * @see SymbolResolver#setScaledDecimals(boolean)
+   */
+  public void setScaledDecimals(boolean isScaledDecimals) {
+    context.getSymbolResolver().setScaledDecimals(isScaledDecimals);
+  }
+
+  /**
+   * Turns on or off bytecode generation of predicates evaluated by
+   * {@link #test(CompiledExpression)}. Has no effect if the ASM library is not on the classpath.
+   * The default is set by system property {@value #GENERATE_PREDICATES_PROPERTY}.
+   *
+   * @param generatePredicates {@code true} to generate predicates
+   */
+  public void setGeneratePredicates(boolean generatePredicates) {
+    this.generatePredicates = generatePredicates;
+  }
+
+  /**
+   * @return the cache of compiled expressions, or {@code null} if this Evaluator does not cache
+   */
+  public ExpressionCache getCache() {
+    return cache;
+  }
+
+  /**
+   * @return the context used by methods that do not take a context parameter
+   */
+  public EvaluationContext getContext() {
+    return context;
+  }
+
+  /**
+   * Evaluates an expression without copying a shared result, for a caller that only reads it
+   */
+  private static FixValue<?> evaluateShared(CompiledExpression expression,
+      EvaluationContext context) throws ScoreException {
+    try {
+      return expression.getRoot().evaluate(context);
+    } catch (IllegalStateException e) {
+      throw new ScoreException("Syntactical or semantic error; " + e.getMessage());
+    }
+  }
+
+  /**
+   * Copies a value, keeping its primitive specialization if it has one
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static FixValue<?> copy(FixValue<?> value) {
+    try {
+      if (value.getValue() == null) {
+        return FixValueFactory.create(value.getName(), value.getType(),
+            value.getType().getValueClass());
+      } else {
+        return FixValueFactory.copy(value.getName(), value);
+      }
+    } catch (ModelException e) {
+      return new FixValue(value.getName(), value.getType(), value.getValue());
+    }
+  }
+
+  private static String normalize(CommonTokenStream tokens) {
+    final StringBuilder sb = new StringBuilder();
+    for (Token token : tokens.getTokens()) {
+      if (token.getType() != Token.EOF && token.getChannel() == Token.DEFAULT_CHANNEL) {
+        if (sb.length() > 0) {
+          sb.append(' ');
+        }
+        sb.append(token.getText());
+      }
+    }
+    return sb.toString();
+  }
+
+  private CompiledExpression parse(String expression, ScoreCompiler compiler,
+      boolean isCodeSetBound) throws ScoreException {
     try {
       final ScoreLexer lexer = new ScoreLexer(CharStreams.fromString(expression));
-      final ScoreParser parser = new ScoreParser(new CommonTokenStream(lexer));
+      final CommonTokenStream tokens = new CommonTokenStream(lexer);
+      final ScoreParser parser = new ScoreParser(tokens);
       parser.addErrorListener(errorListener);
       final AnyExpressionContext ctx = parser.anyExpression();
-      return visitor.visitAnyExpression(ctx);
+      return new CompiledExpression(expression, normalize(tokens),
+          compiler.visitAnyExpression(ctx), isCodeSetBound);
     } catch (IllegalStateException e) {
       throw new ScoreException("Syntactical or semantic error; " + e.getMessage());
     }
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of compiled Score expressions keyed by expression text
+ * <p>
+ * When the cache is full, the least recently used entry is evicted. The cache is thread-safe and
+ * may be shared by any number of Evaluators.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class ExpressionCache {
+
+  /**
+   * Default maximum number of entries
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private static final ExpressionCache DEFAULT_CACHE = new ExpressionCache(DEFAULT_CAPACITY);
+
+  /**
+   * @return a process-wide cache used by Evaluators that are not given a cache explicitly
+   */
+  public static ExpressionCache getDefault() {
+    return DEFAULT_CACHE;
+  }
+
+  private final int capacity;
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final Map<String, CompiledExpression> map;
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Constructor
+   *
+   * @param capacity maximum number of entries retained; must be positive
+   */
+  public ExpressionCache(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Cache capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.map = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = -3460207618290127458L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+        if (size() > ExpressionCache.this.capacity) {
+          evictions.incrementAndGet();
+          return true;
+        } else {
+          return false;
+        }
+      }
+    };
+  }
+
+  /**
+   * Removes all entries. Statistics are not reset.
+   */
+  public void clear() {
+    synchronized (map) {
+      map.clear();
+    }
+  }
+
+  /**
+   * @return maximum number of entries retained
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return number of entries evicted to stay within capacity
+   */
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * @return number of lookups that found a compiled expression
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of lookups that did not find a compiled expression
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return proportion of lookups that were hits, or zero if there have been no lookups
+   */
+  public double getHitRate() {
+    final long h = hits.get();
+    final long total = h + misses.get();
+    return total > 0 ? (double) h / total : 0.0;
+  }
+
+  /**
+   * Resets hit, miss and eviction counters
+   */
+  public void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+    evictions.set(0);
+  }
+
+  /**
+   * @return current number of entries
+   */
+  public int size() {
+    synchronized (map) {
+      return map.size();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ExpressionCache [capacity=" + capacity + ", size=" + size() + ", hits=" + hits.get()
+        + ", misses=" + misses.get() + ", evictions=" + evictions.get() + "]";
+  }
+
+  CompiledExpression get(String text) {
+    final CompiledExpression compiled;
+    synchronized (map) {
+      compiled = map.get(text);
+    }
+    if (compiled != null) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+    }
+    return compiled;
+  }
+
+  /**
+   * Adds an entry unless another thread has already done so
+   *
+   * @return the cached entry
+   */
+  CompiledExpression putIfAbsent(CompiledExpression compiled) {
+    synchronized (map) {
+      final CompiledExpression existing = map.putIfAbsent(compiled.getText(), compiled);
+      return existing != null ? existing : compiled;
+    }
+  }
+
+}
@@ -0,0 +1,694 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import java.math.BigDecimal;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import io.fixprotocol.orchestra.model.BindableScope;
+import io.fixprotocol.orchestra.model.BooleanFixValue;
+import io.fixprotocol.orchestra.model.DecimalFixValue;
+import io.fixprotocol.orchestra.model.FixNode;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.FixValueFactory;
+import io.fixprotocol.orchestra.model.IntFixValue;
+import io.fixprotocol.orchestra.model.LocalScope;
+import io.fixprotocol.orchestra.model.ModelException;
+import io.fixprotocol.orchestra.model.PathBinding;
+import io.fixprotocol.orchestra.model.PathBindings;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.Scope;
+import io.fixprotocol.orchestra.model.SymbolIds;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+import io.fixprotocol.orchestra.model.TreeSymbolTable;
+
+/**
+ * A node of a compiled Score expression
+ * <p>
+ * Operators and operands are resolved when an expression is compiled by {@link ScoreCompiler}, so
+ * evaluation does not consult the parse tree. Nodes are immutable and may be evaluated
+ * concurrently, given separate contexts.
+ *
+ * @author Don Mendelson
+ *
+ */
+abstract class ExpressionNode {
+
+  /**
+   * Applies a binary operator
+   */
+  static final class BinaryNode extends ExpressionNode {
+    private final boolean isPredicate;
+    private final ExpressionNode left;
+    private final BiFunction<FixValue<?>, FixValue<?>, ? extends FixValue<?>> operation;
+    private final ExpressionNode right;
+
+    BinaryNode(String text, BiFunction<FixValue<?>, FixValue<?>, ? extends FixValue<?>> operation,
+        boolean isPredicate, ExpressionNode left, ExpressionNode right) {
+      super(text);
+      this.operation = operation;
+      this.isPredicate = isPredicate;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      final FixValue<?> operand0 = left.evaluate(context);
+      final FixValue<?> operand1 = right.evaluate(context);
+      try {
+        return operation.apply(operand0, operand1);
+      } catch (Exception ex) {
+        onError(context, ex);
+        return null;
+      }
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      left.forEachVar(action);
+      right.forEachVar(action);
+    }
+
+    ExpressionNode getLeft() {
+      return left;
+    }
+
+    BiFunction<FixValue<?>, FixValue<?>, ? extends FixValue<?>> getOperation() {
+      return operation;
+    }
+
+    ExpressionNode getRight() {
+      return right;
+    }
+
+    /**
+     * @return {@code true} if the operation is a comparison that yields a Boolean
+     */
+    boolean isPredicate() {
+      return isPredicate;
+    }
+  }
+
+  /**
+   * A literal value, or a subexpression folded at compile time
+   */
+  static final class ConstantNode extends ExpressionNode {
+    private final FixValue<?> value;
+
+    ConstantNode(String text, FixValue<?> value) {
+      super(text);
+      this.value = value;
+    }
+
+    /**
+     * Returns a shared instance; callers outside the expression tree must copy it.
+     */
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      return value;
+    }
+
+    FixValue<?> getValue() {
+      return value;
+    }
+
+    @Override
+    boolean isConstant() {
+      return true;
+    }
+  }
+
+  /**
+   * Tests whether a value is a member of a set
+   */
+  static final class ContainsNode extends ExpressionNode {
+    private final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> eq;
+    private final ExpressionNode[] members;
+    private final ExpressionNode val;
+
+    ContainsNode(String text, BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> eq,
+        ExpressionNode val, ExpressionNode[] members) {
+      super(text);
+      this.eq = eq;
+      this.val = val;
+      this.members = members;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      final FixValue<?> operand0 = val.evaluate(context);
+      try {
+        for (ExpressionNode memberNode : members) {
+          final FixValue<Boolean> result = eq.apply(operand0, memberNode.evaluate(context));
+          if (result.getValue()) {
+            return result;
+          }
+        }
+      } catch (Exception ex) {
+        onError(context, ex);
+        return null;
+      }
+      return BooleanFixValue.FALSE;
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      val.forEachVar(action);
+      for (ExpressionNode member : members) {
+        member.forEachVar(action);
+      }
+    }
+
+    ExpressionNode[] getMembers() {
+      return members;
+    }
+
+    ExpressionNode getVal() {
+      return val;
+    }
+  }
+
+  /**
+   * Tests whether a variable or message element is present
+   */
+  static final class ExistNode extends ExpressionNode {
+    private final VarNode var;
+
+    ExistNode(String text, VarNode var) {
+      super(text);
+      this.var = var;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      return BooleanFixValue.valueOf(var.evaluate(context) != null);
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      var.forEachVar(action);
+    }
+
+    VarNode getVar() {
+      return var;
+    }
+  }
+
+  /**
+   * Logical and or or, evaluated with short-circuit
+   */
+  static final class LogicalNode extends ExpressionNode {
+    private final boolean isAnd;
+    private final ExpressionNode left;
+    private final ExpressionNode right;
+
+    LogicalNode(String text, boolean isAnd, ExpressionNode left, ExpressionNode right) {
+      super(text);
+      this.isAnd = isAnd;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      final Boolean operand0 = booleanOperand(context, left, "Missing operand 1");
+      if (operand0 == null) {
+        return null;
+      }
+      // short-circuit: false and x == false, true or x == true
+      if (operand0 != isAnd) {
+        return BooleanFixValue.valueOf(operand0);
+      }
+      final Boolean operand1 = booleanOperand(context, right, "Missing operand 2");
+      if (operand1 == null) {
+        return null;
+      }
+      return BooleanFixValue.valueOf(operand1);
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      left.forEachVar(action);
+      right.forEachVar(action);
+    }
+
+    ExpressionNode getLeft() {
+      return left;
+    }
+
+    ExpressionNode getRight() {
+      return right;
+    }
+
+    boolean isAnd() {
+      return isAnd;
+    }
+  }
+
+  /**
+   * Logical negation
+   */
+  static final class NotNode extends ExpressionNode {
+    private final ExpressionNode operand;
+
+    NotNode(String text, ExpressionNode operand) {
+      super(text);
+      this.operand = operand;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      final Boolean value = booleanOperand(context, operand, "Missing operand 1");
+      if (value == null) {
+        return null;
+      }
+      return BooleanFixValue.valueOf(!value);
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      operand.forEachVar(action);
+    }
+
+    ExpressionNode getOperand() {
+      return operand;
+    }
+  }
+
+  /**
+   * Tests whether a value falls within an inclusive range
+   */
+  static final class RangeNode extends ExpressionNode {
+    private final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> ge;
+    private final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> le;
+    private final ExpressionNode max;
+    private final ExpressionNode min;
+    private final ExpressionNode val;
+
+    RangeNode(String text, BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> ge,
+        BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> le, ExpressionNode val,
+        ExpressionNode min, ExpressionNode max) {
+      super(text);
+      this.ge = ge;
+      this.le = le;
+      this.val = val;
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      final FixValue<?> value = val.evaluate(context);
+      try {
+        final FixValue<Boolean> aboveMin = ge.apply(value, min.evaluate(context));
+        if (!aboveMin.getValue()) {
+          return aboveMin;
+        }
+        return le.apply(value, max.evaluate(context));
+      } catch (Exception ex) {
+        onError(context, ex);
+        return null;
+      }
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      val.forEachVar(action);
+      min.forEachVar(action);
+      max.forEachVar(action);
+    }
+
+    ExpressionNode getMax() {
+      return max;
+    }
+
+    ExpressionNode getMin() {
+      return min;
+    }
+
+    ExpressionNode getVal() {
+      return val;
+    }
+  }
+
+  /**
+   * Negation of a number; the operand is not modified
+   */
+  static final class UnaryMinusNode extends ExpressionNode {
+    static FixValue<?> negate(FixValue<?> unsigned) {
+      if (unsigned == null) {
+        return null;
+      }
+      if (unsigned instanceof IntFixValue) {
+        return new IntFixValue(unsigned.getType(), -((IntFixValue) unsigned).getInt());
+      } else if (unsigned instanceof DecimalFixValue && ((DecimalFixValue) unsigned).isScaled()
+          && ((DecimalFixValue) unsigned).getMantissa() != Long.MIN_VALUE) {
+        final DecimalFixValue decimal = (DecimalFixValue) unsigned;
+        return new DecimalFixValue(unsigned.getType(), -decimal.getMantissa(), decimal.getScale());
+      }
+      final Object val = unsigned.getValue();
+      if (val instanceof Integer) {
+        return new FixValue<Integer>(unsigned.getType(), -(Integer) val);
+      } else if (val instanceof BigDecimal) {
+        return new FixValue<BigDecimal>(unsigned.getType(), ((BigDecimal) val).negate());
+      } else {
+        return null;
+      }
+    }
+
+    private final ExpressionNode operand;
+
+    UnaryMinusNode(String text, ExpressionNode operand) {
+      super(text);
+      this.operand = operand;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      final FixValue<?> signed = negate(operand.evaluate(context));
+      if (signed == null) {
+        context.onError("Semantic error; cannot apply unary minus at '%s'", getText());
+      }
+      return signed;
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      operand.forEachVar(action);
+    }
+
+    ExpressionNode getOperand() {
+      return operand;
+    }
+  }
+
+  /**
+   * Assigns a value to a variable or message element, creating it if it does not exist
+   * <p>
+   * A message element is always assigned through its scope, even if it exists, since the value
+   * resolved for it may be a copy decoded from the message.
+   */
+  static final class AssignmentNode extends ExpressionNode {
+    private final ExpressionNode expr;
+    private final VarNode var;
+
+    AssignmentNode(String text, VarNode var, ExpressionNode expr) {
+      super(text);
+      this.var = var;
+      this.expr = expr;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      final FixValue<?> val = expr.evaluate(context);
+      if (val == null) {
+        context.onError("Semantic error; missing val for assignment at '%s'", getText());
+        return null;
+      }
+      final Scope root = var.resolveRoot(context);
+      if (root == null) {
+        return null;
+      }
+      final PathStep pathStep = var.getLastStep();
+      final int slot = var.getSlot();
+      final TreeSymbolTable table =
+          slot != SymbolIds.NO_SYMBOL && root instanceof TreeSymbolTable ? (TreeSymbolTable) root
+              : null;
+      final PathBinding binding = table == null ? var.getBindings().get(root) : null;
+      final Scope parent =
+          table == null && binding == null ? VarNode.walk(root, var.getSteps()) : null;
+      try {
+        final FixNode node;
+        if (table != null) {
+          node = table.resolve(slot);
+        } else if (binding != null) {
+          node = binding.resolve((BindableScope) root);
+        } else {
+          node = parent.resolve(pathStep);
+        }
+        if (node instanceof FixValue && (table != null || parent instanceof TreeSymbolTable)) {
+          // a variable is held by its table, so it is updated in place
+          final FixValue<?> existing = (FixValue<?>) node;
+          existing.assign(val);
+          return existing;
+        } else {
+          // a message element is set through its scope, so that the message holds the value
+          if (node instanceof FixValue
+              && ((FixValue<?>) node).getType().getBaseType() != val.getType().getBaseType()) {
+            throw new ModelException(String.format("Data type mismatch between %s and %s",
+                ((FixValue<?>) node).getType(), val.getType()));
+          }
+          final FixValue<?> namedVal = FixValueFactory.copy(pathStep.getName(), val);
+          if (table != null) {
+            return table.assign(slot, namedVal);
+          } else if (binding != null) {
+            return binding.assign((BindableScope) root, namedVal);
+          } else {
+            return parent.assign(pathStep, namedVal);
+          }
+        }
+      } catch (ModelException e) {
+        onError(context, e);
+        return null;
+      }
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      var.forEachVar(action);
+      expr.forEachVar(action);
+    }
+
+    ExpressionNode getExpr() {
+      return expr;
+    }
+
+    VarNode getVar() {
+      return var;
+    }
+
+    @Override
+    boolean isReference() {
+      return true;
+    }
+  }
+
+  /**
+   * Resolves a variable or message element by a path of pre-built steps
+   * <p>
+   * Names of the root scope and of a simple variable are interned to symbol ids when the node is
+   * compiled, so a variable is read from its symbol table by slot. If the root scope of the path is
+   * a {@link BindableScope}, the path is bound once to its structure and thereafter resolved
+   * through the binding without searching by name.
+   */
+  static final class VarNode extends ExpressionNode {
+    private final PathBindings bindings;
+    private final int scopeId;
+    private final PathStep scopeStep;
+    private final int slot;
+    private final PathStep[] steps;
+
+    VarNode(String text, PathStep scopeStep, PathStep[] steps) {
+      super(text);
+      this.scopeStep = scopeStep;
+      this.steps = steps;
+      this.bindings = new PathBindings(steps);
+      this.scopeId = SymbolIds.intern(scopeStep.getName());
+      final PathStep lastStep = steps[steps.length - 1];
+      this.slot = steps.length == 1 && lastStep.getIndex() == PathStep.NO_INDEX
+          && lastStep.getPredicate() == null ? SymbolIds.intern(lastStep.getName())
+              : SymbolIds.NO_SYMBOL;
+    }
+
+    @Override
+    FixValue<?> evaluate(EvaluationContext context) {
+      final Scope root = resolveRoot(context);
+      if (root == null) {
+        return null;
+      }
+      final FixNode node = resolve(root, slot, bindings, steps);
+      return node instanceof FixValue ? (FixValue<?>) node : null;
+    }
+
+    @Override
+    void forEachVar(Consumer<VarNode> action) {
+      action.accept(this);
+    }
+
+    PathBindings getBindings() {
+      return bindings;
+    }
+
+    PathStep getLastStep() {
+      return steps[steps.length - 1];
+    }
+
+    int getScopeId() {
+      return scopeId;
+    }
+
+    @Override
+    boolean isReference() {
+      return true;
+    }
+
+    PathStep getScopeStep() {
+      return scopeStep;
+    }
+
+    int getSlot() {
+      return slot;
+    }
+
+    PathStep[] getSteps() {
+      return steps;
+    }
+
+    /**
+     * Resolves the scope step of the path
+     *
+     * @return the root scope of the path, or {@code null} if the root scope is unknown
+     */
+    Scope resolveRoot(EvaluationContext context) {
+      final Scope root = resolveRoot(context.getSymbolResolver(), scopeId, scopeStep);
+      if (root == null) {
+        context.onError("Unknown symbol scope; %s at '%s'", scopeStep.getName(), getText());
+      }
+      return root;
+    }
+
+    /**
+     * Resolves the last step of a path from its root scope, by slot if the root is a symbol table,
+     * else by binding if the root is bindable, else by name
+     *
+     * @param slot symbol id of a simple variable, or {@link SymbolIds#NO_SYMBOL}
+     */
+    static FixNode resolve(Scope root, int slot, PathBindings bindings, PathStep[] steps) {
+      if (slot != SymbolIds.NO_SYMBOL && root instanceof TreeSymbolTable) {
+        return ((TreeSymbolTable) root).resolve(slot);
+      }
+      final PathBinding binding = bindings.get(root);
+      return binding != null ? binding.resolve((BindableScope) root)
+          : walk(root, steps).resolve(steps[steps.length - 1]);
+    }
+
+    /**
+     * Resolves a root scope by symbol id. A stack of local scopes is replaced by its innermost
+     * scope, so that a variable may be resolved in it directly.
+     *
+     * @return the root scope, or {@code null} if it is unknown
+     */
+    static Scope resolveRoot(SymbolResolver symbolResolver, int scopeId, PathStep scopeStep) {
+      FixNode root = symbolResolver.resolve(scopeId);
+      if (root == null) {
+        root = symbolResolver.resolve(scopeStep);
+      }
+      if (root instanceof LocalScope) {
+        final Scope current = ((LocalScope) root).current();
+        if (current != null) {
+          return current;
+        }
+      }
+      return root instanceof Scope ? (Scope) root : null;
+    }
+
+    /**
+     * Follows all but the last step of a path from a scope. A step that does not resolve to a
+     * nested scope leaves the current scope unchanged.
+     */
+    static Scope walk(Scope scope, PathStep[] steps) {
+      Scope currentScope = scope;
+      for (int i = 0; i < steps.length - 1; i++) {
+        final FixNode node = currentScope.resolve(steps[i]);
+        if (node instanceof Scope) {
+          currentScope = (Scope) node;
+        }
+      }
+      return currentScope;
+    }
+  }
+
+  private final String text;
+
+  ExpressionNode(String text) {
+    this.text = text;
+  }
+
+  /**
+   * Evaluates this node
+   *
+   * @param context symbols and error reporting for this evaluation
+   * @return the value of this node, or {@code null} if it cannot be evaluated
+   */
+  abstract FixValue<?> evaluate(EvaluationContext context);
+
+  /**
+   * Applies an action to each variable or message element referenced by this node and its
+   * operands
+   */
+  void forEachVar(Consumer<VarNode> action) {
+    // no operands
+  }
+
+  /**
+   * @return source text of this node
+   */
+  String getText() {
+    return text;
+  }
+
+  boolean isConstant() {
+    return false;
+  }
+
+  /**
+   * @return {@code true} if the value of this node is held by a scope, such as a variable or a
+   *         decoded message field, rather than created by the evaluation
+   */
+  boolean isReference() {
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+  void onError(EvaluationContext context, Exception ex) {
+    context.onError("Semantic error; %s at '%s'", ex.getMessage(), text);
+  }
+
+  /**
+   * Evaluates an operand of a logical operator, reporting an error if it is not Boolean
+   *
+   * @return the value of the operand, or {@code null} if it is missing or not Boolean
+   */
+  Boolean booleanOperand(EvaluationContext context, ExpressionNode operand,
+      String missingMessage) {
+    final FixValue<?> value = operand.evaluate(context);
+    if (value == null) {
+      context.onError("Semantic error; %s at '%s'", missingMessage, text);
+      return null;
+    }
+    final Object b = value.getValue();
+    if (!(b instanceof Boolean)) {
+      context.onError("Semantic error; %s is not Boolean at '%s'", operand.getText(), text);
+      return null;
+    }
+    return (Boolean) b;
+  }
+}
@@ -0,0 +1,338 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.ICONST_1;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.IFNULL;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.IXOR;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.BinaryNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.ConstantNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.ContainsNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.ExistNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.LogicalNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.NotNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.RangeNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.UnaryMinusNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.VarNode;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.FixValueOperations;
+import io.fixprotocol.orchestra.model.PathBindings;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * Generates a JVM class that implements {@link CompiledPredicate} for a compiled expression
+ * <p>
+ * Logical operators become branches in bytecode, and operators, literals and paths are held in
+ * final fields of the generated class, so the JIT compiler can inline comparisons into a rule.
+ * Operands are supplied by {@link PredicateSupport}. Expressions that contain assignments, or
+ * Boolean operators in a non-Boolean position, are not generated.
+ * <p>
+ * This class requires the optional ASM library.
+ *
+ * @author Don Mendelson
+ *
+ */
+class PredicateGenerator {
+
+  /**
+   * Each generated class has its own loader so it can be collected when its expression is
+   * evicted
+   */
+  private static final class GeneratedClassLoader extends ClassLoader {
+
+    GeneratedClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    Class<?> define(String name, byte[] bytes) {
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+
+  /**
+   * Emits the body of one predicate
+   */
+  private static final class MethodGenerator {
+    // slot 0 = this, slot 1 = symbol resolver
+    private int nextLocal = 2;
+    private final String className;
+    private final List<Object> fieldValues = new ArrayList<>();
+    private final List<String> fieldDescriptors = new ArrayList<>();
+    private final MethodVisitor mv;
+
+    MethodGenerator(String className, MethodVisitor mv) {
+      this.className = className;
+      this.mv = mv;
+    }
+
+    /**
+     * Leaves 0 or 1 on the operand stack
+     */
+    void generateBoolean(ExpressionNode node) throws UnsupportedOperationException {
+      if (node instanceof LogicalNode) {
+        final LogicalNode logical = (LogicalNode) node;
+        final Label shortCircuit = new Label();
+        final Label end = new Label();
+        generateBoolean(logical.getLeft());
+        mv.visitJumpInsn(logical.isAnd() ? IFEQ : IFNE, shortCircuit);
+        generateBoolean(logical.getRight());
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(shortCircuit);
+        mv.visitInsn(logical.isAnd() ? ICONST_0 : ICONST_1);
+        mv.visitLabel(end);
+      } else if (node instanceof NotNode) {
+        generateBoolean(((NotNode) node).getOperand());
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(IXOR);
+      } else if (node instanceof BinaryNode && ((BinaryNode) node).isPredicate()) {
+        final BinaryNode binary = (BinaryNode) node;
+        loadField(binary.getOperation(), BIFUNCTION_DESCRIPTOR);
+        generateValue(binary.getLeft());
+        generateValue(binary.getRight());
+        invokeSupport("test", TEST_DESCRIPTOR);
+      } else if (node instanceof ContainsNode) {
+        final ContainsNode contains = (ContainsNode) node;
+        final int local = storeValue(contains.getVal());
+        final Label found = new Label();
+        final Label end = new Label();
+        for (ExpressionNode member : contains.getMembers()) {
+          loadField(operations.eq, BIFUNCTION_DESCRIPTOR);
+          mv.visitVarInsn(ALOAD, local);
+          generateValue(member);
+          invokeSupport("test", TEST_DESCRIPTOR);
+          mv.visitJumpInsn(IFNE, found);
+        }
+        mv.visitInsn(ICONST_0);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(found);
+        mv.visitInsn(ICONST_1);
+        mv.visitLabel(end);
+      } else if (node instanceof RangeNode) {
+        final RangeNode range = (RangeNode) node;
+        final int local = storeValue(range.getVal());
+        final Label below = new Label();
+        final Label end = new Label();
+        loadField(operations.ge, BIFUNCTION_DESCRIPTOR);
+        mv.visitVarInsn(ALOAD, local);
+        generateValue(range.getMin());
+        invokeSupport("test", TEST_DESCRIPTOR);
+        mv.visitJumpInsn(IFEQ, below);
+        loadField(operations.le, BIFUNCTION_DESCRIPTOR);
+        mv.visitVarInsn(ALOAD, local);
+        generateValue(range.getMax());
+        invokeSupport("test", TEST_DESCRIPTOR);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(below);
+        mv.visitInsn(ICONST_0);
+        mv.visitLabel(end);
+      } else if (node instanceof ExistNode) {
+        final Label absent = new Label();
+        final Label end = new Label();
+        generateValue(((ExistNode) node).getVar());
+        mv.visitJumpInsn(IFNULL, absent);
+        mv.visitInsn(ICONST_1);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(absent);
+        mv.visitInsn(ICONST_0);
+        mv.visitLabel(end);
+      } else if (node instanceof ConstantNode
+          && ((ConstantNode) node).getValue().getValue() instanceof Boolean) {
+        mv.visitInsn((Boolean) ((ConstantNode) node).getValue().getValue() ? ICONST_1 : ICONST_0);
+      } else if (node instanceof VarNode) {
+        generateValue(node);
+        invokeSupport("isTrue", IS_TRUE_DESCRIPTOR);
+      } else {
+        throw new UnsupportedOperationException(node.getText());
+      }
+    }
+
+    /**
+     * Leaves a FixValue on the operand stack
+     */
+    void generateValue(ExpressionNode node) throws UnsupportedOperationException {
+      if (node instanceof ConstantNode) {
+        loadField(((ConstantNode) node).getValue(), FIXVALUE_DESCRIPTOR);
+      } else if (node instanceof VarNode) {
+        final VarNode var = (VarNode) node;
+        mv.visitVarInsn(ALOAD, 1);
+        loadField(var.getScopeStep(), PATHSTEP_DESCRIPTOR);
+        mv.visitLdcInsn(var.getScopeId());
+        loadField(var.getSteps(), PATHSTEPS_DESCRIPTOR);
+        mv.visitLdcInsn(var.getSlot());
+        loadField(var.getBindings(), PATHBINDINGS_DESCRIPTOR);
+        invokeSupport("resolve", RESOLVE_DESCRIPTOR);
+      } else if (node instanceof BinaryNode && !((BinaryNode) node).isPredicate()) {
+        final BinaryNode binary = (BinaryNode) node;
+        loadField(binary.getOperation(), BIFUNCTION_DESCRIPTOR);
+        generateValue(binary.getLeft());
+        generateValue(binary.getRight());
+        invokeSupport("apply", APPLY_DESCRIPTOR);
+      } else if (node instanceof UnaryMinusNode) {
+        generateValue(((UnaryMinusNode) node).getOperand());
+        invokeSupport("negate", NEGATE_DESCRIPTOR);
+      } else {
+        throw new UnsupportedOperationException(node.getText());
+      }
+    }
+
+    List<String> getFieldDescriptors() {
+      return fieldDescriptors;
+    }
+
+    Object[] getFieldValues() {
+      return fieldValues.toArray();
+    }
+
+    private void invokeSupport(String name, String descriptor) {
+      mv.visitMethodInsn(INVOKESTATIC, SUPPORT_NAME, name, descriptor, false);
+    }
+
+    private void loadField(Object value, String descriptor) {
+      final int index = fieldValues.size();
+      fieldValues.add(value);
+      fieldDescriptors.add(descriptor);
+      mv.visitVarInsn(ALOAD, 0);
+      mv.visitFieldInsn(GETFIELD, className, "f" + index, descriptor);
+    }
+
+    private int storeValue(ExpressionNode node) {
+      final int local = nextLocal++;
+      generateValue(node);
+      mv.visitVarInsn(ASTORE, local);
+      return local;
+    }
+  }
+
+  private static final String BIFUNCTION_DESCRIPTOR = Type.getDescriptor(BiFunction.class);
+  private static final String FIXVALUE_DESCRIPTOR = Type.getDescriptor(FixValue.class);
+  private static final String PATHSTEP_DESCRIPTOR = Type.getDescriptor(PathStep.class);
+  private static final String PATHSTEPS_DESCRIPTOR = Type.getDescriptor(PathStep[].class);
+  private static final String PATHBINDINGS_DESCRIPTOR = Type.getDescriptor(PathBindings.class);
+  private static final String APPLY_DESCRIPTOR = "(" + BIFUNCTION_DESCRIPTOR + FIXVALUE_DESCRIPTOR
+      + FIXVALUE_DESCRIPTOR + ")" + FIXVALUE_DESCRIPTOR;
+  private static final String IS_TRUE_DESCRIPTOR = "(" + FIXVALUE_DESCRIPTOR + ")Z";
+  private static final String NEGATE_DESCRIPTOR =
+      "(" + FIXVALUE_DESCRIPTOR + ")" + FIXVALUE_DESCRIPTOR;
+  private static final String RESOLVE_DESCRIPTOR = "(" + Type.getDescriptor(SymbolResolver.class)
+      + PATHSTEP_DESCRIPTOR + "I" + PATHSTEPS_DESCRIPTOR + "I" + PATHBINDINGS_DESCRIPTOR + ")"
+      + FIXVALUE_DESCRIPTOR;
+  private static final String TEST_DESCRIPTOR =
+      "(" + BIFUNCTION_DESCRIPTOR + FIXVALUE_DESCRIPTOR + FIXVALUE_DESCRIPTOR + ")Z";
+
+  private static final String CLASS_NAME_PREFIX = "io/fixprotocol/orchestra/dsl/generated/Predicate";
+  private static final String PREDICATE_NAME = Type.getInternalName(CompiledPredicate.class);
+  private static final String SUPPORT_NAME = Type.getInternalName(PredicateSupport.class);
+
+  private static final AtomicInteger classCount = new AtomicInteger();
+  private static final FixValueOperations operations = ScoreCompiler.getFixValueOperations();
+
+  /**
+   * Generates a predicate class and returns an instance of it
+   *
+   * @param root root node of a compiled expression
+   * @return a predicate, or {@code null} if the expression is not supported
+   */
+  CompiledPredicate generate(ExpressionNode root) {
+    final String className = CLASS_NAME_PREFIX + classCount.incrementAndGet();
+    final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, "java/lang/Object",
+        new String[] {PREDICATE_NAME});
+    cw.visitSource(root.getText(), null);
+
+    final MethodVisitor test = cw.visitMethod(ACC_PUBLIC, "test",
+        "(" + Type.getDescriptor(SymbolResolver.class) + ")Z", null, null);
+    test.visitCode();
+    final MethodGenerator generator = new MethodGenerator(className, test);
+    try {
+      generator.generateBoolean(root);
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+    test.visitInsn(IRETURN);
+    test.visitMaxs(0, 0);
+    test.visitEnd();
+
+    final List<String> descriptors = generator.getFieldDescriptors();
+    for (int i = 0; i < descriptors.size(); i++) {
+      cw.visitField(ACC_PRIVATE | ACC_FINAL, "f" + i, descriptors.get(i), null, null).visitEnd();
+    }
+    generateConstructor(cw, className, descriptors);
+    cw.visitEnd();
+
+    try {
+      final Class<?> predicateClass =
+          new GeneratedClassLoader(PredicateGenerator.class.getClassLoader())
+              .define(className.replace('/', '.'), cw.toByteArray());
+      return (CompiledPredicate) predicateClass.getConstructor(Object[].class)
+          .newInstance(new Object[] {generator.getFieldValues()});
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+
+  /**
+   * Generates a constructor that initializes fields from an array of values
+   */
+  private void generateConstructor(ClassWriter cw, String className, List<String> descriptors) {
+    final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", null,
+        null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    for (int i = 0; i < descriptors.size(); i++) {
+      final String descriptor = descriptors.get(i);
+      mv.visitVarInsn(ALOAD, 0);
+      mv.visitVarInsn(ALOAD, 1);
+      mv.visitLdcInsn(i);
+      mv.visitInsn(AALOAD);
+      mv.visitTypeInsn(CHECKCAST, Type.getType(descriptor).getInternalName());
+      mv.visitFieldInsn(PUTFIELD, className, "f" + i, descriptor);
+    }
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import java.util.function.BiFunction;
+
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.UnaryMinusNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.VarNode;
+import io.fixprotocol.orchestra.model.BooleanFixValue;
+import io.fixprotocol.orchestra.model.FixNode;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.PathBindings;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.Scope;
+import io.fixprotocol.orchestra.model.SymbolIds;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * Runtime support for generated {@link CompiledPredicate} classes
+ * <p>
+ * Generated classes are defined by their own class loader, so they can only call public methods.
+ * These methods handle the normal case only. Anything that the interpreter would report as an
+ * error causes evaluation to be abandoned so that the interpreter can repeat it and report the
+ * error. Not intended to be called by applications.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class PredicateSupport {
+
+  /**
+   * Signals that a generated predicate cannot complete an evaluation. It is preallocated without
+   * a stack trace since it is thrown in place of returning a status.
+   */
+  static final class FallbackException extends RuntimeException {
+
+    private static final long serialVersionUID = 2367745040286125004L;
+
+    FallbackException() {
+      super("Predicate evaluation requires interpretation", null, false, false);
+    }
+  }
+
+  static final FallbackException FALLBACK = new FallbackException();
+
+  /**
+   * Applies a binary operator to operands
+   *
+   * @return the result of the operation
+   */
+  public static FixValue<?> apply(
+      BiFunction<FixValue<?>, FixValue<?>, ? extends FixValue<?>> operation, FixValue<?> operand1,
+      FixValue<?> operand2) {
+    if (operand1 == null || operand2 == null) {
+      throw FALLBACK;
+    }
+    final FixValue<?> result;
+    try {
+      result = operation.apply(operand1, operand2);
+    } catch (RuntimeException e) {
+      throw FALLBACK;
+    }
+    if (result == null) {
+      throw FALLBACK;
+    }
+    return result;
+  }
+
+  /**
+   * @return the Boolean value of an operand
+   */
+  public static boolean isTrue(FixValue<?> operand) {
+    if (operand instanceof BooleanFixValue && ((BooleanFixValue) operand).hasValue()) {
+      return ((BooleanFixValue) operand).getBoolean();
+    }
+    if (operand == null || !(operand.getValue() instanceof Boolean)) {
+      throw FALLBACK;
+    }
+    return (Boolean) operand.getValue();
+  }
+
+  /**
+   * @return the negation of a numeric operand
+   */
+  public static FixValue<?> negate(FixValue<?> operand) {
+    final FixValue<?> result = UnaryMinusNode.negate(operand);
+    if (result == null) {
+      throw FALLBACK;
+    }
+    return result;
+  }
+
+  /**
+   * Resolves a variable or message element
+   *
+   * @param symbolResolver root of symbol scopes
+   * @param scopeStep selects the root scope
+   * @param scopeId symbol id of the root scope
+   * @param steps path from the root scope
+   * @param slot symbol id of a simple variable, or {@link SymbolIds#NO_SYMBOL}
+   * @param bindings bindings of the path to structures of bindable scopes
+   * @return the resolved value or {@code null} if not found
+   */
+  public static FixValue<?> resolve(SymbolResolver symbolResolver, PathStep scopeStep,
+      int scopeId, PathStep[] steps, int slot, PathBindings bindings) {
+    final Scope root = VarNode.resolveRoot(symbolResolver, scopeId, scopeStep);
+    if (root == null) {
+      throw FALLBACK;
+    }
+    final FixNode node = VarNode.resolve(root, slot, bindings, steps);
+    return node instanceof FixValue ? (FixValue<?>) node : null;
+  }
+
+  /**
+   * Applies a Boolean binary operator to operands
+   *
+   * @return the result of the operation
+   */
+  public static boolean test(
+      BiFunction<FixValue<?>, FixValue<?>, ? extends FixValue<?>> operation, FixValue<?> operand1,
+      FixValue<?> operand2) {
+    return isTrue(apply(operation, operand1, operand2));
+  }
+
+  private PredicateSupport() {
+
+  }
+}
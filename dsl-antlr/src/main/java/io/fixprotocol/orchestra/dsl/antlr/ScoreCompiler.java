@@ -0,0 +1,407 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.AbstractParseTreeVisitor;
+
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.AssignmentNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.BinaryNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.ConstantNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.ContainsNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.ExistNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.LogicalNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.NotNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.RangeNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.UnaryMinusNode;
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.VarNode;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.AddSubContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.AnyExpressionContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.AssignmentContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.CharacterContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.ContainsContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.DateonlyContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.DecimalContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.DurationContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.EqualityContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.ExistContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.IndexContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.IntegerContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.LogicalAndContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.LogicalNotContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.LogicalOrContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.MulDivContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.ParensContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.PredContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.QualContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.RangeContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.RelationalContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.StringContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.TimeonlyContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.TimestampContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.UnaryMinusContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.VarContext;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreParser.VariableContext;
+import io.fixprotocol.orchestra.dsl.datetime.DateTimeFormatters;
+import io.fixprotocol.orchestra.model.CharFixValue;
+import io.fixprotocol.orchestra.model.DecimalFixValue;
+import io.fixprotocol.orchestra.model.FixNode;
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.FixValueOperations;
+import io.fixprotocol.orchestra.model.IntFixValue;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.Scope;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * Compiles a Score parse tree into a tree of {@link ExpressionNode}
+ * <p>
+ * Operators are selected by their text once at compile time, literals are converted to values, and
+ * subexpressions with only literal operands are folded. Unlike {@link ScoreVisitorImpl}, logical
+ * operators short-circuit, unary minus does not modify its operand, and predicates in a path are
+ * passed to the resolving scope through {@link PathStep#setPredicate(String)}.
+ * <p>
+ * A compiler may bind references to codes, such as {@code ^Buy}, to constants. As at evaluation, a
+ * code is resolved in the code set of the field most recently referenced before it, or else in an
+ * initial code set. A code that is not found is left to be resolved at evaluation.
+ * <p>
+ * A compiler that does not bind codes is stateless and thread-safe. A compiler that binds codes
+ * holds state for one compilation and must not be shared.
+ *
+ * @author Don Mendelson
+ *
+ */
+class ScoreCompiler extends AbstractParseTreeVisitor<ExpressionNode>
+    implements ScoreVisitor<ExpressionNode> {
+
+  private static final FixValueOperations fixValueOperations = new FixValueOperations();
+  private static final String CODE_SET_ROOT_NAME = SymbolResolver.CODE_SET_ROOT.getName();
+  private static final String VARIABLE_ROOT_NAME = SymbolResolver.VARIABLE_ROOT.getName();
+
+  /**
+   * @return operations captured by compiled nodes
+   */
+  static FixValueOperations getFixValueOperations() {
+    return fixValueOperations;
+  }
+
+  /**
+   * Folds a binary operation if both operands are constant
+   */
+  private static ExpressionNode binary(String text,
+      BiFunction<FixValue<?>, FixValue<?>, ? extends FixValue<?>> operation, boolean isPredicate,
+      ExpressionNode left, ExpressionNode right) {
+    if (left.isConstant() && right.isConstant()) {
+      try {
+        final FixValue<?> value = operation.apply(((ConstantNode) left).getValue(),
+            ((ConstantNode) right).getValue());
+        if (value != null) {
+          return new ConstantNode(text, value);
+        }
+      } catch (Exception e) {
+        // leave it to evaluation to report the error
+      }
+    }
+    return new BinaryNode(text, operation, isPredicate, left, right);
+  }
+
+  private Scope codeSet;
+  private final Function<String, Scope> fieldCodeSets;
+  private final boolean isBindingCodes;
+
+  /**
+   * Constructs a compiler that does not bind codes
+   */
+  ScoreCompiler() {
+    this.codeSet = null;
+    this.fieldCodeSets = null;
+    this.isBindingCodes = false;
+  }
+
+  /**
+   * Constructs a compiler that binds codes to constants
+   *
+   * @param codeSet scope of the initial code set, may be {@code null}
+   * @param fieldCodeSets maps the name of a field to the scope of its code set, or to
+   *        {@code null} if the field is not enumerated. May be {@code null}.
+   */
+  ScoreCompiler(Scope codeSet, Function<String, Scope> fieldCodeSets) {
+    this.codeSet = codeSet;
+    this.fieldCodeSets = fieldCodeSets;
+    this.isBindingCodes = true;
+  }
+
+  @Override
+  public ExpressionNode visitAddSub(AddSubContext ctx) {
+    final ExpressionNode left = visit(ctx.expr(0));
+    final ExpressionNode right = visit(ctx.expr(1));
+    switch (ctx.op.getText()) {
+      case "+":
+        return binary(ctx.getText(), fixValueOperations.add, false, left, right);
+      default:
+        return binary(ctx.getText(), fixValueOperations.subtract, false, left, right);
+    }
+  }
+
+  @Override
+  public ExpressionNode visitAnyExpression(AnyExpressionContext ctx) {
+    return visitChildren(ctx);
+  }
+
+  @Override
+  public ExpressionNode visitAssignment(AssignmentContext ctx) {
+    return new AssignmentNode(ctx.getText(), visitVar(ctx.var()), visit(ctx.expr()));
+  }
+
+  @Override
+  public ExpressionNode visitCharacter(CharacterContext ctx) {
+    return new ConstantNode(ctx.getText(),
+        new CharFixValue(FixType.charType, ctx.CHAR().getText().charAt(1)));
+  }
+
+  @Override
+  public ExpressionNode visitContains(ContainsContext ctx) {
+    final ExpressionNode[] members = new ExpressionNode[ctx.member.size()];
+    for (int i = 0; i < members.length; i++) {
+      members[i] = visit(ctx.member.get(i));
+    }
+    return new ContainsNode(ctx.getText(), fixValueOperations.eq, visit(ctx.val), members);
+  }
+
+  @Override
+  public ExpressionNode visitDateonly(DateonlyContext ctx) {
+    return new ConstantNode(ctx.getText(),
+        new FixValue<LocalDate>(FixType.UTCDateOnly, LocalDate.parse(ctx.DATE().getText())));
+  }
+
+  @Override
+  public ExpressionNode visitDecimal(DecimalContext ctx) {
+    return new ConstantNode(ctx.getText(),
+        new DecimalFixValue(null, FixType.floatType, new BigDecimal(ctx.DECIMAL().getText())));
+  }
+
+  @Override
+  public ExpressionNode visitDuration(DurationContext ctx) {
+    return new ConstantNode(ctx.getText(),
+        new FixValue<Duration>(FixType.Duration, Duration.parse(ctx.PERIOD().getText())));
+  }
+
+  @Override
+  public ExpressionNode visitEquality(EqualityContext ctx) {
+    final ExpressionNode left = visit(ctx.expr(0));
+    final ExpressionNode right = visit(ctx.expr(1));
+    switch (ctx.op.getText()) {
+      case "==":
+      case "eq":
+        return binary(ctx.getText(), fixValueOperations.eq, true, left, right);
+      default:
+        return binary(ctx.getText(), fixValueOperations.ne, true, left, right);
+    }
+  }
+
+  @Override
+  public ExpressionNode visitExist(ExistContext ctx) {
+    return new ExistNode(ctx.getText(), visitVar(ctx.var()));
+  }
+
+  /**
+   * Indexes are compiled with their path by {@link #visitVar(VarContext)}
+   */
+  @Override
+  public ExpressionNode visitIndex(IndexContext ctx) {
+    return null;
+  }
+
+  @Override
+  public ExpressionNode visitInteger(IntegerContext ctx) {
+    return new ConstantNode(ctx.getText(),
+        new IntFixValue(FixType.intType, Integer.parseInt(ctx.UINT().getText())));
+  }
+
+  @Override
+  public ExpressionNode visitLogicalAnd(LogicalAndContext ctx) {
+    return new LogicalNode(ctx.getText(), true, visit(ctx.expr(0)), visit(ctx.expr(1)));
+  }
+
+  @Override
+  public ExpressionNode visitLogicalNot(LogicalNotContext ctx) {
+    return new NotNode(ctx.getText(), visit(ctx.expr()));
+  }
+
+  @Override
+  public ExpressionNode visitLogicalOr(LogicalOrContext ctx) {
+    return new LogicalNode(ctx.getText(), false, visit(ctx.expr(0)), visit(ctx.expr(1)));
+  }
+
+  @Override
+  public ExpressionNode visitMulDiv(MulDivContext ctx) {
+    final ExpressionNode left = visit(ctx.expr(0));
+    final ExpressionNode right = visit(ctx.expr(1));
+    switch (ctx.op.getText()) {
+      case "*":
+        return binary(ctx.getText(), fixValueOperations.multiply, false, left, right);
+      case "/":
+        return binary(ctx.getText(), fixValueOperations.divide, false, left, right);
+      default:
+        return binary(ctx.getText(), fixValueOperations.mod, false, left, right);
+    }
+  }
+
+  @Override
+  public ExpressionNode visitParens(ParensContext ctx) {
+    return visit(ctx.expr());
+  }
+
+  /**
+   * Predicates are compiled with their path by {@link #visitVar(VarContext)}
+   */
+  @Override
+  public ExpressionNode visitPred(PredContext ctx) {
+    return null;
+  }
+
+  /**
+   * Qualifiers are compiled with their path by {@link #visitVar(VarContext)}
+   */
+  @Override
+  public ExpressionNode visitQual(QualContext ctx) {
+    return null;
+  }
+
+  @Override
+  public ExpressionNode visitRange(RangeContext ctx) {
+    return new RangeNode(ctx.getText(), fixValueOperations.ge, fixValueOperations.le,
+        visit(ctx.val), visit(ctx.min), visit(ctx.max));
+  }
+
+  @Override
+  public ExpressionNode visitRelational(RelationalContext ctx) {
+    final ExpressionNode left = visit(ctx.expr(0));
+    final ExpressionNode right = visit(ctx.expr(1));
+    switch (ctx.op.getText()) {
+      case "<":
+      case "lt":
+        return binary(ctx.getText(), fixValueOperations.lt, true, left, right);
+      case "<=":
+      case "le":
+        return binary(ctx.getText(), fixValueOperations.le, true, left, right);
+      case ">":
+      case "gt":
+        return binary(ctx.getText(), fixValueOperations.gt, true, left, right);
+      default:
+        return binary(ctx.getText(), fixValueOperations.ge, true, left, right);
+    }
+  }
+
+  @Override
+  public ExpressionNode visitString(StringContext ctx) {
+    final String text = ctx.STRING().getText();
+    return new ConstantNode(ctx.getText(),
+        new FixValue<String>(FixType.StringType, text.substring(1, text.length() - 1)));
+  }
+
+  @Override
+  public ExpressionNode visitTimeonly(TimeonlyContext ctx) {
+    return new ConstantNode(ctx.getText(), new FixValue<LocalTime>(FixType.UTCTimeOnly,
+        LocalTime.parse(ctx.TIME().getText(), DateTimeFormatters.TIME_ONLY)));
+  }
+
+  @Override
+  public ExpressionNode visitTimestamp(TimestampContext ctx) {
+    final Instant instant =
+        DateTimeFormatters.DATE_TIME.parse(ctx.DATETIME().getText(), Instant::from);
+    return new ConstantNode(ctx.getText(),
+        new FixValue<Instant>(FixType.UTCTimestamp, instant));
+  }
+
+  @Override
+  public ExpressionNode visitUnaryMinus(UnaryMinusContext ctx) {
+    final ExpressionNode operand = visit(ctx.expr());
+    if (operand.isConstant()) {
+      final FixValue<?> signed = UnaryMinusNode.negate(((ConstantNode) operand).getValue());
+      if (signed != null) {
+        return new ConstantNode(ctx.getText(), signed);
+      }
+    }
+    return new UnaryMinusNode(ctx.getText(), operand);
+  }
+
+  @Override
+  public VarNode visitVar(VarContext ctx) {
+    final String scopeText = ctx.scope == null ? "this." : ctx.scope.getText();
+    final List<QualContext> qualifiers = ctx.qual();
+    final PathStep[] steps = new PathStep[qualifiers.size()];
+    for (int i = 0; i < steps.length; i++) {
+      final QualContext qualifier = qualifiers.get(i);
+      final PathStep pathStep = new PathStep(qualifier.ID().getText());
+      final IndexContext indexContext = qualifier.index();
+      if (indexContext != null && indexContext.UINT() != null) {
+        pathStep.setIndex(Integer.parseInt(indexContext.UINT().getText()));
+      }
+      final PredContext predContext = qualifier.pred();
+      if (predContext != null) {
+        pathStep.setPredicate(predContext.ID().getText() + "==" + sourceText(predContext.expr()));
+      }
+      steps[i] = pathStep;
+    }
+    if (isBindingCodes && fieldCodeSets != null && !scopeText.equals(CODE_SET_ROOT_NAME)
+        && !scopeText.equals(VARIABLE_ROOT_NAME)) {
+      final Scope fieldCodeSet = fieldCodeSets.apply(steps[steps.length - 1].getName());
+      if (fieldCodeSet != null) {
+        codeSet = fieldCodeSet;
+      }
+    }
+    return new VarNode(ctx.getText(), new PathStep(scopeText), steps);
+  }
+
+  @Override
+  public ExpressionNode visitVariable(VariableContext ctx) {
+    final VarNode var = visitVar(ctx.var());
+    if (isBindingCodes && codeSet != null
+        && var.getScopeStep().getName().equals(CODE_SET_ROOT_NAME)
+        && var.getSteps().length == 1) {
+      final PathStep code = var.getLastStep();
+      if (code.getIndex() == PathStep.NO_INDEX && code.getPredicate() == null) {
+        final FixNode node = codeSet.resolve(code);
+        if (node instanceof FixValue) {
+          return new ConstantNode(ctx.getText(), (FixValue<?>) node);
+        }
+      }
+    }
+    return var;
+  }
+
+  /**
+   * Returns the source text of a rule with its original whitespace, since
+   * {@link ParserRuleContext#getText()} concatenates tokens and would join keywords to their
+   * operands, such as {@code $x in {1, 2}}
+   */
+  private static String sourceText(ParserRuleContext ctx) {
+    return ctx.start.getInputStream()
+        .getText(Interval.of(ctx.start.getStartIndex(), ctx.stop.getStopIndex()));
+  }
+
+}
@@ -66,6 +66,9 @@ import io.fixprotocol.orchestra.model.SymbolResolver;
 
 /**
  * Evaluates Score DSL expressions
+ * <p>
+ * The visitor keeps no state between visits, so it is reentrant. Scopes traversed while resolving
+ * a variable are held on the stack.
  * 
  * @author Don Mendelson
  *
@@ -73,13 +76,26 @@ import io.fixprotocol.orchestra.model.SymbolResolver;
 class ScoreVisitorImpl extends AbstractParseTreeVisitor<FixValue<?>>
     implements ScoreVisitor<FixValue<?>> {
 
-  private Scope currentScope;
+  /**
+   * Result of resolving a variable: the value if found, and the innermost scope and last path step
+   * for assignment
+   */
+  private static final class Reference {
+    final PathStep pathStep;
+    final Scope scope;
+    final FixValue<?> value;
+
+    Reference(Scope scope, PathStep pathStep, FixValue<?> value) {
+      this.scope = scope;
+      this.pathStep = pathStep;
+      this.value = value;
+    }
+  }
+
   private final SemanticErrorListener errorListener;
 
   private final FixValueOperations fixValueOperations = new FixValueOperations();
   
-  private PathStep pathStep;
-  
   private final SymbolResolver symbolResolver;
   
 
@@ -172,14 +188,15 @@ class ScoreVisitorImpl extends AbstractParseTreeVisitor<FixValue<?>>
           String.format("Semantic error; missing val for assignment at '%s'", ctx.getText()));
       return null;
     }
-    FixValue<?> var = visitVar(ctx.var());
+    Reference reference = resolveVar(ctx.var());
+    FixValue<?> var = reference.value;
     try {
       if (var != null) {
         var.assign(val);
         return var;
       } else {
-        FixValue<?> namedVal = FixValueFactory.copy(pathStep.getName(), val);
-        return currentScope.assign(pathStep, namedVal);
+        FixValue<?> namedVal = FixValueFactory.copy(reference.pathStep.getName(), val);
+        return reference.scope.assign(reference.pathStep, namedVal);
       }
     } catch (ModelException e) {
       errorListener
@@ -295,18 +312,11 @@ class ScoreVisitorImpl extends AbstractParseTreeVisitor<FixValue<?>>
     return result;
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see
-   * io.fixprotocol.orchestra.dsl.antlr.ScoreVisitor#visitIndex(io.fixprotocol.orchestra.dsl.antlr.
-   * ScoreParser.IndexContext)
+  /**
+   * Indexes are resolved with their qualifier by {@link #visitVar(VarContext)}
    */
   @Override
   public FixValue<?> visitIndex(IndexContext ctx) {
-    if (ctx.UINT() != null) {
-      pathStep.setIndex(Integer.parseInt(ctx.UINT().getText()));
-    }
     return null;
   }
 
@@ -443,40 +453,12 @@ class ScoreVisitorImpl extends AbstractParseTreeVisitor<FixValue<?>>
     return null;
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see
-   * io.fixprotocol.orchestra.dsl.antlr.ScoreVisitor#visitQual(io.fixprotocol.orchestra.dsl.antlr.
-   * ScoreParser.QualContext)
+  /**
+   * Qualifiers are resolved in the scope of their variable by {@link #visitVar(VarContext)}
    */
   @Override
   public FixValue<?> visitQual(QualContext ctx) {
-    pathStep = new PathStep(ctx.ID().getText());
-
-    IndexContext indexContext = ctx.index();
-    if (indexContext != null) {
-      visitIndex(indexContext);
-    }
-    PredContext predContext = ctx.pred();
-    if (predContext != null) {
-      String id = predContext.ID().getText();
-      ExprContext expr = predContext.expr();
-      // todo evaluate predicate expression
-    }
-
-    FixNode node = currentScope.resolve(pathStep);
-    if (node instanceof Scope) {
-      currentScope = (Scope) node;
-      if (isTrace()) {
-        System.out.format("Current scope %s%n", currentScope.getName());
-      }
-      return null;
-    } else if (node == null) {
-      return null;
-    } else {
-      return (FixValue<?>) node;
-    }
+    return null;
   }
 
   /*
@@ -605,8 +587,33 @@ class ScoreVisitorImpl extends AbstractParseTreeVisitor<FixValue<?>>
    */
   @Override
   public FixValue<?> visitVar(VarContext ctx) {
+    return resolveVar(ctx).value;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * io.fixprotocol.orchestra.dsl.antlr.ScoreVisitor#visitVariable(io.fixprotocol.orchestra.dsl.
+   * antlr.ScoreParser.VariableContext)
+   */
+  @Override
+  public FixValue<?> visitVariable(VariableContext ctx) {
+    return visit(ctx.var());
+  }
+
+  private PathStep qualifierStep(QualContext ctx) {
+    PathStep pathStep = new PathStep(ctx.ID().getText());
+    IndexContext indexContext = ctx.index();
+    if (indexContext != null && indexContext.UINT() != null) {
+      pathStep.setIndex(Integer.parseInt(indexContext.UINT().getText()));
+    }
+    return pathStep;
+  }
+
+  private Reference resolveVar(VarContext ctx) {
     FixValue<?> value = null;
-    currentScope = symbolResolver;
+    Scope currentScope = symbolResolver;
     String scopeText;
     if (ctx.scope == null) {
       //implicit scope
@@ -614,7 +621,7 @@ class ScoreVisitorImpl extends AbstractParseTreeVisitor<FixValue<?>>
     } else {
       scopeText = ctx.scope.getText();
     }
-    pathStep = new PathStep(scopeText);
+    PathStep pathStep = new PathStep(scopeText);
     FixNode node = currentScope.resolve(pathStep);
     if (node instanceof Scope) {
       currentScope = (Scope) node;
@@ -623,25 +630,23 @@ class ScoreVisitorImpl extends AbstractParseTreeVisitor<FixValue<?>>
       }
       List<QualContext> qualifiers = ctx.qual();
       for (QualContext qualifier : qualifiers) {
-        value = visitQual(qualifier);
+        pathStep = qualifierStep(qualifier);
+        node = currentScope.resolve(pathStep);
+        if (node instanceof Scope) {
+          currentScope = (Scope) node;
+          if (isTrace()) {
+            System.out.format("Current scope %s%n", currentScope.getName());
+          }
+          value = null;
+        } else {
+          value = (FixValue<?>) node;
+        }
       }
     } else {
       errorListener.onError(
           String.format("Unknown symbol scope; %s at '%s'", pathStep.getName(), ctx.getText()));
     }
-    return value;
-  }
-
-  /*
-   * (non-Javadoc)
-   * 
-   * @see
-   * io.fixprotocol.orchestra.dsl.antlr.ScoreVisitor#visitVariable(io.fixprotocol.orchestra.dsl.
-   * antlr.ScoreParser.VariableContext)
-   */
-  @Override
-  public FixValue<?> visitVariable(VariableContext ctx) {
-    return visit(ctx.var());
+    return new Reference(currentScope, pathStep, value);
   }
 
 }
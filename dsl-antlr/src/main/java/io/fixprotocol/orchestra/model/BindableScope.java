@@ -0,0 +1,44 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+/**
+ * A Scope whose structure is known before it is evaluated, such as a message of a known type
+ * <p>
+ * A path within the structure may be bound once, and the binding reused to resolve the path in any
+ * Scope of the same structure without searching by name.
+ *
+ * @author Don Mendelson
+ *
+ */
+public interface BindableScope extends Scope {
+
+  /**
+   * Binds a path to an element of the structure of this Scope
+   *
+   * @param steps path relative to this Scope
+   * @return a binding, or {@code null} if the path cannot be bound
+   */
+  PathBinding bind(PathStep[] steps);
+
+  /**
+   * Identifies the structure of this Scope. Scopes with the same structure accept the same
+   * bindings.
+   *
+   * @return an immutable key for the structure
+   */
+  Object getStructure();
+
+}
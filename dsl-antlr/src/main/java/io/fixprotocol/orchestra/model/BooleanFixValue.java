@@ -0,0 +1,140 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+/**
+ * A {@link FixValue} that stores a boolean without boxing
+ * <p>
+ * The shared instances {@link #TRUE} and {@link #FALSE} are returned as the results of
+ * comparisons and logical operators so that evaluating a predicate does not allocate. They are
+ * immutable; an attempt to set their values throws {@code UnsupportedOperationException}.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class BooleanFixValue extends FixValue<Boolean> {
+
+  /**
+   * Immutable unnamed false value
+   */
+  public static final BooleanFixValue FALSE = new BooleanFixValue(false, true);
+
+  /**
+   * Immutable unnamed true value
+   */
+  public static final BooleanFixValue TRUE = new BooleanFixValue(true, true);
+
+  /**
+   * Returns a shared immutable instance
+   *
+   * @param value a boolean value
+   * @return {@link #TRUE} or {@link #FALSE}
+   */
+  public static BooleanFixValue valueOf(boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  private boolean hasValue = false;
+  private final boolean isImmutable;
+  private boolean value;
+
+  /**
+   * Construct a named expression without value
+   *
+   * @param name named value
+   * @param type a FIX data type
+   */
+  public BooleanFixValue(String name, FixType type) {
+    super(name, type);
+    this.isImmutable = false;
+  }
+
+  /**
+   * Construct a named expression value
+   *
+   * @param name named value
+   * @param type a FIX data type
+   * @param value value to store
+   */
+  public BooleanFixValue(String name, FixType type, boolean value) {
+    this(name, type);
+    setBoolean(value);
+  }
+
+  private BooleanFixValue(boolean value, boolean isImmutable) {
+    super(null, FixType.BooleanType);
+    this.value = value;
+    this.hasValue = true;
+    this.isImmutable = isImmutable;
+  }
+
+  /**
+   * @return the value as a primitive. Only meaningful if {@link #hasValue()} is {@code true}.
+   */
+  public boolean getBoolean() {
+    return value;
+  }
+
+  @Override
+  public Boolean getValue() {
+    return hasValue ? Boolean.valueOf(value) : null;
+  }
+
+  /**
+   * @return {@code true} if a value has been set
+   */
+  public boolean hasValue() {
+    return hasValue;
+  }
+
+  /**
+   * @return {@code true} if this is a shared instance that cannot be changed
+   */
+  public boolean isImmutable() {
+    return isImmutable;
+  }
+
+  /**
+   * @param value the value to set
+   * @throws UnsupportedOperationException if this instance is immutable
+   */
+  public void setBoolean(boolean value) {
+    checkMutable();
+    this.value = value;
+    this.hasValue = true;
+  }
+
+  @Override
+  public void setValue(Boolean value) {
+    if (value != null) {
+      setBoolean(value);
+    } else {
+      checkMutable();
+      this.hasValue = false;
+    }
+  }
+
+  @Override
+  Class<?> getValueClass() {
+    return hasValue ? Boolean.class : null;
+  }
+
+  private void checkMutable() {
+    if (isImmutable) {
+      throw new UnsupportedOperationException("Shared Boolean value is immutable");
+    }
+  }
+
+}
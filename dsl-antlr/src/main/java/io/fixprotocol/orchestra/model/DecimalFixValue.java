@@ -0,0 +1,335 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+import java.math.BigDecimal;
+
+/**
+ * A {@link FixValue} that stores a decimal as a scaled long
+ * <p>
+ * The value is {@code mantissa * 10^-scale}, where scale is in the range 0 to {@link #MAX_SCALE}.
+ * A value that cannot be represented that way, such as one with more than 18 significant digits,
+ * is held as a {@code BigDecimal} instead, so results are always exact. A {@code BigDecimal} is
+ * created on the first call to {@link #getValue()} and kept until the value changes.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class DecimalFixValue extends FixValue<BigDecimal> {
+
+  /**
+   * Largest scale held as a scaled long
+   */
+  public static final int MAX_SCALE = 18;
+
+  private static final int MAX_PRECISION = 18;
+
+  private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1L;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+    }
+  }
+
+  /**
+   * Compares two decimals
+   *
+   * @return negative, zero or positive as the first value is less than, equal to or greater than
+   *         the second
+   */
+  static int compare(DecimalFixValue value1, DecimalFixValue value2) {
+    if (value1.isScaled && value2.isScaled) {
+      return compare(value1.mantissa, value1.scale, value2.mantissa, value2.scale);
+    } else {
+      return value1.getValue().compareTo(value2.getValue());
+    }
+  }
+
+  /**
+   * Compares an integer to a decimal
+   */
+  static int compare(int value1, DecimalFixValue value2) {
+    if (value2.isScaled) {
+      return compare(value1, 0, value2.mantissa, value2.scale);
+    } else {
+      return BigDecimal.valueOf(value1).compareTo(value2.getValue());
+    }
+  }
+
+  /**
+   * Compares two scaled longs. Falls back to {@code BigDecimal} if rescaling would overflow.
+   */
+  static int compare(long mantissa1, int scale1, long mantissa2, int scale2) {
+    if (scale1 == scale2) {
+      return Long.compare(mantissa1, mantissa2);
+    }
+    try {
+      if (scale1 < scale2) {
+        return Long.compare(Math.multiplyExact(mantissa1, POWERS_OF_TEN[scale2 - scale1]),
+            mantissa2);
+      } else {
+        return Long.compare(mantissa1,
+            Math.multiplyExact(mantissa2, POWERS_OF_TEN[scale1 - scale2]));
+      }
+    } catch (ArithmeticException e) {
+      return BigDecimal.valueOf(mantissa1, scale1)
+          .compareTo(BigDecimal.valueOf(mantissa2, scale2));
+    }
+  }
+
+  /**
+   * Adds scaled longs exactly
+   *
+   * @return the sum, or {@code null} if it cannot be represented as a scaled long
+   */
+  static DecimalFixValue add(FixType resultType, long mantissa1, int scale1, long mantissa2,
+      int scale2) {
+    try {
+      final int scale = Math.max(scale1, scale2);
+      return new DecimalFixValue(resultType, Math.addExact(rescale(mantissa1, scale1, scale),
+          rescale(mantissa2, scale2, scale)), scale);
+    } catch (ArithmeticException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Multiplies scaled longs exactly
+   *
+   * @return the product, or {@code null} if it cannot be represented as a scaled long
+   */
+  static DecimalFixValue multiply(FixType resultType, long mantissa1, int scale1, long mantissa2,
+      int scale2) {
+    final int scale = scale1 + scale2;
+    if (scale > MAX_SCALE) {
+      return null;
+    }
+    try {
+      return new DecimalFixValue(resultType, Math.multiplyExact(mantissa1, mantissa2), scale);
+    } catch (ArithmeticException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Subtracts scaled longs exactly
+   *
+   * @return the difference, or {@code null} if it cannot be represented as a scaled long
+   */
+  static DecimalFixValue subtract(FixType resultType, long mantissa1, int scale1, long mantissa2,
+      int scale2) {
+    try {
+      final int scale = Math.max(scale1, scale2);
+      return new DecimalFixValue(resultType, Math.subtractExact(
+          rescale(mantissa1, scale1, scale), rescale(mantissa2, scale2, scale)), scale);
+    } catch (ArithmeticException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @throws ArithmeticException if the result overflows
+   */
+  private static long rescale(long mantissa, int scale, int newScale) {
+    return scale == newScale ? mantissa
+        : Math.multiplyExact(mantissa, POWERS_OF_TEN[newScale - scale]);
+  }
+
+  private BigDecimal decimal;
+  private boolean hasValue = false;
+  private boolean isScaled = false;
+  private long mantissa;
+  private byte scale;
+
+  /**
+   * Construct an unnamed expression value
+   *
+   * @param type a FIX data type
+   * @param mantissa unscaled value
+   * @param scale number of digits to the right of the decimal point
+   */
+  public DecimalFixValue(FixType type, long mantissa, int scale) {
+    this(null, type, mantissa, scale);
+  }
+
+  /**
+   * Construct a named expression without value
+   *
+   * @param name named value
+   * @param type a FIX data type
+   */
+  public DecimalFixValue(String name, FixType type) {
+    super(name, type);
+  }
+
+  /**
+   * Construct a named expression value
+   *
+   * @param name named value
+   * @param type a FIX data type
+   * @param value value to store
+   */
+  public DecimalFixValue(String name, FixType type, BigDecimal value) {
+    super(name, type);
+    setValue(value);
+  }
+
+  /**
+   * Construct a named expression value
+   *
+   * @param name named value
+   * @param type a FIX data type
+   * @param mantissa unscaled value
+   * @param scale number of digits to the right of the decimal point
+   */
+  public DecimalFixValue(String name, FixType type, long mantissa, int scale) {
+    super(name, type);
+    setScaled(mantissa, scale);
+  }
+
+  /**
+   * @return the unscaled value. Only meaningful if {@link #isScaled()} is {@code true}.
+   */
+  public long getMantissa() {
+    return mantissa;
+  }
+
+  /**
+   * @return number of digits to the right of the decimal point. Only meaningful if
+   *         {@link #isScaled()} is {@code true}.
+   */
+  public int getScale() {
+    return scale;
+  }
+
+  @Override
+  public BigDecimal getValue() {
+    BigDecimal value = decimal;
+    if (value == null && hasValue) {
+      value = BigDecimal.valueOf(mantissa, scale);
+      decimal = value;
+    }
+    return value;
+  }
+
+  /**
+   * @return {@code true} if a value has been set
+   */
+  public boolean hasValue() {
+    return hasValue;
+  }
+
+  /**
+   * @return {@code true} if the value is held as a scaled long
+   */
+  public boolean isScaled() {
+    return isScaled;
+  }
+
+  /**
+   * Sets the value from its text representation without creating a {@code BigDecimal} if the
+   * value can be held as a scaled long
+   *
+   * @param text a decimal number, with optional sign and decimal point
+   * @throws NumberFormatException if the text is not a valid number
+   */
+  public void parse(String text) {
+    final int length = text.length();
+    int i = 0;
+    boolean isNegative = false;
+    if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+      isNegative = text.charAt(0) == '-';
+      i++;
+    }
+    long value = 0;
+    boolean hasDigits = false;
+    int digits = 0;
+    int scale = -1;
+    for (; i < length; i++) {
+      final char c = text.charAt(i);
+      if (c >= '0' && c <= '9') {
+        hasDigits = true;
+        if (value != 0 || c != '0') {
+          digits++;
+        }
+        value = value * 10 + (c - '0');
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (c == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        break;
+      }
+      if (digits > MAX_PRECISION || scale > MAX_SCALE) {
+        break;
+      }
+    }
+    if (i == length && hasDigits) {
+      setScaled(isNegative ? -value : value, Math.max(scale, 0));
+    } else {
+      // too many digits or not a plain decimal
+      setValue(new BigDecimal(text));
+    }
+  }
+
+  /**
+   * Sets the value from a scaled long
+   *
+   * @param mantissa unscaled value
+   * @param scale number of digits to the right of the decimal point
+   * @throws IllegalArgumentException if scale is out of range
+   */
+  public void setScaled(long mantissa, int scale) {
+    if (scale < 0 || scale > MAX_SCALE) {
+      throw new IllegalArgumentException("Scale out of range: " + scale);
+    }
+    this.mantissa = mantissa;
+    this.scale = (byte) scale;
+    this.isScaled = true;
+    this.hasValue = true;
+    this.decimal = null;
+  }
+
+  @Override
+  public void setValue(BigDecimal value) {
+    this.decimal = value;
+    this.hasValue = value != null;
+    this.isScaled = false;
+    if (value == null) {
+      return;
+    }
+    BigDecimal normalized = value;
+    if (normalized.scale() < 0) {
+      if (normalized.precision() - normalized.scale() > MAX_PRECISION) {
+        return;
+      }
+      normalized = normalized.setScale(0);
+    }
+    if (normalized.scale() <= MAX_SCALE && normalized.precision() <= MAX_PRECISION) {
+      this.mantissa = normalized.unscaledValue().longValue();
+      this.scale = (byte) normalized.scale();
+      this.isScaled = true;
+    }
+  }
+
+  @Override
+  Class<?> getValueClass() {
+    return hasValue ? BigDecimal.class : null;
+  }
+
+}
@@ -87,7 +87,7 @@ public class FixValue<T> implements FixNode {
       throw new ModelException(
           String.format("Data type mismatch between %s and %s", this.type, operand.getType()));
     }
-    this.value = (T) operand.getValue();
+    setValue((T) operand.getValue());
   }
 
   /*
@@ -134,6 +134,15 @@ public class FixValue<T> implements FixNode {
     return value;
   }
 
+  /**
+   * Returns the storage class of the current value without boxing it
+   * 
+   * @return class of the value, or {@code null} if no value is set
+   */
+  Class<?> getValueClass() {
+    return value != null ? value.getClass() : null;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -162,7 +171,7 @@ public class FixValue<T> implements FixNode {
   @Override
   public String toString() {
     return "FixValue [" + (name != null ? "name=" + name + ", " : "")
-        + (type != null ? "type=" + type + ", " : "") + (value != null ? "value=" + value : "")
+        + (type != null ? "type=" + type + ", " : "") + (getValue() != null ? "value=" + getValue() : "")
         + "]";
   }
 
@@ -25,6 +25,9 @@ import java.util.Objects;
  * Creates new instances of {@link FixValue} 
  * <p>
  * Workaround for Java erasure. Class of a generic must be literal.
+ * <p>
+ * Integer, character and Boolean values are created as specialized instances that store
+ * primitives.
  * 
  * @author Don Mendelson
  *
@@ -46,15 +49,15 @@ public final class FixValueFactory {
     
     switch (valueClass.getName()) {
       case "java.lang.Integer":
-        return new FixValue<Integer>(name, type);
+        return new IntFixValue(name, type);
       case "java.lang.String":
         return new FixValue<String>(name, type);
       case "java.math.BigDecimal":
         return new FixValue<BigDecimal>(name, type);
       case "java.lang.Boolean":
-        return new FixValue<Boolean>(name, type);
+        return new BooleanFixValue(name, type);
       case "java.lang.Character":
-        return new FixValue<Character>(name, type);
+        return new CharFixValue(name, type);
       case "[B":
         return new FixValue<byte []>(name, type);
       case "java.time.Instant":
@@ -83,15 +86,18 @@ public final class FixValueFactory {
     FixType type = operand.getType();
     switch (valueClassname) {
       case "java.lang.Integer":
-        return new FixValue<Integer>(name, type, (Integer)operand.getValue());
+        return new IntFixValue(name, type, (Integer)operand.getValue());
       case "java.lang.String":
         return new FixValue<String>(name, type, (String)operand.getValue());
       case "java.math.BigDecimal":
+        if (operand instanceof DecimalFixValue) {
+          return new DecimalFixValue(name, type, (BigDecimal)operand.getValue());
+        }
         return new FixValue<BigDecimal>(name, type, (BigDecimal)operand.getValue());
       case "java.lang.Boolean":
-        return new FixValue<Boolean>(name, type, (Boolean)operand.getValue());
+        return new BooleanFixValue(name, type, (Boolean)operand.getValue());
       case "java.lang.Character":
-        return new FixValue<Character>(name, type, (Character)operand.getValue());
+        return new CharFixValue(name, type, (Character)operand.getValue());
       case "[B":
         return new FixValue<byte []>(name, type, (byte [])operand.getValue());
       case "java.time.Instant":
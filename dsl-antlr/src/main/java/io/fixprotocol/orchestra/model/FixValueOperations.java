@@ -21,13 +21,23 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
 import java.time.chrono.ChronoZonedDateTime;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
 
 /**
  * Operations on {@link FixValue} 
  * <p>
+ * Binary operations are dispatched through a table indexed by the {@link FixType} and value class
+ * of each operand, computed once, so looking up an operation takes a constant number of array
+ * loads.
+ * <p>
+ * Comparisons and logical operators return the shared immutable {@link BooleanFixValue#TRUE} or
+ * {@link BooleanFixValue#FALSE}. A caller that needs to modify such a result must copy it first.
+ * <p>
  * This implementation has many workarounds for Java type erasure. If raw types are removed from
  * Java in the future as suggested, this code will break. The expectation is that change will be
  * accompanied by reified types.
@@ -36,77 +46,263 @@ import java.util.function.Function;
  */
 public class FixValueOperations {
 
-  private static class Operation extends OperationKey {
+  /**
+   * Dispatch table for one operator
+   * <p>
+   * Each operand is mapped to a slot by its FixType ordinal and the index of its value class. The
+   * table has a row for each first-operand slot that has any operation; a row is indexed by
+   * second-operand slot. Commutative operations are entered with their operands swapped, unless an
+   * operation is already defined for that order. Finally, an operation defined for base types,
+   * such as floatType, is entered for each derived type, such as Price, that has no operation of
+   * its own.
+   * <p>
+   * After an operation is found, operands that store primitives are handled without boxing. A
+   * comparison of numbers or characters returns a shared Boolean result, integer arithmetic
+   * is applied to int values, and decimal arithmetic on scaled longs is exact. If a scaled result
+   * would overflow, the operation is performed on {@code BigDecimal} instead.
+   */
+  private static final class Dispatcher {
+    private final IntPredicate comparison;
+    private final IntBinaryOperator intOperation;
+    private final ScaledOperation scaledOperation;
+    private final Operation[][] table = new Operation[SLOT_COUNT][];
+
     /**
-     * Lookup for double dispatch with swapped operands
-     * 
-     * @param key types of operands
-     * @param operations gives function to dispatch
-     * @return operation to dispatch
+     * @param operations operations for each combination of operand types
+     * @param isCommutative operands may be swapped
+     * @param comparison tests the result of comparing operands, or {@code null} if not a
+     *        comparison
+     * @param intOperation arithmetic on int operands, or {@code null} if not arithmetic
+     * @param scaledOperation exact arithmetic on scaled decimals, or {@code null} if not
+     *        supported
      */
-    static Operation commutativeMatch(OperationKey key, Operation[] operations) {
+    Dispatcher(Operation[] operations, boolean isCommutative, IntPredicate comparison,
+        IntBinaryOperator intOperation, ScaledOperation scaledOperation) {
+      this.comparison = comparison;
+      this.intOperation = intOperation;
+      this.scaledOperation = scaledOperation;
+      for (Operation operation : operations) {
+        enter(operation);
+      }
+      if (isCommutative) {
+        for (Operation operation : operations) {
+          enter(operation.swap());
+        }
+      }
       for (Operation operation : operations) {
-        if (operation.fixType1 == key.fixType2 && operation.fixType2 == key.fixType1
-            && operation.valueType1 == key.valueType2 && operation.valueType2 == key.valueType1) {
-          return operation;
+        enterDerived(operation);
+        if (isCommutative) {
+          enterDerived(operation.swap());
         }
       }
-      return null;
     }
 
-    /**
-     * Lookup for double dispatch
-     * 
-     * @param key types of operands
-     * @param operations gives function to dispatch
-     * @return operation to dispatch
-     */
-    static Operation exactMatch(OperationKey key, Operation[] operations) {
-      for (Operation operation : operations) {
-        if (operation.fixType1 == key.fixType1 && operation.fixType2 == key.fixType2
-            && operation.valueType1 == key.valueType1 && operation.valueType2 == key.valueType2) {
-          return operation;
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    FixValue<?> apply(FixValue<?> operand1, FixValue<?> operand2) {
+      Objects.requireNonNull(operand1, "Missing operand 1");
+      Objects.requireNonNull(operand2, "Missing operand 2");
+      final Operation[] row = table[slot(operand1.getType(), operand1.getValueClass())];
+      if (row == null) {
+        return null;
+      }
+      final Operation operation = row[slot(operand2.getType(), operand2.getValueClass())];
+      if (operation == null) {
+        return null;
+      }
+      if (comparison != null) {
+        final int result = comparePrimitives(operand1, operand2);
+        if (result != INCOMPARABLE) {
+          return BooleanFixValue.valueOf(comparison.test(result));
+        }
+      } else if (intOperation != null && operand1 instanceof IntFixValue
+          && operand2 instanceof IntFixValue && operation.resultValueType == Integer.class) {
+        return new IntFixValue(operation.resultType, intOperation
+            .applyAsInt(((IntFixValue) operand1).getInt(), ((IntFixValue) operand2).getInt()));
+      } else if (scaledOperation != null && operation.resultValueType == BigDecimal.class
+          && isScaled(operand1) && isScaled(operand2)) {
+        final DecimalFixValue result = scaledOperation.apply(operation.resultType,
+            mantissa(operand1), scale(operand1), mantissa(operand2), scale(operand2));
+        if (result != null) {
+          return result;
+        }
+      }
+      final Object result = operation.evaluate.apply(operand1.getValue(), operand2.getValue());
+      if (result instanceof Boolean) {
+        return BooleanFixValue.valueOf((Boolean) result);
+      }
+      return new FixValue(operation.resultType, result);
+    }
+
+    @SuppressWarnings("unchecked")
+    FixValue<Boolean> test(FixValue<?> operand1, FixValue<?> operand2) {
+      return (FixValue<Boolean>) apply(operand1, operand2);
+    }
+
+    private void enter(Operation operation) {
+      final int slot1 = slot(operation.fixType1, operation.valueType1);
+      final int slot2 = slot(operation.fixType2, operation.valueType2);
+      if (slot1 < 0 || slot2 < 0) {
+        return;
+      }
+      Operation[] row = table[slot1];
+      if (row == null) {
+        row = new Operation[SLOT_COUNT];
+        table[slot1] = row;
+      }
+      // first definition wins, as with a sequential search
+      if (row[slot2] == null) {
+        row[slot2] = operation;
+      }
+    }
+
+    private void enterDerived(Operation operation) {
+      for (FixType type1 : FIX_TYPES) {
+        if (type1.getBaseType() != operation.fixType1) {
+          continue;
+        }
+        for (FixType type2 : FIX_TYPES) {
+          if (type2.getBaseType() == operation.fixType2) {
+            enter(operation.derive(type1, type2));
+          }
         }
       }
-      return null;
     }
+  }
+
+  /**
+   * Exact arithmetic on decimals represented as scaled longs
+   */
+  @FunctionalInterface
+  private interface ScaledOperation {
+    /**
+     * @return the result, or {@code null} if it cannot be represented as a scaled long
+     */
+    DecimalFixValue apply(FixType resultType, long mantissa1, int scale1, long mantissa2,
+        int scale2);
+  }
 
+  private static class Operation {
+    final FixType fixType1;
+    final FixType fixType2;
     @SuppressWarnings("rawtypes")
-    final
-    BiFunction evaluate;
+    final BiFunction evaluate;
     final FixType resultType;
     final Class<?> resultValueType;
+    final Class<?> valueType1;
+    final Class<?> valueType2;
 
     @SuppressWarnings("rawtypes")
     Operation(FixType fixType1, FixType fixType2, FixType resultType,
               Class<?> valueType1, Class<?> valueType2,
               Class<?> resultValueType, BiFunction evaluate) {
-      super(fixType1, fixType2, valueType1, valueType2);
+      this.fixType1 = fixType1;
+      this.fixType2 = fixType2;
       this.resultType = resultType;
+      this.valueType1 = valueType1;
+      this.valueType2 = valueType2;
       this.resultValueType = resultValueType;
       this.evaluate = evaluate;
     }
-  }
 
-  private static class OperationKey {
-    final FixType fixType1;
-    final FixType fixType2;
-    final Class<?> valueType1;
-    final Class<?> valueType2;
+    /**
+     * @return the same operation applied to operands of derived types
+     */
+    Operation derive(FixType fixType1, FixType fixType2) {
+      return new Operation(fixType1, fixType2, resultType, valueType1, valueType2,
+          resultValueType, evaluate);
+    }
 
     /**
-     * @param fixType1
-     * @param fixType2
-     * @param valueType1
-     * @param valueType2
+     * @return an equivalent operation that takes its operands in reverse order
      */
-    OperationKey(FixType fixType1, FixType fixType2, Class<?> valueType1,
-        Class<?> valueType2) {
-      this.fixType1 = fixType1;
-      this.fixType2 = fixType2;
-      this.valueType1 = valueType1;
-      this.valueType2 = valueType2;
+    @SuppressWarnings("unchecked")
+    Operation swap() {
+      return new Operation(fixType2, fixType1, resultType, valueType2, valueType1,
+          resultValueType, (x, y) -> evaluate.apply(y, x));
+    }
+  }
+
+  /**
+   * Classes that may hold a value, in index order
+   */
+  private static final Class<?>[] VALUE_CLASSES = new Class<?>[] {Integer.class, BigDecimal.class,
+      Character.class, String.class, Boolean.class, Instant.class, Duration.class, LocalDate.class,
+      LocalTime.class, ZonedDateTime.class, byte[].class};
+
+  private static final ClassValue<Integer> valueClassIndex = new ClassValue<Integer>() {
+    @Override
+    protected Integer computeValue(Class<?> type) {
+      return Arrays.asList(VALUE_CLASSES).indexOf(type);
+    }
+  };
+
+  private static final FixType[] FIX_TYPES = FixType.values();
+
+  /**
+   * Returned by {@link #comparePrimitives(FixValue, FixValue)} when operands do not store
+   * comparable primitives
+   */
+  private static final int INCOMPARABLE = Integer.MIN_VALUE;
+
+  private static final int SLOT_COUNT = FixType.values().length * VALUE_CLASSES.length;
+
+  /**
+   * Compares operands that store primitives without boxing them
+   *
+   * @return negative, zero or positive as the first operand is less than, equal to or greater
+   *         than the second, or {@link #INCOMPARABLE} if either operand is not a specialized
+   *         numeric or character value
+   */
+  private static int comparePrimitives(FixValue<?> operand1, FixValue<?> operand2) {
+    if (operand1 instanceof IntFixValue) {
+      final int value1 = ((IntFixValue) operand1).getInt();
+      if (operand2 instanceof IntFixValue) {
+        return Integer.signum(Integer.compare(value1, ((IntFixValue) operand2).getInt()));
+      } else if (operand2 instanceof DecimalFixValue) {
+        return Integer.signum(DecimalFixValue.compare(value1, (DecimalFixValue) operand2));
+      }
+    } else if (operand1 instanceof DecimalFixValue) {
+      if (operand2 instanceof DecimalFixValue) {
+        return Integer.signum(
+            DecimalFixValue.compare((DecimalFixValue) operand1, (DecimalFixValue) operand2));
+      } else if (operand2 instanceof IntFixValue) {
+        return -Integer.signum(
+            DecimalFixValue.compare(((IntFixValue) operand2).getInt(), (DecimalFixValue) operand1));
+      }
+    } else if (operand1 instanceof CharFixValue && operand2 instanceof CharFixValue) {
+      return Integer.signum(
+          Character.compare(((CharFixValue) operand1).getChar(), ((CharFixValue) operand2).getChar()));
     }
+    return INCOMPARABLE;
+  }
+
+  /**
+   * @return {@code true} if an operand is an int or a decimal held as a scaled long
+   */
+  private static boolean isScaled(FixValue<?> operand) {
+    return operand instanceof IntFixValue
+        || (operand instanceof DecimalFixValue && ((DecimalFixValue) operand).isScaled());
+  }
+
+  private static long mantissa(FixValue<?> operand) {
+    return operand instanceof IntFixValue ? ((IntFixValue) operand).getInt()
+        : ((DecimalFixValue) operand).getMantissa();
+  }
+
+  private static int scale(FixValue<?> operand) {
+    return operand instanceof IntFixValue ? 0 : ((DecimalFixValue) operand).getScale();
+  }
+
+  /**
+   * @return index of a dispatch table slot, or {@code -1} if values of the class do not take
+   *         part in operations
+   */
+  private static int slot(FixType fixType, Class<?> valueClass) {
+    final int classIndex = valueClassIndex.get(valueClass);
+    if (classIndex < 0) {
+      return -1;
+    }
+    return fixType.ordinal() * VALUE_CLASSES.length + classIndex;
   }
 
   static final BiFunction<BigDecimal, BigDecimal, BigDecimal> addDecimal = BigDecimal::add;
@@ -295,531 +491,8 @@ public class FixValueOperations {
   static final BiFunction<Integer, BigDecimal, BigDecimal> subtractIntegerDecimal =
       (x, y) -> BigDecimal.valueOf(x).subtract(y);
 
-
-  /**
-   * Add operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> add =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<?>>() {
-
-        @SuppressWarnings("unchecked")
-        @Override
-        public FixValue<?> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, addOperations);
-          if (operation == null) {
-            operation = Operation.commutativeMatch(key, addOperations);
-            swapOperands = true;
-          }
-          if (operation == null) {
-            return null;
-          }
-
-          @SuppressWarnings("rawtypes")
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand2.getValue()),
-                      operation.valueType2.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Logical and operator
-   */
-  public final BiFunction<FixValue<Boolean>, FixValue<Boolean>, FixValue<Boolean>> and =
-          (operand1, operand2) -> {
-            Objects.requireNonNull(operand1, "Missing operand 1");
-            Objects.requireNonNull(operand2, "Missing operand 2");
-
-            FixValue<Boolean> result;
-            try {
-              result = FixValueFactory.create(null, FixType.BooleanType, Boolean.class);
-
-              result.setValue(operand1.getValue() && operand2.getValue());
-              return result;
-            } catch (ModelException e) {
-              return null;
-            }
-          };
-
-  /**
-   * Divide operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> divide =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<?>>() {
-
-        @SuppressWarnings("unchecked")
-        @Override
-        public FixValue<?> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, divideOperations);
-          if (operation == null) {
-            return null;
-          }
-
-          @SuppressWarnings("rawtypes")
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Equality operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> eq =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>>() {
-
-        @SuppressWarnings("unchecked")
-        @Override
-        public FixValue<Boolean> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, eqOperations);
-          if (operation == null) {
-            operation = Operation.commutativeMatch(key, addOperations);
-            swapOperands = true;
-          }
-          if (operation == null) {
-            return null;
-          }
-
-          @SuppressWarnings("rawtypes")
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Greater-than-or-equal operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> ge =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>>() {
-
-        @SuppressWarnings("unchecked")
-        @Override
-        public FixValue<Boolean> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, geOperations);
-          if (operation == null) {
-            return null;
-          }
-
-          @SuppressWarnings("rawtypes")
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Greater-than operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> gt =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>>() {
-
-        @SuppressWarnings({"rawtypes", "unchecked"})
-        @Override
-        public FixValue<Boolean> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, gtOperations);
-          if (operation == null) {
-            return null;
-          }
-
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Less-than-or-equal operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> le =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>>() {
-
-        @SuppressWarnings({"rawtypes", "unchecked"})
-        @Override
-        public FixValue<Boolean> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, leOperations);
-          if (operation == null) {
-            return null;
-          }
-
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Less-than operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> lt =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>>() {
-
-        @SuppressWarnings({"rawtypes", "unchecked"})
-        @Override
-        public FixValue<Boolean> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, ltOperations);
-          if (operation == null) {
-            return null;
-          }
-
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Modulus operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> mod =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<?>>() {
-
-        @SuppressWarnings({"rawtypes", "unchecked"})
-        @Override
-        public FixValue<?> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, modOperations);
-          if (operation == null) {
-            return null;
-          }
-
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Multiply operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> multiply =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<?>>() {
-
-        @SuppressWarnings({"rawtypes", "unchecked"})
-        @Override
-        public FixValue<?> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, multiplyOperations);
-          if (operation == null) {
-            operation = Operation.commutativeMatch(key, multiplyOperations);
-            swapOperands = true;
-          }
-          if (operation == null) {
-            return null;
-          }
-
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand2.getValue()),
-                      operation.valueType2.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Not-equal operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> ne =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>>() {
-
-        @SuppressWarnings({"rawtypes", "unchecked"})
-        @Override
-        public FixValue<Boolean> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, neOperations);
-          if (operation == null) {
-            return null;
-          }
-
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
-  /**
-   * Logical-not unary operator
-   */
-  public final Function<FixValue<Boolean>, FixValue<Boolean>> not =
-          operand1 -> {
-            Objects.requireNonNull(operand1, "Missing operand 1");
-            FixValue<Boolean> result;
-            try {
-              result = FixValueFactory.create(null, FixType.BooleanType, Boolean.class);
-
-              result.setValue(!operand1.getValue());
-              return result;
-            } catch (ModelException e) {
-              return null;
-            }
-          };
-
-  /**
-   * Logical or operator
-   */
-  public final BiFunction<FixValue<Boolean>, FixValue<Boolean>, FixValue<Boolean>> or =
-          (operand1, operand2) -> {
-            Objects.requireNonNull(operand1, "Missing operand 1");
-            Objects.requireNonNull(operand2, "Missing operand 2");
-
-            FixValue<Boolean> result;
-            try {
-              result = FixValueFactory.create(null, FixType.BooleanType, Boolean.class);
-
-              result.setValue(operand1.getValue() || operand2.getValue());
-              return result;
-            } catch (ModelException e) {
-              return null;
-            }
-          };
-
-  /**
-   * Subtract operator
-   */
-  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> subtract =
-      new BiFunction<FixValue<?>, FixValue<?>, FixValue<?>>() {
-
-        @SuppressWarnings({"rawtypes", "unchecked"})
-        @Override
-        public FixValue<?> apply(FixValue<?> operand1, FixValue<?> operand2) {
-          Objects.requireNonNull(operand1, "Missing operand 1");
-          Objects.requireNonNull(operand2, "Missing operand 2");
-
-          OperationKey key = new OperationKey(operand1.getType(), operand2.getType(),
-              operand1.getValue().getClass(), operand2.getValue().getClass());
-
-          boolean swapOperands = false;
-          Operation operation = Operation.exactMatch(key, subtractOperations);
-          if (operation == null) {
-            return null;
-          }
-
-          FixValue result;
-          try {
-            result = FixValueFactory.create(null, operation.resultType, operation.resultValueType);
-
-            if (swapOperands) {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType2.cast(operand2.getValue()),
-                      operation.valueType1.cast(operand1.getValue()))));
-            } else {
-              result.setValue(operation.resultValueType
-                  .cast(operation.evaluate.apply(operation.valueType1.cast(operand1.getValue()),
-                      operation.valueType2.cast(operand2.getValue()))));
-            }
-            return result;
-          } catch (ModelException e) {
-            return null;
-          }
-        }
-      };
-
   // By listing all combinations, the need for separate data type promotion or cast logic is avoided
-  private final Operation[] addOperations = new Operation[] {
+  private static final Operation[] addOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.intType, Integer.class, Integer.class,
           Integer.class, addInteger),
       new Operation(FixType.Qty, FixType.Qty, FixType.Qty, Integer.class, Integer.class,
@@ -837,7 +510,7 @@ public class FixValueOperations {
       new Operation(FixType.UTCTimestamp, FixType.Duration, FixType.UTCTimestamp, Instant.class,
           Duration.class, Instant.class, addDuration),};
 
-  private final Operation[] divideOperations = new Operation[] {
+  private static final Operation[] divideOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.intType, Integer.class, Integer.class,
           Integer.class, divideInteger),
       new Operation(FixType.floatType, FixType.floatType, FixType.floatType, BigDecimal.class,
@@ -853,7 +526,7 @@ public class FixValueOperations {
       new Operation(FixType.Duration, FixType.intType, FixType.Duration, Instant.class,
           Duration.class, Instant.class, divideDuration),};
 
-  private final Operation[] eqOperations = new Operation[] {
+  private static final Operation[] eqOperations = new Operation[] {
       new Operation(FixType.charType, FixType.charType, FixType.BooleanType, Character.class,
           Character.class, Boolean.class, eqCharacter),
       new Operation(FixType.StringType, FixType.StringType, FixType.BooleanType, String.class,
@@ -887,7 +560,7 @@ public class FixValueOperations {
       new Operation(FixType.TZTimestamp, FixType.TZTimestamp, FixType.BooleanType,
           ZonedDateTime.class, ZonedDateTime.class, Boolean.class, eqZonedDateTime),};
 
-  private final Operation[] geOperations = new Operation[] {
+  private static final Operation[] geOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.BooleanType, Integer.class,
           Integer.class, Boolean.class, geInteger),
       new Operation(FixType.floatType, FixType.floatType, FixType.BooleanType, BigDecimal.class,
@@ -907,7 +580,7 @@ public class FixValueOperations {
       new Operation(FixType.TZTimestamp, FixType.TZTimestamp, FixType.BooleanType,
           ZonedDateTime.class, ZonedDateTime.class, Boolean.class, geZonedDateTime),};
 
-  private final Operation[] gtOperations = new Operation[] {
+  private static final Operation[] gtOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.BooleanType, Integer.class,
           Integer.class, Boolean.class, gtInteger),
       new Operation(FixType.floatType, FixType.floatType, FixType.BooleanType, BigDecimal.class,
@@ -927,7 +600,7 @@ public class FixValueOperations {
       new Operation(FixType.TZTimestamp, FixType.TZTimestamp, FixType.BooleanType,
           ZonedDateTime.class, ZonedDateTime.class, Boolean.class, gtZonedDateTime),};
 
-  private final Operation[] leOperations = new Operation[] {
+  private static final Operation[] leOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.BooleanType, Integer.class,
           Integer.class, Boolean.class, leInteger),
       new Operation(FixType.floatType, FixType.floatType, FixType.BooleanType, BigDecimal.class,
@@ -948,7 +621,7 @@ public class FixValueOperations {
           ZonedDateTime.class, ZonedDateTime.class, Boolean.class, leZonedDateTime),};
 
 
-  private final Operation[] ltOperations = new Operation[] {
+  private static final Operation[] ltOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.BooleanType, Integer.class,
           Integer.class, Boolean.class, ltInteger),
       new Operation(FixType.floatType, FixType.floatType, FixType.BooleanType, BigDecimal.class,
@@ -968,13 +641,13 @@ public class FixValueOperations {
       new Operation(FixType.TZTimestamp, FixType.TZTimestamp, FixType.BooleanType,
           ZonedDateTime.class, ZonedDateTime.class, Boolean.class, ltZonedDateTime),};
 
-  private final Operation[] modOperations = new Operation[] {
+  private static final Operation[] modOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.intType, Integer.class, Integer.class,
           Integer.class, modInteger),
       new Operation(FixType.floatType, FixType.floatType, FixType.floatType, BigDecimal.class,
           BigDecimal.class, Integer.class, modDecimal),};
 
-  private final Operation[] multiplyOperations = new Operation[] {
+  private static final Operation[] multiplyOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.intType, Integer.class, Integer.class,
           Integer.class, multiplyInteger),
       new Operation(FixType.floatType, FixType.floatType, FixType.floatType, BigDecimal.class,
@@ -986,7 +659,7 @@ public class FixValueOperations {
       new Operation(FixType.Qty, FixType.Price, FixType.Amt, BigDecimal.class, BigDecimal.class,
           BigDecimal.class, multiplyIntegerDecimal),};
 
-  private final Operation[] neOperations = new Operation[] {
+  private static final Operation[] neOperations = new Operation[] {
       new Operation(FixType.charType, FixType.charType, FixType.BooleanType, Character.class,
           Character.class, Boolean.class, neCharacter),
       new Operation(FixType.StringType, FixType.StringType, FixType.BooleanType, String.class,
@@ -1011,7 +684,7 @@ public class FixValueOperations {
           ZonedDateTime.class, ZonedDateTime.class, Boolean.class, neZonedDateTime),};
 
 
-  private final Operation[] subtractOperations = new Operation[] {
+  private static final Operation[] subtractOperations = new Operation[] {
       new Operation(FixType.intType, FixType.intType, FixType.intType, Integer.class, Integer.class,
           Integer.class, subtractInteger),
       new Operation(FixType.Qty, FixType.Qty, FixType.Qty, Integer.class, Integer.class,
@@ -1030,4 +703,113 @@ public class FixValueOperations {
           Integer.class, BigDecimal.class, subtractDecimalInteger),
       new Operation(FixType.UTCTimestamp, FixType.Duration, FixType.UTCTimestamp, Instant.class,
           Duration.class, Instant.class, subtractDuration),};
+
+  private static final Dispatcher addDispatcher = new Dispatcher(addOperations, true,
+      null, (x, y) -> x + y, DecimalFixValue::add);
+  private static final Dispatcher divideDispatcher = new Dispatcher(divideOperations,
+      false, null, (x, y) -> x / y, null);
+  private static final Dispatcher eqDispatcher = new Dispatcher(eqOperations, true,
+      c -> c == 0, null, null);
+  private static final Dispatcher geDispatcher = new Dispatcher(geOperations, false,
+      c -> c >= 0, null, null);
+  private static final Dispatcher gtDispatcher = new Dispatcher(gtOperations, false,
+      c -> c > 0, null, null);
+  private static final Dispatcher leDispatcher = new Dispatcher(leOperations, false,
+      c -> c <= 0, null, null);
+  private static final Dispatcher ltDispatcher = new Dispatcher(ltOperations, false,
+      c -> c < 0, null, null);
+  private static final Dispatcher modDispatcher = new Dispatcher(modOperations, false,
+      null, (x, y) -> x % y, null);
+  private static final Dispatcher multiplyDispatcher = new Dispatcher(multiplyOperations,
+      true, null, (x, y) -> x * y, DecimalFixValue::multiply);
+  private static final Dispatcher neDispatcher = new Dispatcher(neOperations, true,
+      c -> c != 0, null, null);
+  private static final Dispatcher subtractDispatcher = new Dispatcher(subtractOperations,
+      false, null, (x, y) -> x - y, DecimalFixValue::subtract);
+
+  /**
+   * Add operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> add = addDispatcher::apply;
+
+  /**
+   * Logical and operator
+   */
+  public final BiFunction<FixValue<Boolean>, FixValue<Boolean>, FixValue<Boolean>> and =
+          (operand1, operand2) -> {
+            Objects.requireNonNull(operand1, "Missing operand 1");
+            Objects.requireNonNull(operand2, "Missing operand 2");
+            return BooleanFixValue.valueOf(operand1.getValue() && operand2.getValue());
+          };
+
+  /**
+   * Divide operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> divide = divideDispatcher::apply;
+
+  /**
+   * Equality operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> eq = eqDispatcher::test;
+
+  /**
+   * Greater-than-or-equal operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> ge = geDispatcher::test;
+
+  /**
+   * Greater-than operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> gt = gtDispatcher::test;
+
+  /**
+   * Less-than-or-equal operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> le = leDispatcher::test;
+
+  /**
+   * Less-than operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> lt = ltDispatcher::test;
+
+  /**
+   * Modulus operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> mod = modDispatcher::apply;
+
+  /**
+   * Multiply operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> multiply =
+      multiplyDispatcher::apply;
+
+  /**
+   * Not-equal operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<Boolean>> ne = neDispatcher::test;
+
+  /**
+   * Logical-not unary operator
+   */
+  public final Function<FixValue<Boolean>, FixValue<Boolean>> not =
+          operand1 -> {
+            Objects.requireNonNull(operand1, "Missing operand 1");
+            return BooleanFixValue.valueOf(!operand1.getValue());
+          };
+
+  /**
+   * Logical or operator
+   */
+  public final BiFunction<FixValue<Boolean>, FixValue<Boolean>, FixValue<Boolean>> or =
+          (operand1, operand2) -> {
+            Objects.requireNonNull(operand1, "Missing operand 1");
+            Objects.requireNonNull(operand2, "Missing operand 2");
+            return BooleanFixValue.valueOf(operand1.getValue() || operand2.getValue());
+          };
+
+  /**
+   * Subtract operator
+   */
+  public final BiFunction<FixValue<?>, FixValue<?>, FixValue<?>> subtract =
+      subtractDispatcher::apply;
 }
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+/**
+ * A {@link FixValue} that stores an int without boxing
+ * <p>
+ * Numeric operations in {@link FixValueOperations} use the primitive value directly when both
+ * operands are specialized.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class IntFixValue extends FixValue<Integer> {
+
+  private boolean hasValue = false;
+  private int value;
+
+  /**
+   * Construct an unnamed expression value
+   *
+   * @param type a FIX data type
+   * @param value value to store
+   */
+  public IntFixValue(FixType type, int value) {
+    this(null, type, value);
+  }
+
+  /**
+   * Construct a named expression without value
+   *
+   * @param name named value
+   * @param type a FIX data type
+   */
+  public IntFixValue(String name, FixType type) {
+    super(name, type);
+  }
+
+  /**
+   * Construct a named expression value
+   *
+   * @param name named value
+   * @param type a FIX data type
+   * @param value value to store
+   */
+  public IntFixValue(String name, FixType type, int value) {
+    super(name, type);
+    setInt(value);
+  }
+
+  /**
+   * @return the value as a primitive. Only meaningful if {@link #hasValue()} is {@code true}.
+   */
+  public int getInt() {
+    return value;
+  }
+
+  @Override
+  public Integer getValue() {
+    return hasValue ? value : null;
+  }
+
+  /**
+   * @return {@code true} if a value has been set
+   */
+  public boolean hasValue() {
+    return hasValue;
+  }
+
+  /**
+   * @param value the value to set
+   */
+  public void setInt(int value) {
+    this.value = value;
+    this.hasValue = true;
+  }
+
+  @Override
+  public void setValue(Integer value) {
+    if (value != null) {
+      setInt(value);
+    } else {
+      this.hasValue = false;
+    }
+  }
+
+  @Override
+  Class<?> getValueClass() {
+    return hasValue ? Integer.class : null;
+  }
+
+}
@@ -65,6 +65,13 @@ public class LocalScope extends AbstractScope {
     }
   }
 
+  /**
+   * @return the innermost local scope, or {@code null} if none is nested
+   */
+  public Scope current() {
+    return stack.peekFirst();
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+/**
+ * A path bound to an element of a structure by {@link BindableScope#bind(PathStep[])}
+ *
+ * @author Don Mendelson
+ *
+ */
+public interface PathBinding {
+
+  /**
+   * Assigns a value to the bound element
+   *
+   * @param scope a Scope with the structure that the path was bound to
+   * @param value new value
+   * @return the assigned value, or {@code null} if the element cannot be assigned
+   * @throws ModelException if a type conflict occurs
+   */
+  FixValue<?> assign(BindableScope scope, FixValue<?> value) throws ModelException;
+
+  /**
+   * Resolves the bound element
+   *
+   * @param scope a Scope with the structure that the path was bound to
+   * @return a value or nested Scope, or {@code null} if not found
+   */
+  FixNode resolve(BindableScope scope);
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bindings of one path to the structures of the Scopes in which it has been resolved
+ * <p>
+ * A path is bound the first time that it is resolved in a structure, and the binding is reused
+ * thereafter. This class is thread-safe.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class PathBindings {
+
+  /**
+   * Marks a structure in which the path cannot be bound
+   */
+  private static final PathBinding UNBOUND = new PathBinding() {
+
+    @Override
+    public FixValue<?> assign(BindableScope scope, FixValue<?> value) {
+      return null;
+    }
+
+    @Override
+    public FixNode resolve(BindableScope scope) {
+      return null;
+    }
+  };
+
+  private final ConcurrentMap<Object, PathBinding> bindings = new ConcurrentHashMap<>();
+  private final PathStep[] steps;
+
+  /**
+   * Constructor
+   *
+   * @param steps path relative to a root Scope
+   */
+  public PathBindings(PathStep[] steps) {
+    this.steps = steps;
+  }
+
+  /**
+   * Returns the binding of the path to the structure of a Scope, binding it on first request
+   *
+   * @param scope root of the path
+   * @return a binding, or {@code null} if the Scope is not bindable or the path cannot be bound
+   */
+  public PathBinding get(Scope scope) {
+    if (!(scope instanceof BindableScope)) {
+      return null;
+    }
+    final BindableScope bindable = (BindableScope) scope;
+    final Object structure = bindable.getStructure();
+    PathBinding binding = bindings.get(structure);
+    if (binding == null) {
+      binding = bindable.bind(steps);
+      if (binding == null) {
+        binding = UNBOUND;
+      }
+      bindings.putIfAbsent(structure, binding);
+    }
+    return binding != UNBOUND ? binding : null;
+  }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+import java.util.Arrays;
+
+/**
+ * Interns symbol names to small integer ids
+ * <p>
+ * Ids are dense and start at zero, so a symbol table may hold its entries in an array indexed by
+ * id. An id is never reassigned, so the table is shared by all symbol tables in the JVM and holds
+ * each distinct name that has been interned. Lookups do not lock or allocate, and may search for a
+ * name that is a suffix of a longer string, such as the name of a qualified variable. Interning
+ * takes amortized constant time. This class is thread-safe.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class SymbolIds {
+
+  /**
+   * Id returned by a lookup of a name that has not been interned
+   */
+  public static final int NO_SYMBOL = -1;
+
+  /**
+   * An interned name with its id. Its fields are final, so a reader that finds an entry in a table
+   * sees them fully initialized.
+   */
+  private static final class Entry {
+    final int id;
+    final String name;
+
+    Entry(String name, int id) {
+      this.name = name;
+      this.id = id;
+    }
+  }
+
+  /**
+   * An open-addressed hash table. Entries are added in place under a lock, and the table is
+   * republished after each addition. It is replaced by one of twice the capacity when it becomes
+   * half full.
+   */
+  private static final class Table {
+    int count;
+    String[] names;
+    final Entry[] slots;
+
+    Table(int capacity, String[] names, int count) {
+      slots = new Entry[capacity];
+      this.names = names;
+      this.count = count;
+    }
+  }
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private static volatile Table table =
+      new Table(INITIAL_CAPACITY, new String[INITIAL_CAPACITY / 2], 0);
+
+  /**
+   * Returns the id of a name, assigning a new id if the name has not been interned
+   *
+   * @param name a symbol name
+   * @return id of the name
+   */
+  public static int intern(String name) {
+    final int id = lookup(name);
+    if (id != NO_SYMBOL) {
+      return id;
+    }
+    synchronized (SymbolIds.class) {
+      Table current = table;
+      final int existing = lookup(current, name, 0, name.hashCode());
+      if (existing != NO_SYMBOL) {
+        return existing;
+      }
+      final int newId = current.count;
+      if ((newId + 1) * 2 > current.slots.length) {
+        final Table next = new Table(current.slots.length * 2,
+            Arrays.copyOf(current.names, current.slots.length), newId);
+        for (Entry entry : current.slots) {
+          if (entry != null) {
+            insert(next, entry);
+          }
+        }
+        current = next;
+      }
+      current.names[newId] = name;
+      insert(current, new Entry(name, newId));
+      current.count = newId + 1;
+      // republish so that readers see the new entry and name
+      table = current;
+      return newId;
+    }
+  }
+
+  /**
+   * Returns the id of a name without interning it
+   *
+   * @param name a symbol name
+   * @return id of the name, or {@link #NO_SYMBOL} if it has not been interned
+   */
+  public static int lookup(String name) {
+    return lookup(table, name, 0, name.hashCode());
+  }
+
+  /**
+   * Returns the id of the name that is the suffix of a string starting at an offset, without
+   * interning it or allocating a substring
+   *
+   * @param text a string that contains a symbol name
+   * @param offset position of the name in the string
+   * @return id of the name, or {@link #NO_SYMBOL} if it has not been interned
+   */
+  public static int lookup(String text, int offset) {
+    int hash = 0;
+    for (int i = offset; i < text.length(); i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+    return lookup(table, text, offset, hash);
+  }
+
+  /**
+   * @param id a symbol id
+   * @return the name with the id, or {@code null} if no name has the id
+   */
+  public static String nameOf(int id) {
+    final String[] names = table.names;
+    return id >= 0 && id < names.length ? names[id] : null;
+  }
+
+  private static void insert(Table table, Entry entry) {
+    final Entry[] slots = table.slots;
+    final int mask = slots.length - 1;
+    int i = spread(entry.name.hashCode()) & mask;
+    while (slots[i] != null) {
+      i = (i + 1) & mask;
+    }
+    slots[i] = entry;
+  }
+
+  private static int lookup(Table table, String text, int offset, int hash) {
+    final Entry[] slots = table.slots;
+    final int length = text.length() - offset;
+    final int mask = slots.length - 1;
+    int i = spread(hash) & mask;
+    Entry entry;
+    while ((entry = slots[i]) != null) {
+      final String key = entry.name;
+      if (key.length() == length && key.regionMatches(0, text, offset, length)) {
+        return entry.id;
+      }
+      i = (i + 1) & mask;
+    }
+    return NO_SYMBOL;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private SymbolIds() {
+
+  }
+}
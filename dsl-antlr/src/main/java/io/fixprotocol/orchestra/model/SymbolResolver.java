@@ -37,6 +37,11 @@ public class SymbolResolver extends TreeSymbolTable {
    */
   public static final PathStep LOCAL_ROOT = new PathStep("this.");
 
+  private static final int LOCAL_ID = SymbolIds.intern(LOCAL_ROOT.getName());
+  private static final int VARIABLE_ID = SymbolIds.intern(VARIABLE_ROOT.getName());
+
+  private boolean isScaledDecimals = false;
+
   /**
    * Constructor
    */
@@ -50,13 +55,20 @@ public class SymbolResolver extends TreeSymbolTable {
   public FixValue<?> assign(PathStep pathStep, FixValue<?> value) throws ModelException {
     String pathName = pathStep.getName();
     if (pathName.startsWith("$")) {
-      final Scope variables = (Scope) super.resolve(VARIABLE_ROOT);
+      final Scope variables = (Scope) super.resolve(VARIABLE_ID);
+      if (variables instanceof TreeSymbolTable && isSimple(pathStep)) {
+        int id = SymbolIds.lookup(pathName, 1);
+        if (id == SymbolIds.NO_SYMBOL) {
+          id = SymbolIds.intern(pathName.substring(1));
+        }
+        return ((TreeSymbolTable) variables).assign(id, value);
+      }
       final PathStep vPathStep = new PathStep(pathName.substring(1));
       vPathStep.setIndex(pathStep.getIndex());
       vPathStep.setPredicate(pathStep.getPredicate());
       return variables.assign(vPathStep, value);
     } else if (pathName.startsWith("this.")) {
-      final Scope variables = (Scope) super.resolve(LOCAL_ROOT);
+      final Scope variables = (Scope) super.resolve(LOCAL_ID);
       final PathStep vPathStep = new PathStep(pathName.substring(5));
       vPathStep.setIndex(pathStep.getIndex());
       vPathStep.setPredicate(pathStep.getPredicate());
@@ -66,6 +78,14 @@ public class SymbolResolver extends TreeSymbolTable {
     }
   }
 
+  /**
+   * @return {@code true} if decimal message fields are represented as scaled longs
+   * @see #setScaledDecimals(boolean)
+   */
+  public boolean isScaledDecimals() {
+    return isScaledDecimals;
+  }
+
   /**
    * Implicit top level scope is 'this.'
    */
@@ -74,25 +94,56 @@ public class SymbolResolver extends TreeSymbolTable {
     FixNode node = null;
     String pathName = pathStep.getName();
     if (pathName.length() > 1 && pathName.startsWith(VARIABLE_ROOT.getName())) {
-      final Scope variables = (Scope) super.resolve(VARIABLE_ROOT);
-      final PathStep vPathStep = new PathStep(pathName.substring(1));
-      vPathStep.setIndex(pathStep.getIndex());
-      vPathStep.setPredicate(pathStep.getPredicate());
-      node = variables.resolve(vPathStep);
+      node = resolveQualified((Scope) super.resolve(VARIABLE_ID), pathStep, 1);
     } else if (pathName.length() > 5 && pathName.startsWith(LOCAL_ROOT.getName())) {
-      final Scope variables = (Scope) super.resolve(LOCAL_ROOT);
-      final PathStep vPathStep = new PathStep(pathName.substring(5));
-      vPathStep.setIndex(pathStep.getIndex());
-      vPathStep.setPredicate(pathStep.getPredicate());
-      node = variables.resolve(vPathStep);
+      node = resolveQualified((Scope) super.resolve(LOCAL_ID), pathStep, 5);
     } else {
       node = super.resolve(pathStep);
     }
     // If unqualified, try in local scope
     if (node == null) {
-      final Scope local = (Scope) super.resolve(LOCAL_ROOT);
+      final Scope local = (Scope) super.resolve(LOCAL_ID);
       node = local.resolve(pathStep);
     }
     return node;
   }
+
+  private static boolean isSimple(PathStep pathStep) {
+    return pathStep.getIndex() == PathStep.NO_INDEX && pathStep.getPredicate() == null;
+  }
+
+  /**
+   * Resolves a name qualified by a root scope. A simple name is resolved by symbol id without
+   * allocating a path step.
+   */
+  private static FixNode resolveQualified(Scope scope, PathStep pathStep, int prefixLength) {
+    Scope target = scope;
+    if (target instanceof LocalScope) {
+      target = ((LocalScope) target).current();
+      if (target == null) {
+        return null;
+      }
+    }
+    final String pathName = pathStep.getName();
+    if (target instanceof TreeSymbolTable && isSimple(pathStep)) {
+      return ((TreeSymbolTable) target).resolve(SymbolIds.lookup(pathName, prefixLength));
+    }
+    final PathStep vPathStep = new PathStep(pathName.substring(prefixLength));
+    vPathStep.setIndex(pathStep.getIndex());
+    vPathStep.setPredicate(pathStep.getPredicate());
+    return target.resolve(vPathStep);
+  }
+
+  /**
+   * Selects the representation of decimal message fields, such as Price, Qty and Amt
+   * <p>
+   * When enabled, scopes that resolve message fields create {@link DecimalFixValue} instances,
+   * which hold a long mantissa and a scale and compare without allocating. Values that do not fit
+   * are held as {@code BigDecimal}, so results are the same either way. Disabled by default.
+   * 
+   * @param isScaledDecimals {@code true} to represent decimals as scaled longs
+   */
+  public void setScaledDecimals(boolean isScaledDecimals) {
+    this.isScaledDecimals = isScaledDecimals;
+  }
 }
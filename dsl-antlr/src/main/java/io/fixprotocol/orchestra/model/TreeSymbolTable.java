@@ -14,11 +14,13 @@
  */
 package io.fixprotocol.orchestra.model;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * A flat symbol space. The only key is name.
+ * <p>
+ * Names are interned by {@link SymbolIds}, and entries are held in an array indexed by symbol id,
+ * so a symbol may be resolved or assigned by id without searching.
  * 
  * @author Don Mendelson
  *
@@ -27,7 +29,7 @@ public class TreeSymbolTable extends AbstractScope {
 
   private final String name;
   private Scope parent;
-  private final Map<String, FixNode> symbols = new HashMap<>();
+  private FixNode[] symbols = new FixNode[16];
   
   /**
    * Constructor
@@ -40,16 +42,29 @@ public class TreeSymbolTable extends AbstractScope {
 
   @Override
   public FixValue<?> assign(PathStep pathStep, FixValue<?> value) throws ModelException {
-    FixNode node = symbols.get(pathStep.getName());
+    return assign(SymbolIds.intern(pathStep.getName()), value);
+  }
+
+  /**
+   * If the symbol already exists, assign it to the new value. Otherwise, insert the value in the
+   * table.
+   *
+   * @param id symbol id assigned by {@link SymbolIds#intern(String)}
+   * @param value new value to assign or insert
+   * @return the assigned value
+   * @throws ModelException if a nested Scope exists with the same name
+   */
+  public FixValue<?> assign(int id, FixValue<?> value) throws ModelException {
+    FixNode node = resolve(id);
     if (node instanceof FixValue) {
       FixValue<?> val = (FixValue<?>) node;
       val.assign(value);
       return val;
     } else if (node == null) {
-      symbols.put(pathStep.getName(), value);
+      put(id, value);
       return value;
     } else {
-      throw new ModelException("FixNode already exists named " + pathStep.getName());
+      throw new ModelException("FixNode already exists named " + SymbolIds.nameOf(id));
     }
   }
 
@@ -70,20 +85,34 @@ public class TreeSymbolTable extends AbstractScope {
 
   @Override
   public Scope nest(PathStep pathStep, Scope nested) {
-    symbols.put(pathStep.getName(), nested);
+    put(SymbolIds.intern(pathStep.getName()), nested);
     traceNest(pathStep, nested);
     return nested;
   }
 
   public FixNode remove(PathStep pathStep) {
-    FixNode removed = symbols.remove(pathStep.getName());
+    final int id = SymbolIds.lookup(pathStep.getName());
+    FixNode removed = resolve(id);
+    if (removed != null) {
+      symbols[id] = null;
+    }
     traceRemove(pathStep, removed);
     return removed;
   }
 
   @Override
   public FixNode resolve(PathStep pathStep) {
-    return symbols.get(pathStep.getName());
+    return resolve(SymbolIds.lookup(pathStep.getName()));
+  }
+
+  /**
+   * Search for a symbol by id
+   *
+   * @param id symbol id assigned by {@link SymbolIds#intern(String)}
+   * @return a value or nested Scope if found or {@code null} if not found
+   */
+  public FixNode resolve(int id) {
+    return id >= 0 && id < symbols.length ? symbols[id] : null;
   }
   
   /* (non-Javadoc)
@@ -99,9 +128,26 @@ public class TreeSymbolTable extends AbstractScope {
    */
   @Override
   public String toString() {
+    final StringBuilder sb = new StringBuilder("{");
+    for (int id = 0; id < symbols.length; id++) {
+      if (symbols[id] != null) {
+        if (sb.length() > 1) {
+          sb.append(", ");
+        }
+        sb.append(SymbolIds.nameOf(id)).append('=').append(symbols[id]);
+      }
+    }
+    sb.append('}');
     return "TreeSymbolTable [" + (name != null ? "name=" + name + ", " : "")
         + (parent != null ? "parent=" + parent + ", " : "")
-        +  "symbols=" + symbols  + "]";
+        +  "symbols=" + sb  + "]";
+  }
+
+  private void put(int id, FixNode node) {
+    if (id >= symbols.length) {
+      symbols = Arrays.copyOf(symbols, Math.max(id + 1, symbols.length * 2));
+    }
+    symbols[id] = node;
   }
 
 }
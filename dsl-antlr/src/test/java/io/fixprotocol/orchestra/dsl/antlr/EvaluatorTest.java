@@ -0,0 +1,208 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+import io.fixprotocol.orchestra.model.TreeSymbolTable;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class EvaluatorTest {
+
+  private ExpressionCache cache;
+  private Evaluator evaluator;
+  private SymbolResolver symbolResolver;
+
+  @Before
+  public void setUp() throws Exception {
+    symbolResolver = new SymbolResolver();
+    cache = new ExpressionCache(2);
+    evaluator = new Evaluator(symbolResolver, null, cache);
+  }
+
+  @Test
+  public void compileOnce() throws Exception {
+    CompiledExpression first = evaluator.compile("$x > 10");
+    CompiledExpression second = evaluator.compile("$x > 10");
+    assertSame(first, second);
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  public void evaluateMany() throws Exception {
+    CompiledExpression expression = evaluator.compile("$x > 10");
+    symbolResolver.assign(new PathStep("$x"), new FixValue<Integer>("x", FixType.intType, 11));
+    assertEquals(Boolean.TRUE, evaluator.evaluate(expression).getValue());
+    symbolResolver.assign(new PathStep("$x"), new FixValue<Integer>("x", FixType.intType, 9));
+    assertEquals(Boolean.FALSE, evaluator.evaluate(expression).getValue());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void resultIsModifiable() throws Exception {
+    CompiledExpression expression = evaluator.compile("$x > 10");
+    symbolResolver.assign(new PathStep("$x"), new FixValue<Integer>("x", FixType.intType, 11));
+    FixValue<Boolean> result = (FixValue<Boolean>) evaluator.evaluate(expression);
+    result.setValue(Boolean.FALSE);
+    // the shared result of the comparison is not changed
+    assertEquals(Boolean.TRUE, evaluator.evaluate(expression).getValue());
+    assertTrue(evaluator.test(expression));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void referenceIsModifiable() throws Exception {
+    symbolResolver.assign(new PathStep("$x"), new FixValue<Integer>("x", FixType.intType, 11));
+    FixValue<Integer> result = (FixValue<Integer>) evaluator.evaluate("$x");
+    result.setValue(9);
+    // the variable held by the symbol table is not changed
+    assertEquals(Integer.valueOf(11), evaluator.evaluate("$x").getValue());
+  }
+
+  @Test
+  public void evict() throws Exception {
+    CompiledExpression first = evaluator.compile("1 + 1");
+    evaluator.compile("2 + 2");
+    // touch first so that second is least recently used
+    evaluator.compile("1 + 1");
+    evaluator.compile("3 + 3");
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertSame(first, evaluator.compile("1 + 1"));
+    assertEquals(2, cache.getHits());
+  }
+
+  @Test
+  public void noCache() throws Exception {
+    Evaluator uncached = new Evaluator(symbolResolver, null, null);
+    assertNotSame(uncached.compile("1 + 1"), uncached.compile("1 + 1"));
+    assertEquals(2, uncached.evaluate("1 + 1").getValue());
+  }
+
+  @Test
+  public void normalizedText() throws Exception {
+    final CompiledExpression compact = evaluator.compile("$x>10 and in.Side==^Buy");
+    final CompiledExpression spaced = evaluator.compile(" $x  >  10  and in.Side == ^Buy ");
+    assertNotSame(compact, spaced);
+    assertEquals(compact.getNormalizedText(), spaced.getNormalizedText());
+    assertTrue(compact.getScopes().contains("$"));
+    assertTrue(compact.getScopes().contains("in."));
+    assertTrue(compact.getScopes().contains("^"));
+    assertFalse(compact.isAssignment());
+    assertTrue(evaluator.compile("$y = 3").isAssignment());
+  }
+
+  @Test
+  public void bindCodes() throws Exception {
+    final TreeSymbolTable sideCodes = new TreeSymbolTable("SideCodeSet");
+    sideCodes.assign(new PathStep("Buy"), new FixValue<Character>("Buy", FixType.charType, '1'));
+    final TreeSymbolTable ordTypeCodes = new TreeSymbolTable("OrdTypeCodeSet");
+    ordTypeCodes.assign(new PathStep("Limit"),
+        new FixValue<Character>("Limit", FixType.charType, '2'));
+    final TreeSymbolTable in = new TreeSymbolTable("in");
+    in.assign(new PathStep("Side"), new FixValue<Character>("Side", FixType.charType, '1'));
+    symbolResolver.nest(new PathStep("in."), in);
+
+    final CompiledExpression bound = evaluator.compile("in.Side == ^Buy", ordTypeCodes,
+        name -> name.equals("Side") ? sideCodes : null);
+    assertTrue(bound.isCodeSetBound());
+    assertFalse(bound.getScopes().contains("^"));
+    assertNotSame(evaluator.compile("in.Side == ^Buy"), bound);
+    // no code set is nested in the symbol resolver
+    assertNull(symbolResolver.resolve(SymbolResolver.CODE_SET_ROOT));
+    assertEquals(Boolean.TRUE, evaluator.evaluate(bound).getValue());
+
+    final CompiledExpression initial = evaluator.compile("^Limit", ordTypeCodes, null);
+    assertEquals('2', evaluator.evaluate(initial).getValue());
+
+    final CompiledExpression notFound = evaluator.compile("in.Side == ^Sell", ordTypeCodes,
+        name -> name.equals("Side") ? sideCodes : null);
+    assertTrue(notFound.getScopes().contains("^"));
+
+    final CompiledExpression noCodes = evaluator.compile("in.Side == '1'", ordTypeCodes, null);
+    assertSame(evaluator.compile("in.Side == '1'"), noCodes);
+    assertFalse(noCodes.isCodeSetBound());
+  }
+
+  @Test(expected = ScoreException.class)
+  public void syntaxError() throws Exception {
+    evaluator.compile("$x >");
+  }
+
+  @Test
+  public void concurrentContexts() throws Exception {
+    final CompiledExpression expression = evaluator.compile("$x * 2 + 1 == $y and $x > 10");
+    final int threadCount = 4;
+    final int iterations = 1000;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < threadCount; t++) {
+        final int offset = t * iterations;
+        futures.add(executor.submit(() -> {
+          // each thread has its own symbols but shares the Evaluator and compiled expression
+          final SymbolResolver resolver = new SymbolResolver();
+          final EvaluationContext context = new EvaluationContext(resolver);
+          int matches = 0;
+          for (int i = offset; i < offset + iterations; i++) {
+            resolver.assign(new PathStep("$x"), new FixValue<Integer>("x", FixType.intType, i));
+            resolver.assign(new PathStep("$y"),
+                new FixValue<Integer>("y", FixType.intType, i * 2 + 1));
+            if (evaluator.test(expression, context)) {
+              matches++;
+            }
+          }
+          return matches;
+        }));
+      }
+      int total = 0;
+      for (Future<Integer> future : futures) {
+        total += future.get();
+      }
+      // every i except 0..10
+      assertEquals(threadCount * iterations - 11, total);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = ScoreException.class)
+  public void contextDefaultListener() throws Exception {
+    evaluator.evaluate(evaluator.compile("$missing > 3"),
+        new EvaluationContext(new SymbolResolver()));
+  }
+}
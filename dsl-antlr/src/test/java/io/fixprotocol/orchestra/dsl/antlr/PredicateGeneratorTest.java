@@ -0,0 +1,117 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class PredicateGeneratorTest {
+
+  private class ErrorListener implements SemanticErrorListener {
+
+    private String msg = null;
+
+    @Override
+    public void onError(String msg) {
+      this.msg = msg;
+    }
+
+    boolean hasError() {
+      return msg != null;
+    }
+  }
+
+  private ErrorListener errorListener;
+  private Evaluator evaluator;
+  private final PredicateGenerator generator = new PredicateGenerator();
+  private SymbolResolver symbolResolver;
+
+  @Before
+  public void setUp() throws Exception {
+    symbolResolver = new SymbolResolver();
+    symbolResolver.assign(new PathStep("$qty"), new FixValue<Integer>("qty", FixType.intType, 100));
+    symbolResolver.assign(new PathStep("$price"),
+        new FixValue<BigDecimal>("price", FixType.floatType, new BigDecimal("12.5")));
+    symbolResolver.assign(new PathStep("$side"),
+        new FixValue<Character>("side", FixType.charType, '1'));
+    symbolResolver.assign(new PathStep("$flag"),
+        new FixValue<Boolean>("flag", FixType.BooleanType, Boolean.TRUE));
+    errorListener = new ErrorListener();
+    evaluator = new Evaluator(symbolResolver, errorListener, null);
+    evaluator.setGeneratePredicates(true);
+  }
+
+  @Test
+  public void sameAsInterpreter() throws Exception {
+    String[] expressions = new String[] {
+        "$qty > 0 and $price <= 1000.5",
+        "$qty > 100 or $price < 12.0",
+        "!($side == '2')",
+        "$side in {'1', '2', '5'}",
+        "$qty between 1 and 99",
+        "$qty * 2 + 1 == 201",
+        "-$qty < 0",
+        "exists $qty and !exists $foo",
+        "$flag",
+        };
+    for (String text : expressions) {
+      CompiledExpression expression = evaluator.compile(text);
+      CompiledPredicate predicate = generator.generate(expression.getRoot());
+      assertNotNull(text, predicate);
+      assertEquals(text, Boolean.TRUE.equals(evaluator.evaluate(expression).getValue()),
+          predicate.test(symbolResolver));
+      assertEquals(text, predicate.test(symbolResolver), evaluator.test(expression));
+    }
+    assertFalse(errorListener.hasError());
+  }
+
+  @Test
+  public void notGenerated() throws Exception {
+    assertNull(generator.generate(evaluator.compile("$x = 3").getRoot()));
+    assertNull(generator.generate(evaluator.compile("$qty + 1").getRoot()));
+  }
+
+  @Test
+  public void fallback() throws Exception {
+    CompiledExpression expression = evaluator.compile("$missing > 0");
+    CompiledPredicate predicate = generator.generate(expression.getRoot());
+    try {
+      predicate.test(symbolResolver);
+      fail("Expected fallback to interpreter");
+    } catch (PredicateSupport.FallbackException e) {
+      // expected; interpreter reports the error
+    }
+    assertFalse(evaluator.test(expression));
+    assertTrue(errorListener.hasError());
+  }
+}
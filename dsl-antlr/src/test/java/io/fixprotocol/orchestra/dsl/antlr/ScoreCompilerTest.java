@@ -0,0 +1,144 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.dsl.antlr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fixprotocol.orchestra.dsl.antlr.ExpressionNode.VarNode;
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * @author Don Mendelson
+ *
+ */
+public class ScoreCompilerTest {
+
+  private class ErrorListener implements SemanticErrorListener {
+
+    private String msg = null;
+
+    @Override
+    public void onError(String msg) {
+      this.msg = msg;
+    }
+
+    boolean hasError() {
+      return msg != null;
+    }
+  }
+
+  private ErrorListener errorListener;
+  private Evaluator evaluator;
+  private SymbolResolver symbolResolver;
+
+  @Before
+  public void setUp() throws Exception {
+    symbolResolver = new SymbolResolver();
+    errorListener = new ErrorListener();
+    evaluator = new Evaluator(symbolResolver, errorListener, null);
+  }
+
+  @Test
+  public void operators() throws Exception {
+    Object[][] data = new Object[][] {
+        {"33 + 44", 77},
+        {"7.12 + 2", new BigDecimal("9.12")},
+        {"65.55 - 2.34", new BigDecimal("63.21")},
+        {"3 * 4 + 1", 13},
+        {"13 % 5", 3},
+        {"!(33 == 4 and 5 < 6) and 12 >= 11", Boolean.TRUE},
+        {"3 in {1, 2, 3}", Boolean.TRUE},
+        {"4 in {1, 2, 3}", Boolean.FALSE},
+        {"5 between 1 and 5", Boolean.TRUE},
+        {"-3 + 5", 2},
+        {"'a' == 'a'", Boolean.TRUE},
+        };
+    for (Object[] test : data) {
+      assertEquals((String) test[0], test[1], evaluator.evaluate((String) test[0]).getValue());
+    }
+    assertFalse(errorListener.hasError());
+  }
+
+  @Test
+  public void constantFolding() throws Exception {
+    CompiledExpression expression = evaluator.compile("2 * (3 + 4) > 10");
+    assertTrue(expression.getRoot().isConstant());
+    // caller gets its own copy of a folded constant
+    @SuppressWarnings("unchecked")
+    FixValue<Boolean> value = (FixValue<Boolean>) evaluator.evaluate(expression);
+    value.setValue(Boolean.FALSE);
+    assertEquals(Boolean.TRUE, evaluator.evaluate(expression).getValue());
+  }
+
+  @Test
+  public void shortCircuit() throws Exception {
+    assertEquals(Boolean.FALSE, evaluator.evaluate("1 > 2 and $missing > 3").getValue());
+    assertEquals(Boolean.TRUE, evaluator.evaluate("1 < 2 or $missing > 3").getValue());
+    assertFalse(errorListener.hasError());
+    assertNull(evaluator.evaluate("1 < 2 and $missing > 3"));
+    assertTrue(errorListener.hasError());
+  }
+
+  @Test
+  public void unaryMinus() throws Exception {
+    symbolResolver.assign(new PathStep("$x"), new FixValue<Integer>("x", FixType.intType, 7));
+    CompiledExpression expression = evaluator.compile("-$x");
+    assertEquals(-7, evaluator.evaluate(expression).getValue());
+    assertEquals(-7, evaluator.evaluate(expression).getValue());
+    assertEquals(7, evaluator.evaluate("$x").getValue());
+  }
+
+  @Test
+  public void assignment() throws Exception {
+    FixValue<?> fixValue = evaluator.evaluate("$x = 33");
+    assertEquals(33, fixValue.getValue());
+    assertEquals("x", fixValue.getName());
+    fixValue = evaluator.evaluate("$x = $x + 11");
+    assertEquals(44, fixValue.getValue());
+    assertEquals(44, evaluator.evaluate("$x").getValue());
+    assertNull(evaluator.evaluate("$y = $foo"));
+    assertTrue(errorListener.hasError());
+  }
+
+  @Test
+  public void path() throws Exception {
+    VarNode var = (VarNode) evaluator.compile("in.Parties[2].PartyID").getRoot();
+    assertEquals("in.", var.getScopeStep().getName());
+    assertEquals(2, var.getSteps()[0].getIndex());
+
+    var = (VarNode) evaluator.compile("in.NoMDEntries[MDEntryPx == 12.31].MDEntrySize")
+        .getRoot();
+    assertEquals("MDEntryPx==12.31", var.getSteps()[0].getPredicate());
+    assertEquals("MDEntrySize", var.getLastStep().getName());
+
+    // keywords keep their surrounding whitespace
+    var = (VarNode) evaluator.compile("in.Parties[PartyRole==$x in {1, 2}].PartyID").getRoot();
+    assertEquals("PartyRole==$x in {1, 2}", var.getSteps()[0].getPredicate());
+    var = (VarNode) evaluator.compile("in.Parties[PartyRole == $x between 1 and 3].PartyID")
+        .getRoot();
+    assertEquals("PartyRole==$x between 1 and 3", var.getSteps()[0].getPredicate());
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+public class DecimalFixValueTest {
+
+  @Test
+  public void scaled() {
+    DecimalFixValue value = new DecimalFixValue("Price", FixType.Price, new BigDecimal("1000.50"));
+    assertTrue(value.isScaled());
+    assertEquals(100050L, value.getMantissa());
+    assertEquals(2, value.getScale());
+    assertEquals(new BigDecimal("1000.50"), value.getValue());
+    assertSame(value.getValue(), value.getValue());
+  }
+
+  @Test
+  public void negativeScale() {
+    DecimalFixValue value = new DecimalFixValue("Qty", FixType.Qty, new BigDecimal("1E+3"));
+    assertTrue(value.isScaled());
+    assertEquals(1000L, value.getMantissa());
+    assertEquals(0, value.getScale());
+  }
+
+  @Test
+  public void unscaled() {
+    BigDecimal big = new BigDecimal("12345678901234567890.123");
+    DecimalFixValue value = new DecimalFixValue("Amt", FixType.Amt, big);
+    assertFalse(value.isScaled());
+    assertSame(big, value.getValue());
+    assertEquals(0, DecimalFixValue.compare(value, new DecimalFixValue("Amt", FixType.Amt, big)));
+  }
+
+  @Test
+  public void compareOverflow() {
+    assertTrue(DecimalFixValue.compare(Long.MAX_VALUE, 0, 1, 18) > 0);
+    assertTrue(DecimalFixValue.compare(-Long.MAX_VALUE, 0, 1, 18) < 0);
+    assertEquals(0, DecimalFixValue.compare(15, 1, 150, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void scaleOutOfRange() {
+    new DecimalFixValue(FixType.floatType, 1L, 19);
+  }
+
+  @Test
+  public void parse() {
+    DecimalFixValue value = new DecimalFixValue("Price", FixType.Price);
+    value.parse("-1000.50");
+    assertTrue(value.isScaled());
+    assertEquals(-100050L, value.getMantissa());
+    assertEquals(2, value.getScale());
+    value.parse("0.000");
+    assertEquals(0L, value.getMantissa());
+    assertEquals(3, value.getScale());
+    value.parse("123456789012345678901.5");
+    assertFalse(value.isScaled());
+    assertEquals(new BigDecimal("123456789012345678901.5"), value.getValue());
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void parseInvalid() {
+    new DecimalFixValue("Price", FixType.Price).parse(".");
+  }
+
+  @Test
+  public void arithmetic() {
+    FixValueOperations operations = new FixValueOperations();
+    DecimalFixValue price = new DecimalFixValue("Price", FixType.floatType, 1000_25L, 2);
+    DecimalFixValue offset = new DecimalFixValue("Offset", FixType.floatType, 5L, 1);
+    FixValue<?> sum = operations.add.apply(price, offset);
+    assertTrue(sum instanceof DecimalFixValue);
+    assertEquals(new BigDecimal("1000.75"), sum.getValue());
+    assertEquals(new BigDecimal("999.75"), operations.subtract.apply(price, offset).getValue());
+    assertEquals(new BigDecimal("500.125"), operations.multiply.apply(price, offset).getValue());
+    assertEquals(new BigDecimal("1002.25"),
+        operations.add.apply(price, new IntFixValue(FixType.intType, 2)).getValue());
+  }
+
+  @Test
+  public void overflow() {
+    FixValueOperations operations = new FixValueOperations();
+    DecimalFixValue big = new DecimalFixValue("Amt", FixType.floatType, Long.MAX_VALUE, 0);
+    DecimalFixValue small = new DecimalFixValue("Amt", FixType.floatType, 1L, 10);
+    FixValue<?> sum = operations.add.apply(big, small);
+    assertFalse(sum instanceof DecimalFixValue);
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).add(new BigDecimal("0.0000000001")),
+        sum.getValue());
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(Long.MAX_VALUE)),
+        operations.multiply.apply(big, big).getValue());
+  }
+}
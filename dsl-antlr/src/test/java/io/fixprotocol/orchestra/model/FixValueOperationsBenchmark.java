@@ -0,0 +1,154 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures operator dispatch in {@link FixValueOperations}
+ * <p>
+ * Run from the test classpath: {@code java -cp <test classpath>
+ * io.fixprotocol.orchestra.model.FixValueOperationsBenchmark}
+ *
+ * @author Don Mendelson
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixValueOperationsBenchmark {
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(FixValueOperationsBenchmark.class.getSimpleName())
+        .build();
+    new Runner(opt).run();
+  }
+
+  private final FixValueOperations operations = new FixValueOperations();
+
+  private final FixValue<Integer> int1 = new FixValue<Integer>(FixType.intType, 1234);
+  private final FixValue<Integer> int2 = new FixValue<Integer>(FixType.intType, 5678);
+  private final FixValue<BigDecimal> decimal1 =
+      new FixValue<BigDecimal>(FixType.floatType, new BigDecimal("12.34"));
+  private final FixValue<BigDecimal> decimal2 =
+      new FixValue<BigDecimal>(FixType.floatType, new BigDecimal("56.78"));
+  private final FixValue<Instant> timestamp1 =
+      new FixValue<Instant>(FixType.UTCTimestamp, Instant.parse("2017-06-01T12:00:00Z"));
+  private final FixValue<Instant> timestamp2 =
+      new FixValue<Instant>(FixType.UTCTimestamp, Instant.parse("2017-06-01T12:00:01Z"));
+  private final FixValue<Duration> duration =
+      new FixValue<Duration>(FixType.Duration, Duration.ofSeconds(30));
+  private final IntFixValue intPrimitive1 = new IntFixValue(FixType.intType, 1234);
+  private final IntFixValue intPrimitive2 = new IntFixValue(FixType.intType, 5678);
+  private final DecimalFixValue decimalPrimitive1 =
+      new DecimalFixValue(FixType.floatType, 1234, 2);
+  private final DecimalFixValue decimalPrimitive2 =
+      new DecimalFixValue(FixType.floatType, 5678, 2);
+  private final FixValue<String> string1 = new FixValue<String>(FixType.StringType, "ABC");
+  private final FixValue<String> string2 = new FixValue<String>(FixType.StringType, "ABD");
+
+  @Benchmark
+  public FixValue<Boolean> eqInt() {
+    return operations.eq.apply(int1, int2);
+  }
+
+  @Benchmark
+  public FixValue<Boolean> eqDecimal() {
+    return operations.eq.apply(decimal1, decimal2);
+  }
+
+  @Benchmark
+  public FixValue<Boolean> eqTimestamp() {
+    return operations.eq.apply(timestamp1, timestamp2);
+  }
+
+  @Benchmark
+  public FixValue<Boolean> eqString() {
+    return operations.eq.apply(string1, string2);
+  }
+
+  @Benchmark
+  public FixValue<Boolean> ltInt() {
+    return operations.lt.apply(int1, int2);
+  }
+
+  @Benchmark
+  public FixValue<Boolean> ltDecimal() {
+    return operations.lt.apply(decimal1, decimal2);
+  }
+
+  @Benchmark
+  public FixValue<Boolean> ltTimestamp() {
+    return operations.lt.apply(timestamp1, timestamp2);
+  }
+
+  @Benchmark
+  public FixValue<?> addInt() {
+    return operations.add.apply(int1, int2);
+  }
+
+  @Benchmark
+  public FixValue<?> addDecimal() {
+    return operations.add.apply(decimal1, decimal2);
+  }
+
+  @Benchmark
+  public FixValue<?> addTimestamp() {
+    return operations.add.apply(timestamp1, duration);
+  }
+
+  /**
+   * Commutative lookup, int + decimal entered as decimal + int
+   */
+  @Benchmark
+  public FixValue<?> addDecimalInt() {
+    return operations.add.apply(decimal1, int1);
+  }
+
+  @Benchmark
+  public FixValue<Boolean> ltIntPrimitive() {
+    return operations.lt.apply(intPrimitive1, intPrimitive2);
+  }
+
+  @Benchmark
+  public FixValue<Boolean> ltDecimalPrimitive() {
+    return operations.lt.apply(decimalPrimitive1, decimalPrimitive2);
+  }
+
+  @Benchmark
+  public FixValue<?> addIntPrimitive() {
+    return operations.add.apply(intPrimitive1, intPrimitive2);
+  }
+}
@@ -73,4 +73,72 @@ public class FixValueTest {
     FixValue<Integer> op2 = new FixValue<Integer>("op2", FixType.intType);
     fixValueOperations.add.apply(op1, op2);
   }
+
+  @Test
+  public void testEqCommutative() {
+    FixValue<BigDecimal> op1 = new FixValue<BigDecimal>("op1", FixType.Price, new BigDecimal("12.31"));
+    FixValue<BigDecimal> op2 = new FixValue<BigDecimal>("op2", FixType.floatType, new BigDecimal("12.310"));
+    assertEquals(Boolean.TRUE, fixValueOperations.eq.apply(op1, op2).getValue());
+    assertEquals(Boolean.TRUE, fixValueOperations.eq.apply(op2, op1).getValue());
+  }
+
+  @Test
+  public void testSubtractNotCommutative() {
+    FixValue<Integer> op1 = new FixValue<Integer>("op1", FixType.intType, 10);
+    FixValue<BigDecimal> op2 = new FixValue<BigDecimal>("op2", FixType.floatType, BigDecimal.valueOf(4));
+    assertEquals(BigDecimal.valueOf(6), fixValueOperations.subtract.apply(op1, op2).getValue());
+    assertEquals(BigDecimal.valueOf(-6), fixValueOperations.subtract.apply(op2, op1).getValue());
+  }
+
+  @Test
+  public void testNoOperation() {
+    FixValue<String> op1 = new FixValue<String>("op1", FixType.StringType, "abc");
+    FixValue<Integer> op2 = new FixValue<Integer>("op2", FixType.intType, 3);
+    assertNull(fixValueOperations.lt.apply(op1, op2));
+    assertNull(fixValueOperations.add.apply(op1, op1));
+  }
+
+  @Test
+  public void testComparePrimitives() {
+    IntFixValue qty = new IntFixValue("OrderQty", FixType.intType, 100);
+    DecimalFixValue price = new DecimalFixValue("Price", FixType.Price, 1000_25L, 2);
+    DecimalFixValue limit = new DecimalFixValue(FixType.floatType, 1000_5L, 1);
+    assertSame(BooleanFixValue.TRUE, fixValueOperations.gt.apply(qty, new IntFixValue(FixType.intType, 0)));
+    assertSame(BooleanFixValue.TRUE, fixValueOperations.le.apply(price, limit));
+    assertSame(BooleanFixValue.FALSE, fixValueOperations.eq.apply(price, limit));
+    assertSame(BooleanFixValue.TRUE, fixValueOperations.lt.apply(qty, limit));
+    assertSame(BooleanFixValue.TRUE, fixValueOperations.gt.apply(limit, qty));
+    CharFixValue side = new CharFixValue("Side", FixType.charType, '1');
+    assertSame(BooleanFixValue.TRUE, fixValueOperations.eq.apply(side, new CharFixValue(FixType.charType, '1')));
+  }
+
+  @Test
+  public void testMixedSpecialized() {
+    FixValue<BigDecimal> op1 = new FixValue<BigDecimal>("op1", FixType.floatType, new BigDecimal("12.50"));
+    DecimalFixValue op2 = new DecimalFixValue(FixType.floatType, 125, 1);
+    assertEquals(Boolean.TRUE, fixValueOperations.eq.apply(op1, op2).getValue());
+    IntFixValue op3 = new IntFixValue("op3", FixType.intType, 3);
+    FixValue<Integer> op4 = new FixValue<Integer>("op4", FixType.intType, 4);
+    assertEquals(Integer.valueOf(7), fixValueOperations.add.apply(op3, op4).getValue());
+    final FixValue<?> sum = fixValueOperations.add.apply(op3, new IntFixValue(FixType.intType, 4));
+    assertTrue(sum instanceof IntFixValue);
+    assertEquals(7, ((IntFixValue) sum).getInt());
+  }
+
+  @Test
+  public void testDerivedType() {
+    FixValue<BigDecimal> op1 = new FixValue<BigDecimal>("op1", FixType.Price, new BigDecimal("999.5"));
+    FixValue<BigDecimal> op2 = new FixValue<BigDecimal>("op2", FixType.floatType, new BigDecimal("1000.5"));
+    assertEquals(Boolean.TRUE, fixValueOperations.le.apply(op1, op2).getValue());
+    FixValue<Integer> op3 = new FixValue<Integer>("op3", FixType.Length, 3);
+    FixValue<Integer> op4 = new FixValue<Integer>("op4", FixType.intType, 4);
+    final FixValue<?> sum = fixValueOperations.add.apply(op3, op4);
+    assertEquals(FixType.intType, sum.getType());
+    assertEquals(Integer.valueOf(7), sum.getValue());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSharedBooleanImmutable() {
+    BooleanFixValue.TRUE.setValue(Boolean.FALSE);
+  }
 }
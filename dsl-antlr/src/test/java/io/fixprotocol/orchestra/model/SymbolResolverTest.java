@@ -52,6 +52,35 @@ public class SymbolResolverTest {
     assertEquals(33, found.getValue().intValue());
   }
 
+  @Test
+  public void testInternMany() {
+    final int count = 5000;
+    final int[] ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = SymbolIds.intern("many" + i);
+    }
+    for (int i = 0; i < count; i++) {
+      assertEquals(ids[i], SymbolIds.lookup("many" + i));
+      assertEquals(ids[i], SymbolIds.intern("many" + i));
+      assertEquals("many" + i, SymbolIds.nameOf(ids[i]));
+    }
+  }
+
+  @Test
+  public void testResolveBySlot() throws ModelException {
+    FixValue<?> value = new FixValue<Integer>("slotted", FixType.intType, 44);
+    symbolResolver.assign(new PathStep("$slotted"), value);
+    int id = SymbolIds.lookup("$slotted", 1);
+    assertEquals(SymbolIds.intern("slotted"), id);
+    assertEquals("slotted", SymbolIds.nameOf(id));
+    TreeSymbolTable variables = (TreeSymbolTable) symbolResolver.resolve(VARIABLE_ROOT);
+    assertSame(value, variables.resolve(id));
+    variables.assign(id, new FixValue<Integer>("slotted", FixType.intType, 45));
+    assertEquals(45, ((FixValue<?>) symbolResolver.resolve(new PathStep("$slotted"))).getValue());
+    assertEquals(SymbolIds.NO_SYMBOL, SymbolIds.lookup("$neverInterned", 1));
+    assertNull(symbolResolver.resolve(new PathStep("$neverInterned")));
+  }
+
   /**
    * Test method for {@link io.fixprotocol.orchestra.model.SymbolResolver#resolve(io.fixprotocol.orchestra.model.PathStep)}.
    * @throws ModelException 
@@ -17,27 +17,30 @@ package io.fixprotocol.orchestra.model.quickfix;
 
 
 import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
-import io.fixprotocol._2016.fixrepository.CodeSetType;
 import io.fixprotocol._2016.fixrepository.FieldRefType;
 import io.fixprotocol._2016.fixrepository.GroupRefType;
 import io.fixprotocol._2016.fixrepository.GroupType;
+import io.fixprotocol.orchestra.dsl.antlr.CompiledExpression;
 import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
 import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
+import io.fixprotocol.orchestra.model.BindableScope;
 import io.fixprotocol.orchestra.model.FixNode;
 import io.fixprotocol.orchestra.model.FixType;
 import io.fixprotocol.orchestra.model.FixValue;
-import io.fixprotocol.orchestra.model.FixValueFactory;
 import io.fixprotocol.orchestra.model.ModelException;
+import io.fixprotocol.orchestra.model.PathBinding;
 import io.fixprotocol.orchestra.model.PathStep;
 import io.fixprotocol.orchestra.model.Scope;
 import io.fixprotocol.orchestra.model.SymbolResolver;
 import quickfix.BytesField;
+import quickfix.FieldConvertError;
 import quickfix.FieldMap;
 import quickfix.FieldNotFound;
 import quickfix.Group;
@@ -48,8 +51,101 @@ import quickfix.Group;
  */
 abstract class AbstractMessageScope {
 
+  /**
+   * A field reference with its datatype looked up once
+   */
+  static final class FieldBinding {
+    private final FixType dataType;
+    private final FieldRefType fieldRefType;
+    private final int id;
+
+    FieldBinding(FieldRefType fieldRefType, FixType dataType) {
+      this.fieldRefType = fieldRefType;
+      this.id = fieldRefType.getId().intValue();
+      this.dataType = dataType;
+    }
+
+    FixType getDataType() {
+      return dataType;
+    }
+
+    int getId() {
+      return id;
+    }
+  }
+
+  /**
+   * A path bound to a field or group of a message or group structure. Steps before the last select
+   * nested group instances.
+   */
+  static final class MemberBinding implements PathBinding {
+    private final FieldBinding field;
+    private final GroupType group;
+    private final GroupType[] groups;
+    private final PathStep[] steps;
+
+    MemberBinding(PathStep[] steps, GroupType[] groups, FieldBinding field, GroupType group) {
+      this.steps = steps;
+      this.groups = groups;
+      this.field = field;
+      this.group = group;
+    }
+
+    @Override
+    public FixValue<?> assign(BindableScope scope, FixValue<?> value) throws ModelException {
+      if (value.getValue() == null) {
+        throw new ModelException(
+            String.format("Assigning field %s null not allowed", value.getName()));
+      }
+      final AbstractMessageScope parent = resolveParent(scope);
+      if (parent == null || field == null) {
+        return null;
+      }
+      parent.assignField(field, value);
+      return value;
+    }
+
+    @Override
+    public FixNode resolve(BindableScope scope) {
+      final AbstractMessageScope parent = resolveParent(scope);
+      if (parent == null) {
+        return null;
+      } else if (field != null) {
+        return parent.resolveField(field);
+      } else {
+        return parent.resolveGroup(steps[groups.length], group);
+      }
+    }
+
+    private AbstractMessageScope resolveParent(BindableScope scope) {
+      AbstractMessageScope current = (AbstractMessageScope) scope;
+      for (int i = 0; i < groups.length; i++) {
+        final FixNode node = current.resolveGroup(steps[i], groups[i]);
+        if (!(node instanceof AbstractMessageScope)) {
+          return null;
+        }
+        current = (AbstractMessageScope) node;
+      }
+      return current;
+    }
+  }
+
   private final Evaluator evaluator;
   private final FieldMap fieldMap;
+  /**
+   * Values of fields decoded by this scope, with the text of each field as its source. A scope is
+   * created for each message or group instance, so values are not carried over to another message.
+   */
+  private final FieldValueCache fieldValues = new FieldValueCache();
+  /**
+   * Indexes of group instances by key field, built on first access
+   */
+  private Map<FieldRefType, GroupKeyIndex> groupKeyIndexes;
+  /**
+   * Scopes of nested group instances by the QuickFIX/J group that each one exposes, created on
+   * first access. A group that is replaced gets a new scope.
+   */
+  private Map<Group, GroupInstanceScope> instanceScopes;
   private final RepositoryAdapter repository;
 
   private final SymbolResolver symbolResolver;
@@ -61,15 +157,59 @@ abstract class AbstractMessageScope {
     this.evaluator = evaluator;
   }
 
-  protected void assignField(FieldRefType fieldRefType, FixValue fixValue) {
-    int id = fieldRefType.getId().intValue();
-    String dataTypeString = repository.getFieldDatatype(id);
-    CodeSetType codeSet = repository.getCodeset(dataTypeString);
-    if (codeSet != null) {
-      dataTypeString = codeSet.getType();
+  /**
+   * Binds a path to a member of this message or group structure
+   *
+   * @param steps path relative to this scope
+   * @return a binding, or {@code null} if the path does not lead to a field or group
+   */
+  public PathBinding bind(PathStep[] steps) {
+    final GroupType[] groups = new GroupType[steps.length - 1];
+    MessageLayout layout = getLayout();
+    for (int i = 0; i < steps.length; i++) {
+      final String name = i == 0 ? memberName(steps[i]) : unqualified(steps[i].getName());
+      final Object member = layout.getMember(name);
+      GroupType groupType = null;
+      if (member instanceof GroupRefType) {
+        groupType = repository.getGroup((GroupRefType) member);
+        if (groupType == null) {
+          return null;
+        }
+      }
+      if (i < groups.length) {
+        if (groupType == null) {
+          return null;
+        }
+        groups[i] = groupType;
+        layout = repository.getLayout(groupType);
+      } else if (member instanceof FieldRefType) {
+        return new MemberBinding(steps, groups, bindField((FieldRefType) member), null);
+      } else if (groupType != null) {
+        return new MemberBinding(steps, groups, null, groupType);
+      }
     }
-    FixType dataType = FixType.forName(dataTypeString);
-    switch (dataType) {
+    return null;
+  }
+
+  protected void assignField(FieldRefType fieldRefType, FixValue fixValue) {
+    assignField(bindField(fieldRefType), fixValue);
+  }
+
+  protected void assignField(FieldBinding binding, FixValue<?> fixValue) {
+    setField(fieldMap, binding, fixValue);
+  }
+
+  /**
+   * Sets a field of a message or group by the datatype of its binding
+   *
+   * @param fieldMap message or group to populate
+   * @param binding field reference with its datatype
+   * @param fixValue value to set
+   */
+  @SuppressWarnings("rawtypes")
+  static void setField(FieldMap fieldMap, FieldBinding binding, FixValue fixValue) {
+    final int id = binding.id;
+    switch (binding.dataType) {
       case StringType:
       case MultipleCharValue:
       case MultipleStringValue:
@@ -126,143 +266,256 @@ abstract class AbstractMessageScope {
     }
   }
 
+  /**
+   * @return layout of this message or group structure
+   */
+  protected abstract MessageLayout getLayout();
+
   protected RepositoryAdapter getRepository() {
     return repository;
   }
-  
-  @SuppressWarnings("unchecked")
-  protected FixNode resolveField(FieldRefType fieldRefType) {
-    String name = fieldRefType.getName();
-    @SuppressWarnings("rawtypes")
-    FixValue fixValue = null;
-    BigInteger id = fieldRefType.getId();
-    String dataTypeString = repository.getFieldDatatype(id.intValue());
-    CodeSetType codeSet = repository.getCodeset(dataTypeString);
-    if (codeSet != null) {
-      dataTypeString = codeSet.getType();
-      symbolResolver.nest(new PathStep("^"), new CodeSetScope(codeSet));
+
+  /**
+   * @return name of a member of this structure selected by a path step
+   */
+  protected String memberName(PathStep pathStep) {
+    return pathStep.getName();
+  }
+
+  /**
+   * Resolves a field or group of this structure by name
+   *
+   * @param pathStep selects a member
+   * @return a field value or group instance scope, or {@code null} if not found
+   */
+  protected FixNode resolveMember(PathStep pathStep) {
+    final Object member = getLayout().getMember(memberName(pathStep));
+    if (member instanceof FieldRefType) {
+      return resolveField((FieldRefType) member);
+    } else if (member instanceof GroupRefType) {
+      return resolveGroup(pathStep, (GroupRefType) member);
+    } else {
+      return null;
     }
+  }
 
-    FixType dataType = FixType.forName(dataTypeString);
-    try {
-      switch (dataType) {
-        case StringType:
-        case MultipleCharValue:
-        case MultipleStringValue:
-        case Country:
-        case Currency:
-        case Exchange:
-        case MonthYear:
-        case XMLData:
-        case Language:
-          fixValue = new FixValue<String>(name, dataType);
-          ((FixValue<String>) fixValue).setValue(fieldMap.getString(id.intValue()));
-          break;
-        case BooleanType:
-          fixValue = new FixValue<Boolean>(name, dataType);
-          ((FixValue<Boolean>) fixValue).setValue(fieldMap.getBoolean(id.intValue()));
-          break;
-        case charType:
-          fixValue = new FixValue<Character>(name, dataType);
-          ((FixValue<Character>) fixValue).setValue(fieldMap.getChar(id.intValue()));
-          break;
-        case intType:
-        case Length:
-        case TagNum:
-        case SeqNum:
-        case NumInGroup:
-        case DayOfMonth:
-          fixValue = new FixValue<Integer>(name, dataType);
-          ((FixValue<Integer>) fixValue).setValue(fieldMap.getInt(id.intValue()));
-          break;
-        case Amt:
-        case floatType:
-        case Qty:
-        case Price:
-        case PriceOffset:
-        case Percentage:
-          fixValue = new FixValue<BigDecimal>(name, dataType);
-          ((FixValue<BigDecimal>) fixValue).setValue(fieldMap.getDecimal(id.intValue()));
-          break;
-        case UTCTimestamp:
-        case TZTimestamp:
-          fixValue = new FixValue<LocalDateTime>(name, dataType);
-          ((FixValue<LocalDateTime>) fixValue)
-              .setValue(fieldMap.getUtcTimeStamp(id.intValue()));
-          break;
-        case UTCTimeOnly:
-        case TZTimeOnly:
-        case LocalMktTime:
-          fixValue = new FixValue<LocalTime>(name, dataType);
-          ((FixValue<LocalTime>) fixValue)
-              .setValue(LocalTime.from(fieldMap.getUtcTimeOnly(id.intValue())));
-          break;
-        case UTCDateOnly:
-        case LocalMktDate:
-          fixValue = new FixValue<LocalDate>(name, dataType);
-          ((FixValue<LocalDate>) fixValue)
-              .setValue(LocalDate.from(fieldMap.getUtcTimeOnly(id.intValue())));
-          break;
-        case data:
-          fixValue = new FixValue<byte[]>(name, dataType);
-          BytesField bytesField = new BytesField(id.intValue());
-          fieldMap.getField(bytesField);
-          ((FixValue<byte[]>) fixValue).setValue(bytesField.getValue());
-          break;
-        case Duration:
-          // todo
-          break;
-      }
-    } catch (FieldNotFound e) {
-      // Set default value if field is not present
-      String defaultValue = fieldRefType.getValue();
-      if (defaultValue != null) {
-        final Class<?> valueClass = dataType.getValueClass();
-        try {
-          fixValue = FixValueFactory.create(null, dataType, valueClass);
-          fixValue.setValue(valueClass.cast(dataType.fromString(defaultValue)));
-        } catch (ModelException e1) {
+  protected FixNode resolveField(FieldRefType fieldRefType) {
+    return resolveField(bindField(fieldRefType));
+  }
 
-        }
+  /**
+   * Resolves the value of a field, decoding it only on first reference
+   * <p>
+   * The same value is returned for every reference to the field as long as the message holds the
+   * same text for it. QuickFIX/J replaces the text when a field is set, so a field that is set again
+   * is decoded again. Data fields are not cached.
+   */
+  protected FixNode resolveField(FieldBinding binding) {
+    final int id = binding.id;
+    if (binding.dataType == FixType.data) {
+      return decodeField(binding, null);
+    }
+    String text = null;
+    if (fieldMap.isSetField(id)) {
+      try {
+        text = fieldMap.getString(id);
+      } catch (FieldNotFound e) {
+        // not reached, since the field is set
       }
     }
+    final int index = fieldValues.indexOf(id);
+    if (index >= 0 && fieldValues.getSource(index) == text) {
+      return fieldValues.getValue(index);
+    }
+    final FixValue<?> fixValue = decodeField(binding, text);
+    fieldValues.put(id, text, fixValue);
     return fixValue;
   }
 
+  /**
+   * @return default value of a field that is not present, or else a value without content
+   */
+  private static FixValue<?> absentValue(FieldRefType fieldRefType, FixType dataType) {
+    final FixValue<?> defaultValue = FieldDecoder.defaultValue(fieldRefType, dataType);
+    return defaultValue != null ? defaultValue
+        : FieldDecoder.emptyValue(fieldRefType.getName(), dataType);
+  }
+
+  private FixValue<?> decodeField(FieldBinding binding, String text) {
+    final FieldRefType fieldRefType = binding.fieldRefType;
+    final FixType dataType = binding.dataType;
+    if (dataType == FixType.data) {
+      final BytesField bytesField = new BytesField(binding.id);
+      try {
+        fieldMap.getField(bytesField);
+      } catch (FieldNotFound e) {
+        return absentValue(fieldRefType, dataType);
+      }
+      return new FixValue<>(fieldRefType.getName(), dataType, bytesField.getValue());
+    } else if (text == null) {
+      return absentValue(fieldRefType, dataType);
+    }
+    try {
+      return FieldDecoder.decode(fieldRefType.getName(), dataType, text,
+          symbolResolver.isScaledDecimals());
+    } catch (FieldConvertError e) {
+      // a malformed value cannot be evaluated
+      return null;
+    }
+  }
+
   protected FixNode resolveGroup(PathStep pathStep, GroupRefType groupRefType) {
-    GroupType groupType = repository.getGroup(groupRefType);
-    int index = pathStep.getIndex();
-    String predicate = pathStep.getPredicate();
+    return resolveGroup(pathStep, repository.getGroup(groupRefType));
+  }
+
+  protected FixNode resolveGroup(PathStep pathStep, GroupType groupType) {
+    final int index = pathStep.getIndex();
+    final String predicate = pathStep.getPredicate();
+    final int numInGroupId = groupType.getNumInGroupId().intValue();
     if (index != PathStep.NO_INDEX) {
-      Group group;
       try {
         // Both PathStep and QuickFIX use one-based index for group entries
-        group = fieldMap.getGroup(index, (groupType.getNumInGroupId().intValue()));
+        return getInstanceScope(fieldMap.getGroup(index, numInGroupId), groupType);
       } catch (FieldNotFound e) {
         return null;
       }
-      return new GroupInstanceScope(group, groupType, repository, symbolResolver, evaluator);
     } else if (predicate != null) {
-      List<Group> groups = fieldMap.getGroups(groupType.getNumInGroupId().intValue());
-      for (Group group : groups) {
-        GroupInstanceScope scope =
-            new GroupInstanceScope(group, groupType, repository, symbolResolver, evaluator);
-        Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT);
-        local.nest(new PathStep(groupType.getName()), scope);
-        FixValue<?> fixValue;
+      final GroupKeyPredicate keyPredicate =
+          repository.getGroupKeyPredicate(groupType, predicate, evaluator);
+      final int instance = keyPredicate != null ? findInstanceByKey(groupType, keyPredicate)
+          : GroupKeyIndex.UNINDEXED;
+      if (instance == GroupKeyIndex.NO_INSTANCE) {
+        return null;
+      } else if (instance > 0) {
         try {
-          fixValue = evaluator.evaluate(predicate);
-          if (fixValue.getValue() == Boolean.TRUE) {
-            return scope;
-          }
-        } catch (ScoreException e) {
-          // TODO Auto-generated catch block
-          e.printStackTrace();
+          return getInstanceScope(fieldMap.getGroup(instance, numInGroupId), groupType);
+        } catch (FieldNotFound e) {
+          return null;
         }
       }
+      return findInstanceByPredicate(groupType, predicate);
+    } else {
       return null;
-    } else
+    }
+  }
+
+  private FieldBinding bindField(FieldRefType fieldRefType) {
+    return bindField(repository, fieldRefType);
+  }
+
+  /**
+   * Finds the first group instance whose key field equals the value of a key predicate
+   *
+   * @return one-based index of the instance, {@link GroupKeyIndex#NO_INSTANCE} if no instance
+   *         matches, or {@link GroupKeyIndex#UNINDEXED} if the predicate must be evaluated for each
+   *         instance because the value cannot be compared by key
+   */
+  private int findInstanceByKey(GroupType groupType, GroupKeyPredicate keyPredicate) {
+    final FixValue<?> value;
+    try {
+      value = evaluator.evaluate(keyPredicate.getValue());
+    } catch (ScoreException e) {
+      return GroupKeyIndex.UNINDEXED;
+    }
+    if (value == null || value.getValue() == null) {
+      return GroupKeyIndex.UNINDEXED;
+    }
+    return getGroupKeyIndex(groupType.getNumInGroupId().intValue(), groupType,
+        keyPredicate.getKeyField()).find(value.getValue());
+  }
+
+  /**
+   * Finds the first group instance for which a predicate is true, evaluating it for each instance
+   * in turn
+   *
+   * @return scope of the instance, or {@code null} if no instance matches or the predicate cannot be
+   *         compiled
+   */
+  private GroupInstanceScope findInstanceByPredicate(GroupType groupType, String predicate) {
+    final CompiledExpression expression;
+    try {
+      // codes in a predicate are bound to the code sets of the fields they are compared to
+      expression = repository.compile(predicate, null, evaluator);
+    } catch (ScoreException e) {
+      evaluator.getContext().getErrorListener().onError(e.getMessage());
       return null;
+    }
+    final Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT);
+    final PathStep step = new PathStep(groupType.getName());
+    for (Group group : fieldMap.getGroups(groupType.getNumInGroupId().intValue())) {
+      final GroupInstanceScope scope = getInstanceScope(group, groupType);
+      local.nest(step, scope);
+      try {
+        if (evaluator.test(expression)) {
+          return scope;
+        }
+      } catch (ScoreException e) {
+        // already reported to the error listener; an instance that cannot be evaluated does not
+        // match
+      } finally {
+        local.remove(step);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns an index of the instances of a group by the values of a key field, building it on first
+   * access. It is rebuilt if instances were added since.
+   */
+  private GroupKeyIndex getGroupKeyIndex(int numInGroupId, GroupType groupType,
+      FieldRefType keyField) {
+    if (groupKeyIndexes == null) {
+      groupKeyIndexes = new IdentityHashMap<>();
+    }
+    GroupKeyIndex index = groupKeyIndexes.get(keyField);
+    if (index == null || index.getInstanceCount() != fieldMap.getGroupCount(numInGroupId)) {
+      final FieldBinding keyBinding = bindField(keyField);
+      final List<Group> groups = fieldMap.getGroups(numInGroupId);
+      index = new GroupKeyIndex();
+      for (int i = 0; i < groups.size(); i++) {
+        // one-based index of the instance
+        index.add(getInstanceScope(groups.get(i), groupType).resolveField(keyBinding), i + 1);
+      }
+      groupKeyIndexes.put(keyField, index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the scope of a group instance, creating it on first access. The scope is kept for the
+   * life of this scope, so that values decoded from the instance and indexes of its own groups are
+   * reused by later references.
+   */
+  private GroupInstanceScope getInstanceScope(Group group, GroupType groupType) {
+    if (instanceScopes == null) {
+      instanceScopes = new IdentityHashMap<>();
+    }
+    GroupInstanceScope scope = instanceScopes.get(group);
+    if (scope == null) {
+      scope = new GroupInstanceScope(group, groupType, repository, symbolResolver, evaluator);
+      instanceScopes.put(group, scope);
+    }
+    return scope;
+  }
+
+  /**
+   * Binds a field reference to its datatype, resolving a code set to its underlying datatype
+   */
+  static FieldBinding bindField(RepositoryAdapter repository, FieldRefType fieldRefType) {
+    String dataTypeString = repository.getFieldDatatype(fieldRefType.getId().intValue());
+    final CompiledCodeSet codeSet = repository.getCompiledCodeSet(dataTypeString);
+    final FixType dataType =
+        codeSet != null ? codeSet.getDataType() : FixType.forName(dataTypeString);
+    return new FieldBinding(fieldRefType, dataType);
+  }
+
+  /**
+   * @return a name without a qualifying prefix
+   */
+  static String unqualified(String name) {
+    final int index = name.indexOf('.');
+    return index > 0 ? name.substring(index + 1) : name;
   }
 
 }
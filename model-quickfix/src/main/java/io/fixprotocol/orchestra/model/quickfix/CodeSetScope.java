@@ -14,28 +14,26 @@
  */
 package io.fixprotocol.orchestra.model.quickfix;
 
-import java.util.List;
-
 import io.fixprotocol._2016.fixrepository.CodeSetType;
-import io.fixprotocol._2016.fixrepository.CodeType;
 import io.fixprotocol.orchestra.model.FixNode;
-import io.fixprotocol.orchestra.model.FixType;
 import io.fixprotocol.orchestra.model.FixValue;
-import io.fixprotocol.orchestra.model.FixValueFactory;
 import io.fixprotocol.orchestra.model.ModelException;
 import io.fixprotocol.orchestra.model.PathStep;
 import io.fixprotocol.orchestra.model.Scope;
 
 /**
  * Scope for a code set
+ * <p>
+ * Codes are resolved by name to shared constant values, which must not be modified.
  * 
  * @author Don Mendelson
  *
  */
 public class CodeSetScope implements Scope {
 
-  private final CodeSetType codeSet;
-  private Scope parent;
+  private final CompiledCodeSet codeSet;
+  // a scope may be shared by threads
+  private volatile Scope parent;
 
   /**
    * Constructor
@@ -43,6 +41,15 @@ public class CodeSetScope implements Scope {
    * @param codeSet from metadata
    */
   public CodeSetScope(CodeSetType codeSet) {
+    this(new CompiledCodeSet(codeSet));
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param codeSet a compiled code set, may be shared
+   */
+  CodeSetScope(CompiledCodeSet codeSet) {
     this.codeSet = codeSet;
   }
 
@@ -108,27 +115,9 @@ public class CodeSetScope implements Scope {
    * @see
    * io.fixprotocol.orchestra.dsl.antlr.Scope#resolve(io.fixprotocol.orchestra.dsl.antlr.PathStep)
    */
-  @SuppressWarnings("unchecked")
   @Override
   public FixValue<?> resolve(PathStep pathStep) {
-    String dataTypeString = codeSet.getType();
-    FixType dataType = FixType.forName(dataTypeString);
-    String name = pathStep.getName();
-    List<CodeType> codes = codeSet.getCode();
-    for (CodeType code : codes) {
-      if (code.getName().equals(name)) {
-        @SuppressWarnings("rawtypes")
-        FixValue fixValue;
-        try {
-          fixValue = FixValueFactory.create(name, dataType, dataType.getValueClass());
-          fixValue.setValue(dataType.getValueClass().cast(dataType.fromString(code.getValue())));
-          return fixValue;
-        } catch (ModelException e) {
-          return null;
-        }
-      }
-    }
-    return null;
+    return codeSet.getConstant(pathStep.getName());
   }
 
   /*
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import io.fixprotocol._2016.fixrepository.CodeSetType;
+import io.fixprotocol._2016.fixrepository.CodeType;
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.FixValueFactory;
+import io.fixprotocol.orchestra.model.ModelException;
+
+/**
+ * Immutable representation of a code set for constant-time lookups
+ * <p>
+ * Code values of one character, such as char codes and single-digit int codes, and small int codes
+ * are held in bit sets. Other values are held in a hash set. Code names are mapped to constant
+ * values of the code set datatype.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class CompiledCodeSet {
+
+  /**
+   * Int codes below this limit are held in a bit set
+   */
+  private static final int MAX_SMALL_INT = 4096;
+
+  /**
+   * Parses a non-negative int of more than one digit without a leading zero
+   *
+   * @return the int value, or -1 if the string is not such an int or it is not less than
+   *         {@link #MAX_SMALL_INT}
+   */
+  private static int parseSmallInt(String value) {
+    final int length = value.length();
+    if (length < 2 || value.charAt(0) == '0') {
+      return -1;
+    }
+    int n = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      n = n * 10 + (c - '0');
+      if (n >= MAX_SMALL_INT) {
+        return -1;
+      }
+    }
+    return n;
+  }
+
+  private final BitSet charCodes = new BitSet();
+  private final Map<String, FixValue<?>> constants = new HashMap<>();
+  private final FixType dataType;
+  private final BitSet intCodes = new BitSet();
+  private final String name;
+  private final Set<String> otherCodes = new HashSet<>();
+
+  /**
+   * Constructor
+   *
+   * @param codeSet from metadata
+   */
+  CompiledCodeSet(CodeSetType codeSet) {
+    this.name = codeSet.getName();
+    this.dataType = FixType.forName(codeSet.getType());
+    for (CodeType code : codeSet.getCode()) {
+      final String value = code.getValue();
+      if (value == null) {
+        continue;
+      }
+      int smallInt;
+      if (value.length() == 1) {
+        charCodes.set(value.charAt(0));
+      } else if ((smallInt = parseSmallInt(value)) >= 0) {
+        intCodes.set(smallInt);
+      } else {
+        otherCodes.add(value);
+      }
+      constants.putIfAbsent(code.getName(), toConstant(code));
+    }
+  }
+
+  /**
+   * @param value a field value
+   * @return {@code true} if the value is a code of this code set
+   */
+  boolean contains(String value) {
+    if (value.length() == 1) {
+      return charCodes.get(value.charAt(0));
+    }
+    final int smallInt = parseSmallInt(value);
+    if (smallInt >= 0) {
+      return intCodes.get(smallInt);
+    }
+    return otherCodes.contains(value);
+  }
+
+  /**
+   * Tests a value in place, without decoding it to a string unless it could only be a code held in
+   * the hash set
+   *
+   * @param message a raw message
+   * @param index index of a field of the message
+   * @return {@code true} if the value of the field is a code of this code set
+   */
+  boolean contains(RawMessage message, int index) {
+    final int length = message.getValueLength(index);
+    if (length == 1) {
+      return charCodes.get(message.getValueByte(index, 0) & 0xFF);
+    }
+    if (length > 1 && message.getValueByte(index, 0) != '0') {
+      int n = 0;
+      int i = 0;
+      for (; i < length; i++) {
+        final int digit = message.getValueByte(index, i) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        n = n * 10 + digit;
+        if (n >= MAX_SMALL_INT) {
+          break;
+        }
+      }
+      if (i == length) {
+        return intCodes.get(n);
+      }
+    }
+    return !otherCodes.isEmpty() && otherCodes.contains(message.getString(index));
+  }
+
+  /**
+   * Returns the value of a code by name. The value is shared, so it must not be modified.
+   *
+   * @param codeName name of a code
+   * @return value of the code, or {@code null} if the code set has no such code
+   */
+  FixValue<?> getConstant(String codeName) {
+    return constants.get(codeName);
+  }
+
+  /**
+   * @return datatype of the code values
+   */
+  FixType getDataType() {
+    return dataType;
+  }
+
+  /**
+   * @return name of the code set
+   */
+  String getName() {
+    return name;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private FixValue<?> toConstant(CodeType code) {
+    try {
+      final FixValue fixValue =
+          FixValueFactory.create(code.getName(), dataType, dataType.getValueClass());
+      fixValue.setValue(dataType.getValueClass().cast(dataType.fromString(code.getValue())));
+      return fixValue;
+    } catch (ModelException | RuntimeException e) {
+      // a value that does not parse as the datatype cannot be resolved by name, as before
+      return null;
+    }
+  }
+
+}
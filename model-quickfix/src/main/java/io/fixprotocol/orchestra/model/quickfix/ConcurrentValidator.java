@@ -0,0 +1,185 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import io.fixprotocol._2016.fixrepository.MessageType;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+import io.fixprotocol.orchestra.model.TestException;
+import quickfix.Message;
+
+/**
+ * Thread-safe facade for validating FIX messages against an Orchestra file
+ * <p>
+ * Repository indexes and compiled validation plans, including compiled conditional rules, are
+ * immutable and shared by all threads. Each thread that validates gets its own {@link Validator}
+ * with its own SymbolResolver, so the only mutable state is small and confined to a thread. Since
+ * threads do not contend for locks while validating, throughput scales with the number of threads
+ * that validate messages concurrently, for example one per FIX session.
+ * <p>
+ * Large repeating groups may also be validated in parallel; see
+ * {@link #setParallelGroups(int, ForkJoinPool)}.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class ConcurrentValidator implements io.fixprotocol.orchestra.model.Validator<Message> {
+
+  private volatile ForkJoinPool groupPool;
+  private final ThreadLocal<Validator> groupWorkers;
+  private volatile int parallelGroupThreshold = Integer.MAX_VALUE;
+  private final Map<MessageType, ValidationPlan> plans = new ConcurrentHashMap<>();
+  private final RepositoryAdapter repositoryAdapter;
+  private final ThreadLocal<ValidationResult> results =
+      ThreadLocal.withInitial(ValidationResult::new);
+  private final ThreadLocal<Validator> validators;
+
+  /**
+   * Constructor
+   *
+   * @param repositoryAdapter repository wrapper, shared by all threads
+   */
+  public ConcurrentValidator(RepositoryAdapter repositoryAdapter) {
+    this(repositoryAdapter, SymbolResolver::new);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param repositoryAdapter repository wrapper, shared by all threads
+   * @param symbolResolverFactory creates a SymbolResolver for each thread, for example to set
+   *        options or to add variables
+   */
+  public ConcurrentValidator(RepositoryAdapter repositoryAdapter,
+      Supplier<SymbolResolver> symbolResolverFactory) {
+    this.repositoryAdapter = repositoryAdapter;
+    this.validators = ThreadLocal.withInitial(
+        () -> new Validator(repositoryAdapter, symbolResolverFactory.get(), plans));
+    this.groupWorkers = ThreadLocal.withInitial(
+        () -> new Validator(repositoryAdapter, symbolResolverFactory.get(), plans));
+  }
+
+  /**
+   * Compiles validation plans for all messages in the Repository, so that the first message of
+   * each type is not delayed by compilation. Otherwise, a plan is compiled on first use by any
+   * thread and then shared.
+   */
+  public void compilePlans() {
+    validators.get().compilePlans();
+  }
+
+  /**
+   * @return the repository wrapper shared by all threads
+   */
+  public RepositoryAdapter getRepositoryAdapter() {
+    return repositoryAdapter;
+  }
+
+  /**
+   * Validates the instances of large repeating groups of a {@link Message} in parallel. Group
+   * instances are validated by Validators of pool threads that are distinct from the ones that
+   * validate whole messages, so a pool may be shared with threads that call this validator.
+   *
+   * @param threshold least number of instances of a group to validate in parallel, or
+   *        {@link Integer#MAX_VALUE} to validate all groups on the calling thread, as by default
+   * @param pool runs group tasks. May be {@code null} if threshold is {@link Integer#MAX_VALUE}.
+   * @throws IllegalArgumentException if threshold is not positive
+   * @see Validator#setParallelGroups(int, ForkJoinPool, Supplier)
+   */
+  public void setParallelGroups(int threshold, ForkJoinPool pool) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("Threshold must be positive");
+    }
+    this.groupPool = pool;
+    this.parallelGroupThreshold = threshold;
+  }
+
+  /**
+   * Validates a message on the calling thread
+   *
+   * @throws TestException if a message is invalid
+   */
+  @Override
+  public void validate(Message message, MessageType messageType) throws TestException {
+    final ValidationResult result = results.get();
+    if (!validate(message, messageType, result)) {
+      throw result.toTestException();
+    }
+  }
+
+  /**
+   * Validates a message on the calling thread, reporting errors in a result instead of throwing
+   * an exception
+   *
+   * @param message a message to validate
+   * @param messageType definition of the message
+   * @param result receives errors. It is reset first. It must not be shared by threads.
+   * @return {@code true} if the message is valid
+   */
+  public boolean validate(Message message, MessageType messageType, ValidationResult result) {
+    final Validator validator = validators.get();
+    // always pushed, so that restoring the threshold to Integer.MAX_VALUE disables parallelism
+    validator.setParallelGroups(parallelGroupThreshold, groupPool, groupWorkers);
+    return validator.validate(message, messageType, result);
+  }
+
+  /**
+   * Validates a raw message in a byte array on the calling thread
+   *
+   * @param array holds a message in tag=value encoding, delimited by SOH
+   * @param offset position of the first byte of the message
+   * @param length number of bytes of the message
+   * @param messageType definition of the message
+   * @param result receives errors. It is reset first. It must not be shared by threads.
+   * @return {@code true} if the message is valid
+   * @throws IllegalArgumentException if the message is malformed
+   */
+  public boolean validate(byte[] array, int offset, int length, MessageType messageType,
+      ValidationResult result) {
+    return validators.get().validate(array, offset, length, messageType, result);
+  }
+
+  /**
+   * Validates a raw message in a buffer, from its position to its limit, on the calling thread
+   *
+   * @param buffer holds a message in tag=value encoding, delimited by SOH. It must not be shared by
+   *        threads while it is validated.
+   * @param messageType definition of the message
+   * @param result receives errors. It is reset first. It must not be shared by threads.
+   * @return {@code true} if the message is valid
+   * @throws IllegalArgumentException if the message is malformed
+   */
+  public boolean validate(ByteBuffer buffer, MessageType messageType, ValidationResult result) {
+    return validators.get().validate(buffer, messageType, result);
+  }
+
+  /**
+   * Validates a parsed raw message on the calling thread
+   *
+   * @param message a parsed message. It must not be shared by threads.
+   * @param messageType definition of the message
+   * @param result receives errors. It is reset first. It must not be shared by threads.
+   * @return {@code true} if the message is valid
+   */
+  public boolean validate(RawMessage message, MessageType messageType, ValidationResult result) {
+    return validators.get().validate(message, messageType, result);
+  }
+
+}
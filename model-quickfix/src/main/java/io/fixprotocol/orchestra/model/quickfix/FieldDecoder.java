@@ -0,0 +1,151 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import io.fixprotocol._2016.fixrepository.FieldRefType;
+import io.fixprotocol.orchestra.model.BooleanFixValue;
+import io.fixprotocol.orchestra.model.CharFixValue;
+import io.fixprotocol.orchestra.model.DecimalFixValue;
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.FixValueFactory;
+import io.fixprotocol.orchestra.model.IntFixValue;
+import io.fixprotocol.orchestra.model.ModelException;
+import quickfix.FieldConvertError;
+import quickfix.field.converter.BooleanConverter;
+import quickfix.field.converter.CharConverter;
+import quickfix.field.converter.DecimalConverter;
+import quickfix.field.converter.IntConverter;
+import quickfix.field.converter.UtcDateOnlyConverter;
+import quickfix.field.converter.UtcTimeOnlyConverter;
+import quickfix.field.converter.UtcTimestampConverter;
+
+/**
+ * Decodes the text of a field to a {@link FixValue} by its datatype
+ * <p>
+ * Shared by scopes of QuickFIX/J messages and raw messages, so that a field is decoded the same
+ * way whichever form a message takes. Data fields are not decoded from text, since their value may
+ * contain any byte.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class FieldDecoder {
+
+  /**
+   * Decodes the text of a field
+   *
+   * @param name name of the field
+   * @param dataType datatype of the field, or the underlying datatype of its code set
+   * @param text value of the field as it is encoded in a message
+   * @param isScaledDecimals {@code true} if decimal values are represented as scaled longs
+   * @return a value, or {@code null} if the datatype is not supported or is data
+   * @throws FieldConvertError if the text is not valid for the datatype
+   */
+  static FixValue<?> decode(String name, FixType dataType, String text, boolean isScaledDecimals)
+      throws FieldConvertError {
+    switch (dataType) {
+      case StringType:
+      case MultipleCharValue:
+      case MultipleStringValue:
+      case Country:
+      case Currency:
+      case Exchange:
+      case MonthYear:
+      case XMLData:
+      case Language:
+        return new FixValue<>(name, dataType, text);
+      case BooleanType:
+        return new BooleanFixValue(name, dataType, BooleanConverter.convert(text));
+      case charType:
+        return new CharFixValue(name, dataType, CharConverter.convert(text));
+      case intType:
+      case Length:
+      case TagNum:
+      case SeqNum:
+      case NumInGroup:
+      case DayOfMonth:
+        return new IntFixValue(name, dataType, IntConverter.convert(text));
+      case Amt:
+      case floatType:
+      case Qty:
+      case Price:
+      case PriceOffset:
+      case Percentage:
+        if (isScaledDecimals) {
+          final DecimalFixValue fixValue = new DecimalFixValue(name, dataType);
+          fixValue.parse(text);
+          return fixValue;
+        } else {
+          return new FixValue<>(name, dataType, DecimalConverter.convert(text));
+        }
+      case UTCTimestamp:
+      case TZTimestamp:
+        return new FixValue<>(name, dataType, UtcTimestampConverter.convertToLocalDateTime(text));
+      case UTCTimeOnly:
+      case TZTimeOnly:
+      case LocalMktTime:
+        return new FixValue<>(name, dataType, UtcTimeOnlyConverter.convertToLocalTime(text));
+      case UTCDateOnly:
+      case LocalMktDate:
+        return new FixValue<>(name, dataType, UtcDateOnlyConverter.convertToLocalDate(text));
+      default:
+        // todo Duration
+        return null;
+    }
+  }
+
+  /**
+   * Returns the default value of a field that is not present
+   *
+   * @param fieldRefType reference to a field, which may specify a default value
+   * @param dataType datatype of the field, or the underlying datatype of its code set
+   * @return default value, or {@code null} if the field has no default
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  static FixValue<?> defaultValue(FieldRefType fieldRefType, FixType dataType) {
+    final String defaultValue = fieldRefType.getValue();
+    if (defaultValue != null) {
+      final Class<?> valueClass = dataType.getValueClass();
+      try {
+        final FixValue fixValue = FixValueFactory.create(null, dataType, valueClass);
+        fixValue.setValue(valueClass.cast(dataType.fromString(defaultValue)));
+        return fixValue;
+      } catch (ModelException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a value to hold a field that is not present
+   *
+   * @param name name of the field
+   * @param dataType datatype of the field, or the underlying datatype of its code set
+   * @return a value without content
+   */
+  static FixValue<?> emptyValue(String name, FixType dataType) {
+    try {
+      return FixValueFactory.create(name, dataType, dataType.getValueClass());
+    } catch (ModelException e) {
+      return new FixValue<>(name, dataType);
+    }
+  }
+
+  private FieldDecoder() {
+
+  }
+}
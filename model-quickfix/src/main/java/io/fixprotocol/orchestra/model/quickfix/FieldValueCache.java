@@ -0,0 +1,107 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.Arrays;
+
+import io.fixprotocol.orchestra.model.FixValue;
+
+/**
+ * Decoded values of the fields of a message or group, keyed by tag
+ * <p>
+ * A field is decoded at most once while its scope is in use, no matter how many expressions
+ * reference it. An absent field is cached too, as a {@code null} value or its default. Each entry
+ * may record the source of its value, such as the text held by a message, so that a stale entry is
+ * detected by identity if the field is set again. Since an expression references only a few
+ * fields, entries are searched sequentially, and no tag is boxed.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class FieldValueCache {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private int count = 0;
+  private Object[] sources;
+  private int[] tags;
+  private FixValue<?>[] values;
+
+  /**
+   * Removes all entries, for example when a scope is reused for another message
+   */
+  void clear() {
+    if (count > 0) {
+      Arrays.fill(sources, 0, count, null);
+      Arrays.fill(values, 0, count, null);
+      count = 0;
+    }
+  }
+
+  /**
+   * @param index position of an entry returned by {@link #indexOf(int)}
+   * @return source of the decoded value, or {@code null} if not recorded
+   */
+  Object getSource(int index) {
+    return sources[index];
+  }
+
+  /**
+   * @param index position of an entry returned by {@link #indexOf(int)}
+   * @return decoded value, or {@code null} if the field is absent and has no default
+   */
+  FixValue<?> getValue(int index) {
+    return values[index];
+  }
+
+  /**
+   * @param tag field tag
+   * @return position of the entry for a tag, or {@code -1} if it has not been decoded
+   */
+  int indexOf(int tag) {
+    for (int i = 0; i < count; i++) {
+      if (tags[i] == tag) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Adds an entry for a tag, or replaces the entry if the tag is already cached
+   *
+   * @param tag field tag
+   * @param source source of the value, or {@code null}
+   * @param value decoded value, or {@code null} if the field is absent and has no default
+   */
+  void put(int tag, Object source, FixValue<?> value) {
+    int index = indexOf(tag);
+    if (index < 0) {
+      if (tags == null) {
+        tags = new int[INITIAL_CAPACITY];
+        sources = new Object[INITIAL_CAPACITY];
+        values = new FixValue<?>[INITIAL_CAPACITY];
+      } else if (count == tags.length) {
+        tags = Arrays.copyOf(tags, count * 2);
+        sources = Arrays.copyOf(sources, count * 2);
+        values = Arrays.copyOf(values, count * 2);
+      }
+      index = count++;
+      tags[index] = tag;
+    }
+    sources[index] = source;
+    values[index] = value;
+  }
+}
@@ -14,14 +14,13 @@
  */
 package io.fixprotocol.orchestra.model.quickfix;
 
-import java.util.List;
 
 import io.fixprotocol._2016.fixrepository.FieldRefType;
-import io.fixprotocol._2016.fixrepository.GroupRefType;
 import io.fixprotocol._2016.fixrepository.GroupType;
 
 import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
 
+import io.fixprotocol.orchestra.model.BindableScope;
 import io.fixprotocol.orchestra.model.FixNode;
 import io.fixprotocol.orchestra.model.FixValue;
 import io.fixprotocol.orchestra.model.ModelException;
@@ -35,7 +34,7 @@ import quickfix.Group;
  * @author Don Mendelson
  *
  */
-class GroupInstanceScope extends AbstractMessageScope implements Scope {
+class GroupInstanceScope extends AbstractMessageScope implements BindableScope {
 
   private final GroupType groupType;
   private Scope parent;
@@ -54,15 +53,10 @@ class GroupInstanceScope extends AbstractMessageScope implements Scope {
    */
   @Override
   public FixValue<?> assign(PathStep pathStep, FixValue<?> fixValue) throws ModelException {
-    List<Object> members = groupType.getComponentRefOrGroupRefOrFieldRef();
-    for (Object member : members) {
-      if (member instanceof FieldRefType) {
-        FieldRefType fieldRefType = (FieldRefType) member;
-        if (fieldRefType.getName().equals(pathStep.getName())) {
-          assignField(fieldRefType, fixValue);
-          return fixValue;
-        }
-      }
+    final Object member = getLayout().getMember(pathStep.getName());
+    if (member instanceof FieldRefType) {
+      assignField((FieldRefType) member, fixValue);
+      return fixValue;
     }
     return null;
   }
@@ -77,6 +71,14 @@ class GroupInstanceScope extends AbstractMessageScope implements Scope {
     return groupType.getName();
   }
 
+  /**
+   * Paths are bound to the group type
+   */
+  @Override
+  public Object getStructure() {
+    return groupType;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -96,27 +98,7 @@ class GroupInstanceScope extends AbstractMessageScope implements Scope {
    */
   @Override
   public FixNode resolve(PathStep pathStep) {
-    String unqualified = pathStep.getName();
-    int index = unqualified.indexOf('.');
-    if (index > 0) {
-      unqualified = pathStep.getName().substring(index+1);
-    }
-
-    List<Object> members = groupType.getComponentRefOrGroupRefOrFieldRef();
-    for (Object member : members) {
-      if (member instanceof FieldRefType) {
-        FieldRefType fieldRefType = (FieldRefType) member;
-        if (fieldRefType.getName().equals(unqualified)) {
-          return resolveField(fieldRefType);
-        }
-      } else if (member instanceof GroupRefType) {
-        GroupRefType groupRefType = (GroupRefType) member;
-        if (groupRefType.getName().equals(unqualified)) {
-          return resolveGroup(pathStep, groupRefType);
-        }
-      }
-    }
-    return null;
+    return resolveMember(pathStep);
   }
 
   /* (non-Javadoc)
@@ -129,6 +111,19 @@ class GroupInstanceScope extends AbstractMessageScope implements Scope {
     }
   }
 
+  @Override
+  protected MessageLayout getLayout() {
+    return getRepository().getLayout(groupType);
+  }
+
+  /**
+   * A member of a group may be qualified by the group name
+   */
+  @Override
+  protected String memberName(PathStep pathStep) {
+    return unqualified(pathStep.getName());
+  }
+
   /* (non-Javadoc)
    * @see io.fixprotocol.orchestra.dsl.antlr.Scope#remove(io.fixprotocol.orchestra.dsl.antlr.PathStep)
    */
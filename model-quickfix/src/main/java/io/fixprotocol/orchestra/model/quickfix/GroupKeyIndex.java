@@ -0,0 +1,94 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.fixprotocol.orchestra.model.FixNode;
+import io.fixprotocol.orchestra.model.FixValue;
+
+/**
+ * First instance of a repeating group by each value of a key field
+ * <p>
+ * An instance is identified by a position assigned by the scope that builds the index, such as a
+ * one-based instance number or the index of the instance in a raw message.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class GroupKeyIndex {
+
+  /**
+   * No instance has the key value
+   */
+  static final int NO_INSTANCE = -1;
+
+  /**
+   * The value cannot be compared by key, so the predicate must be evaluated for each instance
+   */
+  static final int UNINDEXED = -2;
+
+  private int instanceCount = 0;
+  private final Map<Object, Integer> instances = new HashMap<>();
+  private boolean isMixed = false;
+  /**
+   * Class of key values, or {@code null} if no instance has a key
+   */
+  private Class<?> keyClass;
+
+  /**
+   * Adds an instance in order
+   *
+   * @param key value of the key field of the instance, or {@code null} if not present
+   * @param position non-negative position of the instance
+   */
+  void add(FixNode key, int position) {
+    instanceCount++;
+    if (key instanceof FixValue && ((FixValue<?>) key).getValue() != null) {
+      final Object value = ((FixValue<?>) key).getValue();
+      if (keyClass == null) {
+        keyClass = value.getClass();
+      } else if (keyClass != value.getClass()) {
+        isMixed = true;
+      }
+      instances.putIfAbsent(GroupKeyPredicate.toKey(value), position);
+    }
+  }
+
+  /**
+   * Finds the first instance whose key equals a value
+   *
+   * @param value value to match
+   * @return position of the instance, {@link #NO_INSTANCE} if no instance matches, or
+   *         {@link #UNINDEXED} if instances have keys of a different class or of different classes
+   */
+  int find(Object value) {
+    if (instanceCount == 0) {
+      return NO_INSTANCE;
+    } else if (isMixed || keyClass != value.getClass()) {
+      return UNINDEXED;
+    }
+    final Integer position = instances.get(GroupKeyPredicate.toKey(value));
+    return position != null ? position : NO_INSTANCE;
+  }
+
+  /**
+   * @return number of instances added
+   */
+  int getInstanceCount() {
+    return instanceCount;
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.math.BigDecimal;
+
+import io.fixprotocol._2016.fixrepository.FieldRefType;
+import io.fixprotocol._2016.fixrepository.GroupType;
+import io.fixprotocol.orchestra.dsl.antlr.CompiledExpression;
+import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * A group predicate of the form {@code [Key==expr]} that selects an instance by the value of one of
+ * its fields, where the expression does not depend on the instance
+ * <p>
+ * Since the value to match is the same for every instance, it is evaluated once, and instances can
+ * be found through an index of key values instead of evaluating the predicate for each instance.
+ * A predicate is immutable, so it may be shared.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class GroupKeyPredicate {
+
+  /**
+   * Compiles a predicate if it is a simple key equality
+   *
+   * @param predicate text of a predicate, in the form {@code ID==expr}
+   * @param groupType group whose instances are selected
+   * @param repository FIX Repository contains metadata
+   * @param evaluator compiles the value expression
+   * @return a key predicate, or {@code null} if the predicate must be evaluated for each instance
+   */
+  static GroupKeyPredicate compile(String predicate, GroupType groupType,
+      RepositoryAdapter repository, Evaluator evaluator) {
+    final int operator = predicate.indexOf("==");
+    if (operator <= 0) {
+      return null;
+    }
+    final String keyName = predicate.substring(0, operator).trim();
+    final String valueText = predicate.substring(operator + 2).trim();
+    if (valueText.contains("==")) {
+      return null;
+    }
+    final Object member = repository.getLayout(groupType).getMember(keyName);
+    if (!(member instanceof FieldRefType)) {
+      return null;
+    }
+    final FieldRefType keyField = (FieldRefType) member;
+    try {
+      // codes are bound to the code set of the key field, as when the whole predicate is compiled
+      final CompiledExpression value = repository.compile(valueText,
+          repository.getCodeSetScope(repository.getFieldDatatype(keyField.getId().intValue())),
+          evaluator);
+      // an unqualified name could refer to a field of the instance
+      if (value.isAssignment() || value.getScopes().contains(SymbolResolver.LOCAL_ROOT.getName())) {
+        return null;
+      }
+      return new GroupKeyPredicate(keyField, value);
+    } catch (ScoreException e) {
+      // reported when the predicate is evaluated for each instance
+      return null;
+    }
+  }
+
+  /**
+   * Normalizes a value to a key of an index, so that keys are equal if values compare equal
+   *
+   * @param value a field value
+   * @return an index key
+   */
+  static Object toKey(Object value) {
+    if (value instanceof BigDecimal) {
+      final BigDecimal decimal = (BigDecimal) value;
+      return decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+    }
+    return value;
+  }
+
+  private final FieldRefType keyField;
+  private final CompiledExpression value;
+
+  private GroupKeyPredicate(FieldRefType keyField, CompiledExpression value) {
+    this.keyField = keyField;
+    this.value = value;
+  }
+
+  /**
+   * @return the key field of the group
+   */
+  FieldRefType getKeyField() {
+    return keyField;
+  }
+
+  /**
+   * @return compiled expression of the value to match
+   */
+  CompiledExpression getValue() {
+    return value;
+  }
+
+}
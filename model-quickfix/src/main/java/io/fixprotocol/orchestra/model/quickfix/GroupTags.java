@@ -0,0 +1,80 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of the tags that may occur in an instance of a repeating group, including those
+ * of its components and nested groups
+ * <p>
+ * The delimiter, the first field of the group, begins each instance. An instance extends until the
+ * next delimiter or a tag that is not a member of the group.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class GroupTags {
+
+  private final int delimiter;
+  private final int[] tags;
+
+  /**
+   * Constructor
+   *
+   * @param memberTags tags in the order of the group definition
+   */
+  GroupTags(int[] memberTags) {
+    this.delimiter = memberTags.length > 0 ? memberTags[0] : -1;
+    this.tags = memberTags.clone();
+    Arrays.sort(this.tags);
+  }
+
+  /**
+   * @param tag a field tag
+   * @return {@code true} if the tag may occur in an instance of the group
+   */
+  boolean contains(int tag) {
+    return Arrays.binarySearch(tags, tag) >= 0;
+  }
+
+  /**
+   * @return tag of the first field of each instance, or {@code -1} if the group has no members
+   */
+  int getDelimiter() {
+    return delimiter;
+  }
+
+  /**
+   * Finds the end of a group instance in a raw message
+   *
+   * @param message raw message
+   * @param start index of the delimiter field of the instance
+   * @param to index after the last field that may belong to the group
+   * @return index after the last field of the instance
+   */
+  int instanceEnd(RawMessage message, int start, int to) {
+    int index = start + 1;
+    while (index < to) {
+      final int tag = message.getTag(index);
+      if (tag == delimiter || !contains(tag)) {
+        break;
+      }
+      index++;
+    }
+    return index;
+  }
+
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import io.fixprotocol.orchestra.model.quickfix.ValidationResult.ErrorCode;
+
+/**
+ * Aggregated results of validating FIX message logs
+ * <p>
+ * Counts are kept per message type and per message type, tag and kind of error, so the size of a
+ * report is bounded by the size of the Repository, not by the number of messages validated. A
+ * report is not thread-safe; each task of a parallel validation accumulates its own report, and
+ * reports are merged.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class LogValidationReport {
+
+  /**
+   * Key of a count of violations
+   */
+  private static final class Violation implements Comparable<Violation> {
+    private final ErrorCode errorCode;
+    private final String messageType;
+    private final int tag;
+
+    Violation(String messageType, int tag, ErrorCode errorCode) {
+      this.messageType = messageType;
+      this.tag = tag;
+      this.errorCode = errorCode;
+    }
+
+    @Override
+    public int compareTo(Violation other) {
+      int result = messageType.compareTo(other.messageType);
+      if (result == 0) {
+        result = Integer.compare(tag, other.tag);
+      }
+      if (result == 0) {
+        result = errorCode.compareTo(other.errorCode);
+      }
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Violation)) {
+        return false;
+      }
+      final Violation other = (Violation) obj;
+      return tag == other.tag && errorCode == other.errorCode
+          && messageType.equals(other.messageType);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(messageType, tag, errorCode);
+    }
+  }
+
+  private long byteCount = 0;
+  private long elapsedNanos = 0;
+  private long invalidMessageCount = 0;
+  private long malformedMessageCount = 0;
+  private long messageCount = 0;
+  /**
+   * Counts of messages and invalid messages by message type
+   */
+  private final Map<String, long[]> messageTypeCounts = new TreeMap<>();
+  private long unknownMessageTypeCount = 0;
+  private final Map<Violation, long[]> violationCounts = new TreeMap<>();
+
+  /**
+   * @return number of bytes of log files read
+   */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * @return elapsed time of the validation in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * @return number of messages that failed validation
+   */
+  public long getInvalidMessageCount() {
+    return invalidMessageCount;
+  }
+
+  /**
+   * @param messageType name of a message type
+   * @return number of messages of the type that failed validation
+   */
+  public long getInvalidMessageCount(String messageType) {
+    final long[] counts = messageTypeCounts.get(messageType);
+    return counts != null ? counts[1] : 0;
+  }
+
+  /**
+   * @return number of log entries that could not be parsed as messages
+   */
+  public long getMalformedMessageCount() {
+    return malformedMessageCount;
+  }
+
+  /**
+   * @return number of messages validated
+   */
+  public long getMessageCount() {
+    return messageCount;
+  }
+
+  /**
+   * @param messageType name of a message type
+   * @return number of messages of the type validated
+   */
+  public long getMessageCount(String messageType) {
+    final long[] counts = messageTypeCounts.get(messageType);
+    return counts != null ? counts[0] : 0;
+  }
+
+  /**
+   * @return messages validated per second of elapsed time
+   */
+  public double getMessagesPerSecond() {
+    return elapsedNanos > 0 ? messageCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos
+        : 0.0;
+  }
+
+  /**
+   * @return number of messages whose MsgType is not defined in the Repository
+   */
+  public long getUnknownMessageTypeCount() {
+    return unknownMessageTypeCount;
+  }
+
+  /**
+   * @param messageType name of a message type
+   * @param tag field tag
+   * @param errorCode kind of error
+   * @return number of violations
+   */
+  public long getViolationCount(String messageType, int tag, ErrorCode errorCode) {
+    final long[] count = violationCounts.get(new Violation(messageType, tag, errorCode));
+    return count != null ? count[0] : 0;
+  }
+
+  /**
+   * Prints violation counts and throughput
+   *
+   * @param out output stream
+   */
+  public void print(PrintStream out) {
+    out.format("Messages: %d valid: %d invalid: %d malformed: %d unknown type: %d%n",
+        messageCount, messageCount - invalidMessageCount, invalidMessageCount,
+        malformedMessageCount, unknownMessageTypeCount);
+    out.println("Message type counts:");
+    for (Map.Entry<String, long[]> entry : messageTypeCounts.entrySet()) {
+      out.format("  %s messages: %d invalid: %d%n", entry.getKey(), entry.getValue()[0],
+          entry.getValue()[1]);
+    }
+    if (!violationCounts.isEmpty()) {
+      out.println("Violations:");
+      for (Map.Entry<Violation, long[]> entry : violationCounts.entrySet()) {
+        final Violation violation = entry.getKey();
+        out.format("  %s tag %d %s: %d%n", violation.messageType, violation.tag,
+            violation.errorCode, entry.getValue()[0]);
+      }
+    }
+    final double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+    out.format("Elapsed: %.3f s, %.0f messages/s, %.1f MB/s%n", seconds, getMessagesPerSecond(),
+        seconds > 0 ? byteCount / seconds / (1024 * 1024) : 0.0);
+  }
+
+  void addBytes(long bytes) {
+    byteCount += bytes;
+  }
+
+  void addMalformed() {
+    malformedMessageCount++;
+  }
+
+  /**
+   * Counts a validated message and its errors
+   */
+  void addResult(ValidationResult result) {
+    messageCount++;
+    final long[] counts =
+        messageTypeCounts.computeIfAbsent(result.getMessageType(), k -> new long[2]);
+    counts[0]++;
+    if (result.hasErrors()) {
+      invalidMessageCount++;
+      counts[1]++;
+      for (int i = 0; i < result.getErrorCount(); i++) {
+        violationCounts.computeIfAbsent(
+            new Violation(result.getMessageType(), result.getTag(i), result.getErrorCode(i)),
+            k -> new long[1])[0]++;
+      }
+    }
+  }
+
+  void addUnknownMessageType() {
+    unknownMessageTypeCount++;
+  }
+
+  /**
+   * Adds the counts of another report to this one
+   */
+  void merge(LogValidationReport other) {
+    byteCount += other.byteCount;
+    messageCount += other.messageCount;
+    invalidMessageCount += other.invalidMessageCount;
+    malformedMessageCount += other.malformedMessageCount;
+    unknownMessageTypeCount += other.unknownMessageTypeCount;
+    for (Map.Entry<String, long[]> entry : other.messageTypeCounts.entrySet()) {
+      final long[] counts = messageTypeCounts.computeIfAbsent(entry.getKey(), k -> new long[2]);
+      counts[0] += entry.getValue()[0];
+      counts[1] += entry.getValue()[1];
+    }
+    for (Map.Entry<Violation, long[]> entry : other.violationCounts.entrySet()) {
+      violationCounts.computeIfAbsent(entry.getKey(), k -> new long[1])[0] +=
+          entry.getValue()[0];
+    }
+  }
+
+  void setElapsedNanos(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+}
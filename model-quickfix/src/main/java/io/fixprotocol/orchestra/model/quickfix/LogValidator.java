@@ -0,0 +1,366 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import io.fixprotocol._2016.fixrepository.MessageType;
+import io.fixprotocol._2016.fixrepository.Repository;
+
+/**
+ * Validates FIX message logs offline against an Orchestra file
+ * <p>
+ * Log files are in the format written by QuickFIX/J file logs: one message per line, optionally
+ * preceded by a timestamp. Lines that do not contain a message are skipped.
+ * <p>
+ * Each file is split into chunks on line boundaries. Chunks are memory-mapped and validated in
+ * parallel by a fork/join pool, each as a {@link RawMessage} without building a QuickFIX/J message.
+ * Each task accumulates counts in its own {@link LogValidationReport}, and reports are merged as
+ * tasks join. Heap use depends on the number of threads and the size of the Repository, not on the
+ * size of the logs.
+ *
+ * @author Don Mendelson
+ *
+ */
+public class LogValidator {
+
+  /**
+   * A range of a log file that begins at the start of a line
+   */
+  private static final class Chunk {
+    final long end;
+    final Path file;
+    final long start;
+
+    Chunk(Path file, long start, long end) {
+      this.file = file;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Validates a range of chunks, splitting it until one chunk remains
+   */
+  private final class ValidateTask extends RecursiveTask<LogValidationReport> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Chunk> chunks;
+    private final int from;
+    private final int to;
+
+    ValidateTask(List<Chunk> chunks, int from, int to) {
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected LogValidationReport compute() {
+      if (to - from == 1) {
+        try {
+          return validateChunk(chunks.get(from));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      final int middle = (from + to) >>> 1;
+      final ValidateTask left = new ValidateTask(chunks, from, middle);
+      left.fork();
+      final LogValidationReport report = new ValidateTask(chunks, middle, to).compute();
+      report.merge(left.join());
+      return report;
+    }
+  }
+
+  /**
+   * Default size of a chunk, 32 MB
+   */
+  public static final long DEFAULT_CHUNK_SIZE = 32L * 1024 * 1024;
+
+  private static final byte[] BEGIN_STRING = {'8', '=', 'F', 'I', 'X'};
+  private static final int MSG_TYPE_TAG = 35;
+  /**
+   * Size of the window searched for a line boundary near a chunk split
+   */
+  private static final int SEARCH_WINDOW = 64 * 1024;
+
+  /**
+   * Runs a LogValidator with command line arguments
+   *
+   * @param args command line arguments. The first argument is the name of a FIX Orchestra file.
+   *        Following arguments are names of QuickFIX/J message log files to validate.
+   * @throws Exception if a file cannot be read
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      usage();
+    } else {
+      final Repository repository;
+      try (InputStream inputStream = new FileInputStream(args[0])) {
+        repository = unmarshal(inputStream);
+      }
+      final LogValidator logValidator = new LogValidator(new RepositoryAdapter(repository));
+      final List<Path> logFiles = new ArrayList<>();
+      for (int i = 1; i < args.length; i++) {
+        logFiles.add(new File(args[i]).toPath());
+      }
+      logValidator.validate(logFiles).print(System.out);
+    }
+  }
+
+  /**
+   * Prints application usage
+   */
+  public static void usage() {
+    System.out.println("Usage: LogValidator <orchestra-file> <log-file>...");
+  }
+
+  private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (buffer.get(i) == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOfBeginString(ByteBuffer buffer, int from, int to) {
+    final int last = to - BEGIN_STRING.length;
+    outer: for (int i = from; i <= last; i++) {
+      for (int j = 0; j < BEGIN_STRING.length; j++) {
+        if (buffer.get(i + j) != BEGIN_STRING[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private static Repository unmarshal(InputStream inputFile) throws JAXBException {
+    final JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
+    final Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+    return (Repository) jaxbUnmarshaller.unmarshal(inputFile);
+  }
+
+  private long chunkSize = DEFAULT_CHUNK_SIZE;
+  private final IntPredicate isDataField;
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private final RepositoryAdapter repositoryAdapter;
+  private final ConcurrentValidator validator;
+
+  /**
+   * Constructor
+   *
+   * @param repositoryAdapter repository wrapper
+   */
+  public LogValidator(RepositoryAdapter repositoryAdapter) {
+    this.repositoryAdapter = repositoryAdapter;
+    this.validator = new ConcurrentValidator(repositoryAdapter);
+    this.isDataField = repositoryAdapter::isDataField;
+  }
+
+  /**
+   * @return maximum size of a chunk of a log file validated by one task
+   */
+  public long getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @return number of threads that validate concurrently
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sets the size of a chunk of a log file validated by one task. A chunk is extended to the end of
+   * the line at its boundary. A smaller chunk balances work better; a larger one has less overhead.
+   * Validation fails if an extended chunk exceeds {@link Integer#MAX_VALUE} bytes.
+   *
+   * @param chunkSize size in bytes, at most {@link Integer#MAX_VALUE}
+   */
+  public void setChunkSize(long chunkSize) {
+    if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * @param parallelism number of threads that validate concurrently
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Validates message log files
+   *
+   * @param logFiles files to validate
+   * @return aggregated counts of messages and violations, and throughput
+   * @throws IOException if a file cannot be read, or a line is too long to fit in a chunk
+   */
+  public LogValidationReport validate(List<Path> logFiles) throws IOException {
+    // plans are compiled up front so that throughput reflects validation only
+    validator.compilePlans();
+    final long startTime = System.nanoTime();
+    final List<Chunk> chunks = new ArrayList<>();
+    for (Path logFile : logFiles) {
+      addChunks(logFile, chunks);
+    }
+    final LogValidationReport report;
+    if (chunks.isEmpty()) {
+      report = new LogValidationReport();
+    } else {
+      final ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        report = pool.invoke(new ValidateTask(chunks, 0, chunks.size()));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      } finally {
+        pool.shutdown();
+      }
+    }
+    report.setElapsedNanos(System.nanoTime() - startTime);
+    return report;
+  }
+
+  /**
+   * Splits a file into chunks that begin at the start of a line
+   *
+   * @throws IOException if a chunk extended to the end of a line is too large to be mapped
+   */
+  private void addChunks(Path logFile, List<Chunk> chunks) throws IOException {
+    try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      long start = 0;
+      while (start < size) {
+        long end = start + chunkSize;
+        if (end >= size) {
+          end = size;
+        } else {
+          end = nextLineStart(channel, end, size);
+          // a chunk is mapped as one buffer, so its length must fit an int
+          if (end - start > Integer.MAX_VALUE) {
+            throw new IOException(String.format(
+                "Chunk of %s at position %d extends to %d bytes to end of line; exceeds maximum %d",
+                logFile, start, end - start, Integer.MAX_VALUE));
+          }
+        }
+        chunks.add(new Chunk(logFile, start, end));
+        start = end;
+      }
+    }
+  }
+
+  /**
+   * @return position after the first line feed at or after a position, or the end of the file
+   */
+  private long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+    while (position < size) {
+      final int length = (int) Math.min(SEARCH_WINDOW, size - position);
+      final MappedByteBuffer window = channel.map(MapMode.READ_ONLY, position, length);
+      final int index = indexOf(window, (byte) '\n', 0, length);
+      if (index >= 0) {
+        return position + index + 1;
+      }
+      position += length;
+    }
+    return size;
+  }
+
+  private LogValidationReport validateChunk(Chunk chunk) throws IOException {
+    final LogValidationReport report = new LogValidationReport();
+    final RawMessage message = new RawMessage();
+    final ValidationResult result = new ValidationResult();
+    final int length = (int) (chunk.end - chunk.start);
+    final MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(chunk.file, StandardOpenOption.READ)) {
+      // a mapping remains valid after its channel is closed
+      mapped = channel.map(MapMode.READ_ONLY, chunk.start, length);
+    }
+    report.addBytes(length);
+    final ByteBuffer view = mapped.duplicate();
+    int lineStart = 0;
+    while (lineStart < length) {
+      int lineEnd = indexOf(mapped, (byte) '\n', lineStart, length);
+      final int next = lineEnd >= 0 ? lineEnd + 1 : length;
+      if (lineEnd < 0) {
+        lineEnd = length;
+      }
+      final int messageStart = indexOfBeginString(mapped, lineStart, lineEnd);
+      if (messageStart >= 0) {
+        int messageEnd = lineEnd;
+        while (messageEnd > messageStart && mapped.get(messageEnd - 1) != RawMessage.SOH) {
+          messageEnd--;
+        }
+        view.limit(messageEnd);
+        view.position(messageStart);
+        validateMessage(view, message, result, report);
+      }
+      lineStart = next;
+    }
+    return report;
+  }
+
+  private void validateMessage(ByteBuffer buffer, RawMessage message, ValidationResult result,
+      LogValidationReport report) {
+    final MessageType messageType;
+    try {
+      message.parse(buffer, isDataField);
+      final int msgTypeIndex = message.indexOf(MSG_TYPE_TAG);
+      if (msgTypeIndex < 0) {
+        report.addMalformed();
+        return;
+      }
+      messageType = repositoryAdapter.getMessageByMsgType(message.getString(msgTypeIndex));
+    } catch (IllegalArgumentException e) {
+      report.addMalformed();
+      return;
+    }
+    if (messageType == null) {
+      report.addUnknownMessageType();
+      return;
+    }
+    validator.validate(message, messageType, result);
+    report.addResult(result);
+  }
+
+}
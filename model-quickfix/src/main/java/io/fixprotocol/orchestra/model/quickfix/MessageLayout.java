@@ -0,0 +1,84 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.fixprotocol._2016.fixrepository.FieldRefType;
+import io.fixprotocol._2016.fixrepository.GroupRefType;
+
+/**
+ * Immutable layout of a message or group structure
+ * <p>
+ * Members of a message include those of the base scenarios that it extends. Fields and groups are
+ * indexed by name, and fields by tag, so that a member is found without searching. If more than one
+ * member has the same name or tag, the first one is indexed.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class MessageLayout {
+
+  private final Map<Integer, FieldRefType> fieldsByTag = new HashMap<>();
+  private final Map<String, Object> membersByName = new HashMap<>();
+  private final List<Object> members;
+
+  /**
+   * Constructor
+   *
+   * @param members elements of the structure, flattened over any base scenarios
+   */
+  MessageLayout(List<Object> members) {
+    this.members = Collections.unmodifiableList(members);
+    for (Object member : members) {
+      if (member instanceof FieldRefType) {
+        final FieldRefType fieldRefType = (FieldRefType) member;
+        membersByName.putIfAbsent(fieldRefType.getName(), fieldRefType);
+        fieldsByTag.putIfAbsent(fieldRefType.getId().intValue(), fieldRefType);
+      } else if (member instanceof GroupRefType) {
+        final GroupRefType groupRefType = (GroupRefType) member;
+        membersByName.putIfAbsent(groupRefType.getName(), groupRefType);
+      }
+    }
+  }
+
+  /**
+   * @param tag field tag
+   * @return a field reference or {@code null} if the structure has no such field
+   */
+  FieldRefType getField(int tag) {
+    return fieldsByTag.get(tag);
+  }
+
+  /**
+   * @param name name of a field or group
+   * @return a {@link FieldRefType} or {@link GroupRefType}, or {@code null} if the structure has no
+   *         such member
+   */
+  Object getMember(String name) {
+    return membersByName.get(name);
+  }
+
+  /**
+   * @return an immutable list of all elements of the structure, including component references
+   */
+  List<Object> getMembers() {
+    return members;
+  }
+
+}
@@ -14,12 +14,11 @@
  */
 package io.fixprotocol.orchestra.model.quickfix;
 
-import java.util.List;
 
 import io.fixprotocol._2016.fixrepository.FieldRefType;
-import io.fixprotocol._2016.fixrepository.GroupRefType;
 import io.fixprotocol._2016.fixrepository.MessageType;
 import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
+import io.fixprotocol.orchestra.model.BindableScope;
 import io.fixprotocol.orchestra.model.FixNode;
 import io.fixprotocol.orchestra.model.FixValue;
 import io.fixprotocol.orchestra.model.ModelException;
@@ -32,7 +31,7 @@ import quickfix.Message;
  * @author Don Mendelson
  *
  */
-public class MessageScope extends AbstractMessageScope implements Scope {
+public class MessageScope extends AbstractMessageScope implements BindableScope {
 
   private final MessageType messageType;
   private Scope parent;
@@ -75,6 +74,14 @@ public class MessageScope extends AbstractMessageScope implements Scope {
     return messageType.getName();
   }
 
+  /**
+   * Paths are bound to the message type
+   */
+  @Override
+  public Object getStructure() {
+    return messageType;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -105,22 +112,12 @@ public class MessageScope extends AbstractMessageScope implements Scope {
    */
   @Override
   public FixNode resolve(PathStep pathStep) {
-    String name = pathStep.getName();
-    List<Object> members = getRepository().getMessageMembers(messageType);
-    for (Object member : members) {
-      if (member instanceof FieldRefType) {
-        FieldRefType fieldRefType = (FieldRefType) member;
-        if (fieldRefType.getName().equals(name)) {
-          return resolveField(fieldRefType);
-        }
-      } else if (member instanceof GroupRefType) {
-        GroupRefType groupRefType = (GroupRefType) member;
-        if (groupRefType.getName().equals(name)) {
-          return resolveGroup(pathStep, groupRefType);
-        }
-      }
-    }
-    return null;
+    return resolveMember(pathStep);
+  }
+
+  @Override
+  protected MessageLayout getLayout() {
+    return getRepository().getLayout(messageType);
   }
 
   /*
@@ -143,16 +140,10 @@ public class MessageScope extends AbstractMessageScope implements Scope {
     if (value.getValue() == null) {
       throw new ModelException(String.format("Assigning field %s null not allowed", value.getName()));
     }
-    String name = pathStep.getName();
-    List<Object> members = getRepository().getMessageMembers(messageType);
-    for (Object member : members) {
-      if (member instanceof FieldRefType) {
-        FieldRefType fieldRefType = (FieldRefType) member;
-        if (fieldRefType.getName().equals(name)) {
-          assignField(fieldRefType, value);
-          return value;
-        }
-      }
+    final Object member = getLayout().getMember(pathStep.getName());
+    if (member instanceof FieldRefType) {
+      assignField((FieldRefType) member, value);
+      return value;
     }
     return null;
   }
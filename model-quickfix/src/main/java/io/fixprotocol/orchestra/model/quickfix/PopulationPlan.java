@@ -0,0 +1,310 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import io.fixprotocol._2016.fixrepository.BlockAssignmentType;
+import io.fixprotocol._2016.fixrepository.ComponentRefType;
+import io.fixprotocol._2016.fixrepository.FieldRefType;
+import io.fixprotocol._2016.fixrepository.GroupRefType;
+import io.fixprotocol._2016.fixrepository.GroupType;
+import io.fixprotocol._2016.fixrepository.PresenceT;
+import io.fixprotocol.orchestra.dsl.antlr.CompiledExpression;
+import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.FixValueFactory;
+import io.fixprotocol.orchestra.model.ModelException;
+import io.fixprotocol.orchestra.model.quickfix.AbstractMessageScope.FieldBinding;
+import quickfix.FieldMap;
+import quickfix.Group;
+import quickfix.Message;
+
+/**
+ * Assignments to populate an outbound message or group instance, compiled once from its definition
+ * <p>
+ * Each field with an assign expression becomes a step that holds the compiled expression and the
+ * binding of the field to its tag and datatype, so populating a message only evaluates expressions
+ * and sets fields. Fields of component block assignments are flattened into the plan of the
+ * enclosing structure, and each block assignment of a repeating group has a nested plan for one
+ * instance.
+ * <p>
+ * Values that are the same for every message, constant fields, literal assignments and group
+ * instances that have only such values, are set once in a template instead. The template is
+ * applied to each message before the remaining steps are evaluated. A plan is immutable.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class PopulationPlan {
+
+  /**
+   * Assignment of one field, or the instances of a repeating group
+   */
+  static final class Step {
+    private final FieldBinding binding;
+    private final ScoreException compileError;
+    private final CompiledExpression expression;
+    private final String fieldName;
+    private final PopulationPlan[] instancePlans;
+    private final GroupType groupType;
+
+    private Step(String fieldName, FieldBinding binding, CompiledExpression expression,
+        ScoreException compileError) {
+      this.fieldName = fieldName;
+      this.binding = binding;
+      this.expression = expression;
+      this.compileError = compileError;
+      this.groupType = null;
+      this.instancePlans = null;
+    }
+
+    private Step(GroupType groupType, PopulationPlan[] instancePlans) {
+      this.groupType = groupType;
+      this.instancePlans = instancePlans;
+      this.fieldName = null;
+      this.binding = null;
+      this.expression = null;
+      this.compileError = null;
+    }
+
+    /**
+     * @return binding of the assigned field to its tag and datatype, or {@code null} if this
+     *         populates a group
+     */
+    FieldBinding getBinding() {
+      return binding;
+    }
+
+    /**
+     * @return the error that prevented compilation of the assign expression, or {@code null} if it
+     *         compiled
+     */
+    ScoreException getCompileError() {
+      return compileError;
+    }
+
+    /**
+     * @return compiled assign expression, or {@code null} if it failed to compile or this
+     *         populates a group
+     */
+    CompiledExpression getExpression() {
+      return expression;
+    }
+
+    String getFieldName() {
+      return fieldName;
+    }
+
+    /**
+     * @return definition of a repeating group, or {@code null} if this assigns a field
+     */
+    GroupType getGroupType() {
+      return groupType;
+    }
+
+    /**
+     * @return plan of each group instance in order of block assignments, or {@code null} if this
+     *         assigns a field
+     */
+    PopulationPlan[] getInstancePlans() {
+      return instancePlans;
+    }
+  }
+
+  /**
+   * Compiles a plan for a message
+   *
+   * @param members elements of the message
+   * @param layout layout of the message, which resolves assigned fields by name
+   * @param repository FIX Repository contains metadata
+   * @param evaluator compiles assign expressions and evaluates constant ones
+   * @param groupFactory creates instances of QuickFIX Group for templates
+   * @return a plan
+   */
+  static PopulationPlan compile(List<?> members, MessageLayout layout,
+      RepositoryAdapter repository, Evaluator evaluator, Function<Integer, Group> groupFactory) {
+    return compile(members, layout, new Message(), repository, evaluator, groupFactory);
+  }
+
+  private static PopulationPlan compile(List<?> members, MessageLayout layout, FieldMap template,
+      RepositoryAdapter repository, Evaluator evaluator, Function<Integer, Group> groupFactory) {
+    final List<Step> steps = new ArrayList<>();
+    addSteps(members, layout, template, repository, evaluator, groupFactory, steps);
+    return new PopulationPlan(steps.toArray(new Step[0]), template);
+  }
+
+  private static void addSteps(List<?> members, MessageLayout layout, FieldMap template,
+      RepositoryAdapter repository, Evaluator evaluator, Function<Integer, Group> groupFactory,
+      List<Step> steps) {
+    for (Object member : members) {
+      if (member instanceof FieldRefType) {
+        final FieldRefType fieldRefType = (FieldRefType) member;
+        // a field is assigned by name in its structure, so one not found there is not populated
+        final Object target = layout.getMember(fieldRefType.getName());
+        if (!(target instanceof FieldRefType)) {
+          continue;
+        }
+        final FieldBinding binding =
+            AbstractMessageScope.bindField(repository, (FieldRefType) target);
+        if (fieldRefType.getAssign() != null) {
+          final Step step = compileField(fieldRefType, binding, repository, evaluator);
+          final FixValue<?> constant = evaluateConstant(step, evaluator);
+          // a value assigned earlier by an expression must be overwritten in order
+          if (constant != null && !isAssigned(steps, binding.getId())) {
+            AbstractMessageScope.setField(template, binding, constant);
+          } else {
+            steps.add(step);
+          }
+        } else if (fieldRefType.getPresence() == PresenceT.CONSTANT
+            && fieldRefType.getValue() != null && !isAssigned(steps, binding.getId())) {
+          final FixValue<?> constant = toConstant(fieldRefType.getValue(), binding);
+          if (constant != null) {
+            AbstractMessageScope.setField(template, binding, constant);
+          }
+        }
+      } else if (member instanceof GroupRefType) {
+        final GroupRefType groupRefType = (GroupRefType) member;
+        final GroupType groupType = repository.getGroup(groupRefType);
+        final List<BlockAssignmentType> blockAssignments = groupRefType.getBlockAssignment();
+        if (groupType != null && !blockAssignments.isEmpty()) {
+          final int numInGroupId = groupType.getNumInGroupId().intValue();
+          final MessageLayout groupLayout = repository.getLayout(groupType);
+          final PopulationPlan[] instancePlans = new PopulationPlan[blockAssignments.size()];
+          boolean isConstant = true;
+          for (int i = 0; i < instancePlans.length; i++) {
+            Group instanceTemplate = groupFactory.apply(numInGroupId);
+            if (instanceTemplate == null) {
+              // holds constant fields, but the group cannot be populated without its class
+              instanceTemplate = new Group(numInGroupId,
+                  repository.getGroupTags(groupType).getDelimiter());
+              isConstant = false;
+            }
+            instancePlans[i] =
+                compile(blockAssignments.get(i).getComponentRefOrGroupRefOrFieldRef(),
+                    groupLayout, instanceTemplate, repository, evaluator, groupFactory);
+            if (instancePlans[i].getSteps().length > 0) {
+              isConstant = false;
+            }
+          }
+          if (isConstant) {
+            // instances are copied when the template is applied
+            for (PopulationPlan instancePlan : instancePlans) {
+              template.addGroup((Group) instancePlan.getTemplate());
+            }
+          } else {
+            steps.add(new Step(groupType, instancePlans));
+          }
+        }
+      } else if (member instanceof ComponentRefType) {
+        final List<BlockAssignmentType> blockAssignments =
+            ((ComponentRefType) member).getBlockAssignment();
+        if (!blockAssignments.isEmpty()) {
+          addSteps(blockAssignments.get(0).getComponentRefOrGroupRefOrFieldRef(), layout, template,
+              repository, evaluator, groupFactory, steps);
+        }
+      }
+    }
+  }
+
+  /**
+   * Compiles the assign expression of a field, with codes bound to the code set of the field unless
+   * compared to another field
+   */
+  private static Step compileField(FieldRefType fieldRefType, FieldBinding binding,
+      RepositoryAdapter repository, Evaluator evaluator) {
+    final String dataTypeString = repository.getFieldDatatype(fieldRefType.getId().intValue());
+    try {
+      final CompiledExpression expression = repository.compile(fieldRefType.getAssign(),
+          repository.getCodeSetScope(dataTypeString), evaluator);
+      return new Step(fieldRefType.getName(), binding, expression, null);
+    } catch (ScoreException e) {
+      // reported each time the message is populated
+      return new Step(fieldRefType.getName(), binding, null, e);
+    }
+  }
+
+  /**
+   * Evaluates an assign expression that does not reference any variable or message, such as a
+   * literal or a code, so it has the same value for every message
+   *
+   * @return the value, or {@code null} if the expression must be evaluated for each message
+   */
+  private static FixValue<?> evaluateConstant(Step step, Evaluator evaluator) {
+    final CompiledExpression expression = step.getExpression();
+    if (expression == null || expression.isAssignment() || !expression.getScopes().isEmpty()) {
+      return null;
+    }
+    try {
+      final FixValue<?> value = evaluator.evaluate(expression);
+      return value != null && value.getValue() != null ? value : null;
+    } catch (ScoreException e) {
+      return null;
+    }
+  }
+
+  private static boolean isAssigned(List<Step> steps, int id) {
+    for (Step step : steps) {
+      if (step.getBinding() != null && step.getBinding().getId() == id) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static FixValue<?> toConstant(String value, FieldBinding binding) {
+    final FixType dataType = binding.getDataType();
+    final Class<?> valueClass = dataType.getValueClass();
+    try {
+      final FixValue fixValue = FixValueFactory.create(null, dataType, valueClass);
+      fixValue.setValue(valueClass.cast(dataType.fromString(value)));
+      return fixValue;
+    } catch (ModelException | RuntimeException e) {
+      // a value that does not parse as the datatype is not populated
+      return null;
+    }
+  }
+
+  private final Step[] steps;
+  private final FieldMap template;
+
+  private PopulationPlan(Step[] steps, FieldMap template) {
+    this.steps = steps;
+    this.template = template;
+  }
+
+  /**
+   * @return steps that are evaluated for each message, in the order of the message definition
+   */
+  Step[] getSteps() {
+    return steps;
+  }
+
+  /**
+   * Returns a prototype of the structure with its constant fields and constant group instances
+   * set. It is shared, so it must not be modified.
+   *
+   * @return a {@link Message} for a message or a {@link Group} for a group instance
+   */
+  FieldMap getTemplate() {
+    return template;
+  }
+
+}
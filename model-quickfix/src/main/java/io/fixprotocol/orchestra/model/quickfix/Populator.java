@@ -14,15 +14,11 @@
  */
 package io.fixprotocol.orchestra.model.quickfix;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
-import io.fixprotocol._2016.fixrepository.BlockAssignmentType;
-import io.fixprotocol._2016.fixrepository.CodeSetType;
-import io.fixprotocol._2016.fixrepository.ComponentRefType;
-import io.fixprotocol._2016.fixrepository.FieldRefType;
-import io.fixprotocol._2016.fixrepository.GroupRefType;
 import io.fixprotocol._2016.fixrepository.GroupType;
 import io.fixprotocol._2016.fixrepository.MessageType;
 import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
@@ -32,17 +28,31 @@ import io.fixprotocol.orchestra.model.ModelException;
 import io.fixprotocol.orchestra.model.PathStep;
 import io.fixprotocol.orchestra.model.Scope;
 import io.fixprotocol.orchestra.model.SymbolResolver;
+import io.fixprotocol.orchestra.model.quickfix.PopulationPlan.Step;
+import quickfix.Field;
 import quickfix.FieldMap;
 import quickfix.Group;
 import quickfix.Message;
 
 /**
+ * Populates an outbound message from an inbound message by the assign expressions of the outbound
+ * message definition
+ * <p>
+ * A population plan is compiled once for each outbound message type and run for each message. A
+ * plan does not depend on the inbound message type, since paths into the inbound message are bound
+ * to its structure by the compiled expressions themselves. Constant values are set from a template
+ * of the outbound message, so only expressions that depend on input are evaluated.
+ * 
  * @author Don Mendelson
  *
  */
 public class Populator implements io.fixprotocol.orchestra.model.Populator<Message> {
 
+  private static final PathStep IN_ROOT = new PathStep("in.");
+  private static final PathStep OUT_ROOT = new PathStep("out.");
+
   private final Evaluator evaluator;
+  private final Map<MessageType, PopulationPlan> plans = new ConcurrentHashMap<>();
   private final RepositoryAdapter repositoryAdapter;
   private final SymbolResolver symbolResolver;
   private final Function<Integer, Group> groupFactory;
@@ -65,16 +75,15 @@ public class Populator implements io.fixprotocol.orchestra.model.Populator<Messa
   @Override
   public void populate(Message inboundMessage, MessageType inboundMessageType,
       Message outboundMessage, MessageType outboundMessageType) throws ModelException {
+    final PopulationPlan plan = getPlan(outboundMessageType);
     try (
-        Scope inScope = symbolResolver.nest(new PathStep("in."),
+        Scope inScope = symbolResolver.nest(IN_ROOT,
             new MessageScope(inboundMessage, inboundMessageType, repositoryAdapter, symbolResolver,
                 evaluator));
-        Scope outScope = symbolResolver.nest(new PathStep("out."), new MessageScope(outboundMessage,
+        Scope outScope = symbolResolver.nest(OUT_ROOT, new MessageScope(outboundMessage,
             outboundMessageType, repositoryAdapter, symbolResolver, evaluator))) {
 
-      List<Object> members = repositoryAdapter.getMessageMembers(outboundMessageType);
-      
-      populateFieldMap(outboundMessage, members, outScope);
+      populateFieldMap(outboundMessage, plan);
 
     } catch (Exception e1) {
       // TODO Auto-generated catch block
@@ -82,39 +91,63 @@ public class Populator implements io.fixprotocol.orchestra.model.Populator<Messa
     }
   }
 
-  private void populateFieldMap(FieldMap fieldMap, List<?> members, Scope outScope)
-      throws ModelException {
-    for (Object member : members) {
-      if (member instanceof FieldRefType) {
-        FieldRefType fieldRefType = (FieldRefType) member;
-        String assignExpression = fieldRefType.getAssign();
-        if (assignExpression != null) {
-          try {
-            String dataTypeString = repositoryAdapter.getFieldDatatype(fieldRefType.getId().intValue());
-            CodeSetType codeSet = repositoryAdapter.getCodeset(dataTypeString);
-            if (codeSet != null) {
-              symbolResolver.nest(new PathStep("^"), new CodeSetScope(codeSet) );
-            }
-            FixValue<?> fixValue = evaluator.evaluate(assignExpression);
-            if (fixValue != null) {
-              outScope.assign(new PathStep(fieldRefType.getName()), fixValue);
-            }
-          } catch (ScoreException e) {
-            throw new ModelException("Failed to assign field " + fieldRefType.getName(), e);
+  private PopulationPlan getPlan(MessageType messageType) {
+    final PopulationPlan plan = plans.get(messageType);
+    if (plan != null) {
+      return plan;
+    }
+    return plans.computeIfAbsent(messageType,
+        m -> PopulationPlan.compile(repositoryAdapter.getMessageMembers(m),
+            repositoryAdapter.getLayout(m), repositoryAdapter, evaluator, groupFactory));
+  }
+
+  /**
+   * Copies the constant fields and group instances of a template. Fields are immutable once set,
+   * so they are shared as by {@link Message#clone()}, while groups are copied.
+   */
+  private static void applyTemplate(FieldMap fieldMap, FieldMap template) {
+    for (Iterator<Field<?>> fields = template.iterator(); fields.hasNext();) {
+      final Field<?> field = fields.next();
+      fieldMap.setField(field.getTag(), field);
+    }
+    for (Iterator<Integer> groupKeys = template.groupKeyIterator(); groupKeys.hasNext();) {
+      for (Group group : template.getGroups(groupKeys.next())) {
+        fieldMap.addGroup(group);
+      }
+    }
+  }
+
+  private void populateFieldMap(FieldMap fieldMap, PopulationPlan plan) throws ModelException {
+    applyTemplate(fieldMap, plan.getTemplate());
+    for (Step step : plan.getSteps()) {
+      final GroupType groupType = step.getGroupType();
+      if (groupType == null) {
+        if (step.getCompileError() != null) {
+          throw new ModelException("Failed to assign field " + step.getFieldName(),
+              step.getCompileError());
+        }
+        final FixValue<?> fixValue;
+        try {
+          fixValue = evaluator.evaluate(step.getExpression());
+        } catch (ScoreException e) {
+          throw new ModelException("Failed to assign field " + step.getFieldName(), e);
+        }
+        if (fixValue != null) {
+          if (fixValue.getValue() == null) {
+            throw new ModelException(
+                String.format("Assigning field %s null not allowed", fixValue.getName()));
           }
+          AbstractMessageScope.setField(fieldMap, step.getBinding(), fixValue);
         }
-      } else if (member instanceof GroupRefType) {
-        GroupRefType groupRefType = (GroupRefType) member;
-        List<BlockAssignmentType> blockAssignments = groupRefType.getBlockAssignment();
-        GroupType groupType = repositoryAdapter.getGroup(groupRefType);
-
-        for (int i = 0; i < blockAssignments.size(); i++) {
-          Group group = groupFactory.apply(groupType.getNumInGroupId().intValue());
+      } else {
+        final int numInGroupId = groupType.getNumInGroupId().intValue();
+        for (PopulationPlan instancePlan : step.getInstancePlans()) {
+          Group group = groupFactory.apply(numInGroupId);
           try (GroupInstanceScope groupScope =
               new GroupInstanceScope(group, groupType, repositoryAdapter, symbolResolver, evaluator)) {
             try (Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT)) {
               local.nest(new PathStep(groupType.getName()), groupScope);
-              populateFieldMap(group, blockAssignments.get(i).getComponentRefOrGroupRefOrFieldRef(), groupScope);
+              populateFieldMap(group, instancePlan);
               fieldMap.addGroup(group);
             }
           } catch (Exception e) {
@@ -122,16 +155,8 @@ public class Populator implements io.fixprotocol.orchestra.model.Populator<Messa
             e.printStackTrace();
           }
         }
-      } else if (member instanceof ComponentRefType) {
-        ComponentRefType componentRefType = (ComponentRefType) member;
-        List<BlockAssignmentType> blockAssignments = componentRefType.getBlockAssignment();
-        if (blockAssignments.size() > 0) {
-          List<?> blockElements = blockAssignments.get(0).getComponentRefOrGroupRefOrFieldRef();
-          populateFieldMap(fieldMap, blockElements, outScope);
-        }
       }
     }
   }
 
 }
-
@@ -0,0 +1,338 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Index of the fields of a FIX message in tag=value encoding, read in place from a buffer
+ * <p>
+ * Parsing records the tag, value offset and value length of each field in primitive arrays without
+ * copying or decoding values, so only fields that are actually examined are decoded. The first
+ * occurrence of each tag is indexed for lookup by tag. The value of a data field, which may contain
+ * the delimiter, is delimited by the preceding length field.
+ * <p>
+ * An instance may be reused for successive messages; its storage is retained and grows as needed.
+ * The buffer must not be modified while the message is in use. An instance is not thread-safe.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class RawMessage {
+
+  /**
+   * Field delimiter
+   */
+  public static final byte SOH = 0x01;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * Tags up to this limit are indexed for lookup by tag; others are searched
+   */
+  private static final int MAX_INDEXED_TAG = 0xFFFF;
+
+  private ByteBuffer buffer;
+  private byte[] wrappedArray;
+  private int fieldCount = 0;
+  /**
+   * Index of the first field with a tag, valid if its stamp is current
+   */
+  private int[] firstIndexByTag = new int[0];
+  private int[] indexStamps = new int[0];
+  private int stamp = 0;
+  private byte[] scratch = new byte[64];
+  private int[] tags = new int[INITIAL_CAPACITY];
+  private int[] valueLengths = new int[INITIAL_CAPACITY];
+  private int[] valueOffsets = new int[INITIAL_CAPACITY];
+
+  /**
+   * @return number of fields in the message
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * @param index of a field, less than {@link #getFieldCount()}
+   * @return tag of the field
+   */
+  public int getTag(int index) {
+    return tags[index];
+  }
+
+  /**
+   * Decodes the value of a field as a character
+   *
+   * @param index of a field
+   * @return the first character of the value
+   * @throws IllegalArgumentException if the value is not a single character
+   */
+  public char getChar(int index) {
+    if (valueLengths[index] != 1) {
+      throw new IllegalArgumentException("Not a char value in field " + tags[index]);
+    }
+    return (char) (buffer.get(valueOffsets[index]) & 0xFF);
+  }
+
+  /**
+   * Decodes the value of a field as an integer
+   *
+   * @param index of a field
+   * @return value of the field
+   * @throws NumberFormatException if the value is not a valid integer
+   */
+  public int getInt(int index) {
+    final int offset = valueOffsets[index];
+    final int length = valueLengths[index];
+    int i = 0;
+    boolean isNegative = false;
+    if (length > 0 && buffer.get(offset) == '-') {
+      isNegative = true;
+      i = 1;
+    }
+    if (i == length) {
+      throw new NumberFormatException("Not an int value in field " + tags[index]);
+    }
+    long n = 0;
+    for (; i < length; i++) {
+      final int digit = buffer.get(offset + i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException("Not an int value in field " + tags[index]);
+      }
+      n = n * 10 + digit;
+      if (n > Integer.MAX_VALUE + 1L) {
+        throw new NumberFormatException("Int value out of range in field " + tags[index]);
+      }
+    }
+    if (isNegative) {
+      n = -n;
+    }
+    if (n > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Int value out of range in field " + tags[index]);
+    }
+    return (int) n;
+  }
+
+  /**
+   * Copies the value of a field
+   *
+   * @param index of a field
+   * @return a new array holding the value
+   */
+  public byte[] getBytes(int index) {
+    final byte[] bytes = new byte[valueLengths[index]];
+    copyValue(index, bytes);
+    return bytes;
+  }
+
+  /**
+   * Decodes the value of a field as a string. This allocates, so it should only be used for values
+   * that are needed as strings.
+   *
+   * @param index of a field
+   * @return value of the field
+   */
+  public String getString(int index) {
+    final int length = valueLengths[index];
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + valueOffsets[index], length,
+          StandardCharsets.ISO_8859_1);
+    }
+    if (scratch.length < length) {
+      scratch = new byte[length];
+    }
+    copyValue(index, scratch);
+    return new String(scratch, 0, length, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * @param index of a field
+   * @return length of the value in bytes
+   */
+  public int getValueLength(int index) {
+    return valueLengths[index];
+  }
+
+  /**
+   * @param index of a field
+   * @param position position within the value, less than its length
+   * @return a byte of the value
+   */
+  public byte getValueByte(int index, int position) {
+    return buffer.get(valueOffsets[index] + position);
+  }
+
+  /**
+   * Finds the first field with a tag
+   *
+   * @param tag field tag
+   * @return index of the field, or {@code -1} if not present
+   */
+  public int indexOf(int tag) {
+    if (tag >= 0 && tag < firstIndexByTag.length) {
+      return indexStamps[tag] == stamp ? firstIndexByTag[tag] : -1;
+    }
+    return tag > MAX_INDEXED_TAG ? indexOf(tag, 0, fieldCount) : -1;
+  }
+
+  /**
+   * Finds the first field with a tag in a range of fields
+   *
+   * @param tag field tag
+   * @param from index of the first field to search
+   * @param to index after the last field to search
+   * @return index of the field, or {@code -1} if not present in the range
+   */
+  public int indexOf(int tag, int from, int to) {
+    if (from == 0 && to == fieldCount && tag >= 0 && tag <= MAX_INDEXED_TAG) {
+      return indexOf(tag);
+    }
+    for (int i = from; i < to; i++) {
+      if (tags[i] == tag) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses a message in a byte array
+   *
+   * @param array holds the message
+   * @param offset position of the first byte of the message
+   * @param length number of bytes of the message
+   * @param isDataField tells whether a field may contain any byte, so that its value must be
+   *        delimited by the preceding length field. May be {@code null}.
+   * @throws IllegalArgumentException if the message is malformed
+   */
+  public void parse(byte[] array, int offset, int length, IntPredicate isDataField) {
+    if (array != wrappedArray) {
+      wrappedArray = array;
+      buffer = ByteBuffer.wrap(array);
+    }
+    parse(offset, offset + length, isDataField);
+  }
+
+  /**
+   * Parses a message in a buffer, from its position to its limit. The position and limit of the
+   * buffer are not changed.
+   *
+   * @param buffer holds the message, may be direct
+   * @param isDataField tells whether a field may contain any byte, so that its value must be
+   *        delimited by the preceding length field. May be {@code null}.
+   * @throws IllegalArgumentException if the message is malformed
+   */
+  public void parse(ByteBuffer buffer, IntPredicate isDataField) {
+    this.buffer = buffer;
+    this.wrappedArray = null;
+    parse(buffer.position(), buffer.limit(), isDataField);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < fieldCount; i++) {
+      sb.append(tags[i]).append('=').append(getString(i)).append('|');
+    }
+    return sb.toString();
+  }
+
+  private void add(int tag, int valueOffset, int valueLength) {
+    if (fieldCount == tags.length) {
+      final int capacity = fieldCount * 2;
+      tags = Arrays.copyOf(tags, capacity);
+      valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+      valueLengths = Arrays.copyOf(valueLengths, capacity);
+    }
+    tags[fieldCount] = tag;
+    valueOffsets[fieldCount] = valueOffset;
+    valueLengths[fieldCount] = valueLength;
+    if (tag >= 0 && tag <= MAX_INDEXED_TAG) {
+      if (tag >= firstIndexByTag.length) {
+        final int capacity = Math.min(MAX_INDEXED_TAG + 1, Math.max(tag + 1, firstIndexByTag.length * 2));
+        firstIndexByTag = Arrays.copyOf(firstIndexByTag, capacity);
+        indexStamps = Arrays.copyOf(indexStamps, capacity);
+      }
+      if (indexStamps[tag] != stamp) {
+        indexStamps[tag] = stamp;
+        firstIndexByTag[tag] = fieldCount;
+      }
+    }
+    fieldCount++;
+  }
+
+  private void copyValue(int index, byte[] destination) {
+    final int offset = valueOffsets[index];
+    final int length = valueLengths[index];
+    for (int i = 0; i < length; i++) {
+      destination[i] = buffer.get(offset + i);
+    }
+  }
+
+  private void parse(int start, int end, IntPredicate isDataField) {
+    fieldCount = 0;
+    stamp++;
+    if (stamp == 0) {
+      // stamps wrapped around, so stale entries could appear current
+      Arrays.fill(indexStamps, -1);
+      stamp = 1;
+    }
+    int position = start;
+    while (position < end) {
+      int tag = 0;
+      byte b;
+      int tagStart = position;
+      while (position < end && (b = buffer.get(position)) != '=') {
+        final int digit = b - '0';
+        if (digit < 0 || digit > 9) {
+          throw new IllegalArgumentException("Invalid tag at offset " + tagStart);
+        }
+        tag = tag * 10 + digit;
+        position++;
+      }
+      if (position == end || position == tagStart) {
+        throw new IllegalArgumentException("Invalid tag at offset " + tagStart);
+      }
+      position++;
+      final int valueOffset = position;
+      int valueLength = -1;
+      if (isDataField != null && fieldCount > 0 && isDataField.test(tag)) {
+        try {
+          valueLength = getInt(fieldCount - 1);
+        } catch (NumberFormatException e) {
+          // not preceded by a length, so delimited as usual
+        }
+      }
+      if (valueLength >= 0) {
+        position = valueOffset + valueLength;
+        if (position >= end || buffer.get(position) != SOH) {
+          throw new IllegalArgumentException("Invalid length of data field " + tag);
+        }
+      } else {
+        while (position < end && buffer.get(position) != SOH) {
+          position++;
+        }
+        valueLength = position - valueOffset;
+      }
+      add(tag, valueOffset, valueLength);
+      position++;
+    }
+  }
+
+}
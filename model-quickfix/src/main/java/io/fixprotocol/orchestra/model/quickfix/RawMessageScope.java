@@ -0,0 +1,483 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import io.fixprotocol._2016.fixrepository.FieldRefType;
+import io.fixprotocol._2016.fixrepository.GroupRefType;
+import io.fixprotocol._2016.fixrepository.GroupType;
+import io.fixprotocol.orchestra.dsl.antlr.CompiledExpression;
+import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
+import io.fixprotocol.orchestra.model.FixNode;
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.ModelException;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.Scope;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+import quickfix.FieldConvertError;
+
+/**
+ * Read-only Symbol Scope for a message or group instance in a {@link RawMessage}
+ * <p>
+ * A structure is a range of fields of the raw message. Fields that belong to instances of its
+ * repeating groups are excluded from it. A field value is decoded only when it is resolved, so
+ * fields that are not referenced by rules are never decoded.
+ * <p>
+ * An instance may be rewrapped for each message to avoid allocation.
+ *
+ * @author Don Mendelson
+ *
+ */
+class RawMessageScope implements Scope {
+
+  private final Evaluator evaluator;
+  /**
+   * Values of fields decoded since the message was wrapped
+   */
+  private final FieldValueCache fieldValues = new FieldValueCache();
+  private int from;
+  /**
+   * Pairs of start and end indexes of group instances nested in this structure
+   */
+  private int[] groupSpans = new int[8];
+  private int groupSpanCount = 0;
+  /**
+   * Indexes of nested group instances by key field, built on first access since the message was
+   * wrapped
+   */
+  private Map<FieldRefType, GroupKeyIndex> groupKeyIndexes;
+  private boolean isScanning = false;
+  private boolean isGroup;
+  private MessageLayout layout;
+  private RawMessage message;
+  private String name;
+  private Scope parent;
+  private ValidationPlan plan;
+  private final RepositoryAdapter repository;
+  /**
+   * Reused to evaluate predicates against instances of nested groups
+   */
+  private RawMessageScope scanScope;
+  private final SymbolResolver symbolResolver;
+  private int to;
+
+  /**
+   * Constructor
+   *
+   * @param repository FIX Repository contains metadata
+   * @param symbolResolver used by DSL to resolve symbols
+   * @param evaluator evalutes DSL expressions
+   */
+  RawMessageScope(RepositoryAdapter repository, SymbolResolver symbolResolver,
+      Evaluator evaluator) {
+    this.repository = repository;
+    this.symbolResolver = symbolResolver;
+    this.evaluator = evaluator;
+  }
+
+  @Override
+  public FixValue<?> assign(PathStep pathStep, FixValue<?> value) throws ModelException {
+    throw new ModelException("Raw message is immutable");
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (parent != null) {
+      parent.remove(new PathStep(name));
+    }
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Scope nest(PathStep pathStep, Scope nested) {
+    throw new UnsupportedOperationException("Message structure is immutable");
+  }
+
+  @Override
+  public FixNode remove(PathStep pathStep) {
+    throw new UnsupportedOperationException("Message structure is immutable");
+  }
+
+  @Override
+  public FixNode resolve(PathStep pathStep) {
+    final Object member =
+        layout.getMember(isGroup ? AbstractMessageScope.unqualified(pathStep.getName())
+            : pathStep.getName());
+    if (member instanceof FieldRefType) {
+      return resolveField((FieldRefType) member);
+    } else if (member instanceof GroupRefType) {
+      final GroupType groupType = repository.getGroup((GroupRefType) member);
+      return groupType != null ? resolveGroup(pathStep, groupType) : null;
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public void setParent(Scope parent) {
+    this.parent = parent;
+  }
+
+  /**
+   * @return index after the last field of this structure
+   */
+  int getEnd() {
+    return to;
+  }
+
+  /**
+   * @return the raw message
+   */
+  RawMessage getMessage() {
+    return message;
+  }
+
+  /**
+   * @return index of the first field of this structure
+   */
+  int getStart() {
+    return from;
+  }
+
+  /**
+   * Finds a field of this structure, excluding fields of nested group instances
+   *
+   * @param tag field tag
+   * @return index of the field in the raw message, or {@code -1} if not present
+   */
+  int indexOf(int tag) {
+    int index = message.indexOf(tag, from, to);
+    while (index >= 0) {
+      final int spanEnd = groupSpanEnd(index);
+      if (spanEnd < 0) {
+        return index;
+      }
+      index = message.indexOf(tag, spanEnd, to);
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the first instance of a nested repeating group
+   *
+   * @param check checks of the group
+   * @return index of the delimiter field of the first instance, or {@code -1} if the group is not
+   *         present
+   */
+  int firstInstance(ValidationPlan.Check check) {
+    final int numInGroupIndex = indexOf(check.getTag());
+    if (numInGroupIndex < 0) {
+      return -1;
+    }
+    final int start = numInGroupIndex + 1;
+    return start < to && message.getTag(start) == check.getGroupTags().getDelimiter() ? start
+        : -1;
+  }
+
+  /**
+   * Finds the end of an instance of a nested repeating group
+   *
+   * @param check checks of the group
+   * @param start index of the delimiter field of the instance
+   * @return index after the last field of the instance. If another instance follows, its delimiter
+   *         is at that index.
+   */
+  int instanceEnd(ValidationPlan.Check check, int start) {
+    return check.getGroupTags().instanceEnd(message, start, to);
+  }
+
+  /**
+   * Tells whether another instance of a group follows
+   *
+   * @param check checks of the group
+   * @param index index after the end of an instance
+   * @return {@code true} if an instance begins at the index
+   */
+  boolean isInstanceStart(ValidationPlan.Check check, int index) {
+    return index < to && message.getTag(index) == check.getGroupTags().getDelimiter();
+  }
+
+  /**
+   * Exposes a message or group instance
+   *
+   * @param message raw message
+   * @param from index of the first field of the structure
+   * @param to index after the last field of the structure
+   * @param plan checks of the structure, giving its repeating groups
+   * @param layout layout of the structure, to resolve members by name
+   * @param name name of the message or group
+   * @param isGroup {@code true} if the structure is a group instance, whose members may be
+   *        qualified by the group name
+   * @return this scope
+   */
+  RawMessageScope wrap(RawMessage message, int from, int to, ValidationPlan plan,
+      MessageLayout layout, String name, boolean isGroup) {
+    this.message = message;
+    this.from = from;
+    this.to = to;
+    this.plan = plan;
+    this.layout = layout;
+    this.name = name;
+    this.isGroup = isGroup;
+    this.parent = null;
+    fieldValues.clear();
+    if (groupKeyIndexes != null) {
+      groupKeyIndexes.clear();
+    }
+    findGroupSpans();
+    return this;
+  }
+
+  private void addGroupSpan(int start, int end) {
+    if (groupSpanCount * 2 == groupSpans.length) {
+      groupSpans = Arrays.copyOf(groupSpans, groupSpans.length * 2);
+    }
+    groupSpans[groupSpanCount * 2] = start;
+    groupSpans[groupSpanCount * 2 + 1] = end;
+    groupSpanCount++;
+  }
+
+  private void findGroupSpans() {
+    groupSpanCount = 0;
+    if (!plan.hasGroups()) {
+      return;
+    }
+    int index = from;
+    while (index < to) {
+      final ValidationPlan.Check check = plan.getGroupCheck(message.getTag(index));
+      index++;
+      if (check != null) {
+        final int start = index;
+        while (isInstanceStart(check, index)) {
+          index = instanceEnd(check, index);
+        }
+        if (index > start) {
+          addGroupSpan(start, index);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return end of the group instances that contain a field, or {@code -1} if it is a field of
+   *         this structure
+   */
+  private int groupSpanEnd(int index) {
+    for (int i = 0; i < groupSpanCount; i++) {
+      if (index >= groupSpans[i * 2] && index < groupSpans[i * 2 + 1]) {
+        return groupSpans[i * 2 + 1];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Resolves the value of a field, decoding it only on first reference since the message was
+   * wrapped
+   */
+  private FixNode resolveField(FieldRefType fieldRefType) {
+    final int id = fieldRefType.getId().intValue();
+    final int cached = fieldValues.indexOf(id);
+    if (cached >= 0) {
+      return fieldValues.getValue(cached);
+    }
+    final FixValue<?> fixValue = decodeField(fieldRefType);
+    fieldValues.put(id, null, fixValue);
+    return fixValue;
+  }
+
+  private FixValue<?> decodeField(FieldRefType fieldRefType) {
+    final int id = fieldRefType.getId().intValue();
+    final String dataTypeString = repository.getFieldDatatype(id);
+    final CompiledCodeSet codeSet = repository.getCompiledCodeSet(dataTypeString);
+    final FixType dataType =
+        codeSet != null ? codeSet.getDataType() : FixType.forName(dataTypeString);
+    final int index = indexOf(id);
+    if (index < 0) {
+      // Set default value if field is not present
+      return FieldDecoder.defaultValue(fieldRefType, dataType);
+    } else if (dataType == FixType.data) {
+      return new FixValue<>(fieldRefType.getName(), dataType, message.getBytes(index));
+    }
+    try {
+      return FieldDecoder.decode(fieldRefType.getName(), dataType, message.getString(index),
+          symbolResolver.isScaledDecimals());
+    } catch (FieldConvertError | RuntimeException e) {
+      // a malformed value cannot be evaluated
+      return null;
+    }
+  }
+
+  /**
+   * Finds the first instance of a nested group whose key field equals the value of a key predicate
+   *
+   * @return index of the delimiter field of the instance, {@link GroupKeyIndex#NO_INSTANCE} if no
+   *         instance matches, or {@link GroupKeyIndex#UNINDEXED} if the predicate must be evaluated
+   *         for each instance because the value cannot be compared by key
+   */
+  private int findInstanceByKey(ValidationPlan.Check check, GroupKeyPredicate keyPredicate) {
+    final FixValue<?> value;
+    try {
+      value = evaluator.evaluate(keyPredicate.getValue());
+    } catch (ScoreException e) {
+      return GroupKeyIndex.UNINDEXED;
+    }
+    if (value == null || value.getValue() == null) {
+      return GroupKeyIndex.UNINDEXED;
+    }
+    return getGroupKeyIndex(check, keyPredicate.getKeyField()).find(value.getValue());
+  }
+
+  /**
+   * Finds the first instance of a nested group for which a predicate is true, evaluating it for
+   * each instance in turn
+   *
+   * @return index of the delimiter field of the instance, or {@link GroupKeyIndex#NO_INSTANCE} if
+   *         no instance matches or the predicate cannot be compiled
+   */
+  private int findInstanceByPredicate(ValidationPlan.Check check, String predicate) {
+    final CompiledExpression expression;
+    try {
+      // codes in a predicate are bound to the code sets of the fields they are compared to
+      expression = repository.compile(predicate, null, evaluator);
+    } catch (ScoreException e) {
+      evaluator.getContext().getErrorListener().onError(e.getMessage());
+      return GroupKeyIndex.NO_INSTANCE;
+    }
+    final Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT);
+    final PathStep step = new PathStep(check.getGroupType().getName());
+    final RawMessageScope scope = acquireScanScope();
+    try {
+      for (int start = firstInstance(check); start >= 0;) {
+        final int end = instanceEnd(check, start);
+        local.nest(step, wrapInstance(scope, check, start, end));
+        try {
+          if (evaluator.test(expression)) {
+            return start;
+          }
+        } catch (ScoreException e) {
+          // already reported to the error listener; an instance that cannot be evaluated does not
+          // match
+        } finally {
+          local.remove(step);
+        }
+        start = isInstanceStart(check, end) ? end : -1;
+      }
+      return GroupKeyIndex.NO_INSTANCE;
+    } finally {
+      releaseScanScope(scope);
+    }
+  }
+
+  /**
+   * Returns an index of the instances of a nested group by the values of a key field, building it
+   * on first access since the message was wrapped
+   */
+  private GroupKeyIndex getGroupKeyIndex(ValidationPlan.Check check, FieldRefType keyField) {
+    if (groupKeyIndexes == null) {
+      groupKeyIndexes = new IdentityHashMap<>();
+    }
+    GroupKeyIndex index = groupKeyIndexes.get(keyField);
+    if (index == null) {
+      index = new GroupKeyIndex();
+      final RawMessageScope scope = acquireScanScope();
+      try {
+        for (int start = firstInstance(check); start >= 0;) {
+          final int end = instanceEnd(check, start);
+          index.add(wrapInstance(scope, check, start, end).resolveField(keyField), start);
+          start = isInstanceStart(check, end) ? end : -1;
+        }
+      } finally {
+        releaseScanScope(scope);
+      }
+      groupKeyIndexes.put(keyField, index);
+    }
+    return index;
+  }
+
+  private FixNode resolveGroup(PathStep pathStep, GroupType groupType) {
+    final ValidationPlan.Check check = plan.getGroupCheck(groupType.getNumInGroupId().intValue());
+    if (check == null) {
+      return null;
+    }
+    final int index = pathStep.getIndex();
+    final String predicate = pathStep.getPredicate();
+    if (index != PathStep.NO_INDEX) {
+      // PathStep uses one-based index for group entries
+      int instance = 1;
+      for (int start = firstInstance(check); start >= 0; instance++) {
+        final int end = instanceEnd(check, start);
+        if (instance == index) {
+          return newInstanceScope(check, start, end);
+        }
+        start = isInstanceStart(check, end) ? end : -1;
+      }
+      return null;
+    } else if (predicate != null) {
+      final GroupKeyPredicate keyPredicate =
+          repository.getGroupKeyPredicate(groupType, predicate, evaluator);
+      int start =
+          keyPredicate != null ? findInstanceByKey(check, keyPredicate) : GroupKeyIndex.UNINDEXED;
+      if (start == GroupKeyIndex.UNINDEXED) {
+        start = findInstanceByPredicate(check, predicate);
+      }
+      return start >= 0 ? newInstanceScope(check, start, instanceEnd(check, start)) : null;
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Returns a scope to evaluate a predicate against each instance of a nested group. It is reused
+   * unless a predicate resolves a nested group of this structure while it is in use.
+   */
+  private RawMessageScope acquireScanScope() {
+    if (isScanning) {
+      return new RawMessageScope(repository, symbolResolver, evaluator);
+    }
+    if (scanScope == null) {
+      scanScope = new RawMessageScope(repository, symbolResolver, evaluator);
+    }
+    isScanning = true;
+    return scanScope;
+  }
+
+  private RawMessageScope newInstanceScope(ValidationPlan.Check check, int start, int end) {
+    return wrapInstance(new RawMessageScope(repository, symbolResolver, evaluator), check, start,
+        end);
+  }
+
+  private void releaseScanScope(RawMessageScope scope) {
+    if (scope == scanScope) {
+      isScanning = false;
+    }
+  }
+
+  private RawMessageScope wrapInstance(RawMessageScope scope, ValidationPlan.Check check,
+      int start, int end) {
+    return scope.wrap(message, start, end, check.getGroupPlan(),
+        repository.getLayout(check.getGroupType()), check.getGroupType().getName(), true);
+  }
+
+}
@@ -14,27 +14,70 @@
  */
 package io.fixprotocol.orchestra.model.quickfix;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import io.fixprotocol._2016.fixrepository.CodeSetType;
+import io.fixprotocol._2016.fixrepository.CodeSets;
 import io.fixprotocol._2016.fixrepository.ComponentRefType;
 import io.fixprotocol._2016.fixrepository.ComponentType;
+import io.fixprotocol._2016.fixrepository.Components;
 import io.fixprotocol._2016.fixrepository.Datatype;
 import io.fixprotocol._2016.fixrepository.Datatypes;
+import io.fixprotocol._2016.fixrepository.FieldRefType;
 import io.fixprotocol._2016.fixrepository.FieldType;
+import io.fixprotocol._2016.fixrepository.Fields;
 import io.fixprotocol._2016.fixrepository.GroupRefType;
 import io.fixprotocol._2016.fixrepository.GroupType;
 import io.fixprotocol._2016.fixrepository.MessageType;
+import io.fixprotocol._2016.fixrepository.Messages;
 import io.fixprotocol._2016.fixrepository.Repository;
+import io.fixprotocol.orchestra.dsl.antlr.CompiledExpression;
+import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
 
 /**
  * Helper methods for a Repository
+ * <p>
+ * Indexes of fields, code sets, components, datatypes and messages are built when an adapter is
+ * constructed, so lookups do not search the Repository. Changes to the Repository after that are
+ * not seen by the adapter. Lookups are thread-safe.
  * 
  * @author Don Mendelson
  */
 public class RepositoryAdapter {
 
+  /**
+   * Field datatypes are held in an array indexed by tag up to this limit, and in a map above it
+   */
+  private static final int MAX_INDEXED_TAG = 0xFFFF;
+
+  /**
+   * Expressions compiled with codes bound, by name of the initial code set and expression text
+   */
+  private final Map<String, Map<String, CompiledExpression>> boundExpressions =
+      new ConcurrentHashMap<>();
+  private final Map<String, CodeSetScope> codeSetScopes = new ConcurrentHashMap<>();
+  private final Map<String, CodeSetType> codeSets = new HashMap<>();
+  private final Map<String, CompiledCodeSet> compiledCodeSets = new ConcurrentHashMap<>();
+  private final Map<BigInteger, ComponentType> components = new HashMap<>();
+  private final Map<String, Datatype> datatypes = new HashMap<>();
+  private final String[] fieldDatatypes;
+  private final Map<String, Integer> fieldIds = new HashMap<>();
+  private final Map<BigInteger, GroupType> groups = new HashMap<>();
+  private final Map<GroupType, Map<String, Optional<GroupKeyPredicate>>> groupKeyPredicates =
+      new ConcurrentHashMap<>();
+  private final Map<GroupType, GroupTags> groupTags = new ConcurrentHashMap<>();
+  private final Map<Integer, String> highFieldDatatypes = new HashMap<>();
+  private final Map<Object, MessageLayout> layouts = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, MessageType>> messages = new HashMap<>();
+  private final Map<String, MessageType> messagesByMsgType = new HashMap<>();
   private final Repository repository;
 
   /**
@@ -42,6 +85,62 @@ public class RepositoryAdapter {
    */
   public RepositoryAdapter(Repository repository) {
     this.repository = repository;
+    final CodeSets codeSetList = repository.getCodeSets();
+    if (codeSetList != null) {
+      for (CodeSetType codeSet : codeSetList.getCodeSet()) {
+        codeSets.putIfAbsent(codeSet.getName(), codeSet);
+      }
+    }
+    final Components componentList = repository.getComponents();
+    if (componentList != null) {
+      for (ComponentType component : componentList.getComponentOrGroup()) {
+        components.putIfAbsent(component.getId(), component);
+        if (component instanceof GroupType) {
+          groups.putIfAbsent(component.getId(), (GroupType) component);
+        }
+      }
+    }
+    final Datatypes datatypeList = repository.getDatatypes();
+    if (datatypeList != null) {
+      for (Datatype datatype : datatypeList.getDatatype()) {
+        datatypes.putIfAbsent(datatype.getName(), datatype);
+      }
+    }
+    final Fields fieldList = repository.getFields();
+    int maxTag = 0;
+    if (fieldList != null) {
+      for (FieldType fieldType : fieldList.getField()) {
+        final int id = fieldType.getId().intValue();
+        if (id > maxTag && id <= MAX_INDEXED_TAG) {
+          maxTag = id;
+        }
+      }
+    }
+    fieldDatatypes = new String[maxTag + 1];
+    if (fieldList != null) {
+      final List<FieldType> fields = fieldList.getField();
+      // iterate in reverse so that the first of duplicate entries wins, as in a search
+      for (int i = fields.size() - 1; i >= 0; i--) {
+        final FieldType fieldType = fields.get(i);
+        final int id = fieldType.getId().intValue();
+        fieldIds.put(fieldType.getName(), id);
+        if (id >= 0 && id <= MAX_INDEXED_TAG) {
+          fieldDatatypes[id] = fieldType.getType();
+        } else {
+          highFieldDatatypes.put(id, fieldType.getType());
+        }
+      }
+    }
+    final Messages messageList = repository.getMessages();
+    if (messageList != null) {
+      for (MessageType messageType : messageList.getMessage()) {
+        messages.computeIfAbsent(messageType.getName(), k -> new HashMap<>())
+            .putIfAbsent(messageType.getScenario(), messageType);
+        if (messageType.getMsgType() != null && "base".equals(messageType.getScenario())) {
+          messagesByMsgType.putIfAbsent(messageType.getMsgType(), messageType);
+        }
+      }
+    }
   }
 
   /**
@@ -50,13 +149,127 @@ public class RepositoryAdapter {
    * @return A Code Set or {@code null} if not found
    */
   CodeSetType getCodeset(String name) {
-    List<CodeSetType> codeSetList = repository.getCodeSets().getCodeSet();
-      for (CodeSetType codeSet : codeSetList) {
-        if (name.equals(codeSet.getName())) {
-          return codeSet;
-        }
+    return codeSets.get(name);
+  }
+
+  /**
+   * Get the scope of a Code Set by name. A scope is created once and then shared, so it must not
+   * be closed.
+   * @param name Code Set name
+   * @return A Code Set scope or {@code null} if not found
+   */
+  CodeSetScope getCodeSetScope(String name) {
+    if (name == null) {
+      return null;
+    }
+    final CodeSetScope codeSetScope = codeSetScopes.get(name);
+    if (codeSetScope != null) {
+      return codeSetScope;
+    }
+    final CompiledCodeSet codeSet = getCompiledCodeSet(name);
+    return codeSet != null
+        ? codeSetScopes.computeIfAbsent(name, k -> new CodeSetScope(codeSet))
+        : null;
+  }
+
+  /**
+   * Compile an expression with codes bound to the code sets of this Repository, as by
+   * {@link Evaluator#compile(String, io.fixprotocol.orchestra.model.Scope, java.util.function.Function)}.
+   * An expression is compiled once for each initial code set and then shared.
+   * @param expression an expression in the Score grammar
+   * @param codeSet scope of the initial code set, or {@code null}
+   * @param evaluator compiles the expression on first request
+   * @return a compiled expression
+   * @throws ScoreException if the expression is invalid syntactically
+   */
+  CompiledExpression compile(String expression, CodeSetScope codeSet, Evaluator evaluator)
+      throws ScoreException {
+    final Map<String, CompiledExpression> expressions = boundExpressions
+        .computeIfAbsent(codeSet != null ? codeSet.getName() : "", k -> new ConcurrentHashMap<>());
+    final CompiledExpression cached = expressions.get(expression);
+    if (cached != null) {
+      return cached;
     }
-    return null;
+    final CompiledExpression compiled =
+        evaluator.compile(expression, codeSet, this::getFieldCodeSetScope);
+    final CompiledExpression existing = expressions.putIfAbsent(expression, compiled);
+    return existing != null ? existing : compiled;
+  }
+
+  /**
+   * Get a Code Set by name, compiled for lookups. It is compiled once and then shared.
+   * @param name Code Set name
+   * @return A compiled Code Set or {@code null} if not found
+   */
+  CompiledCodeSet getCompiledCodeSet(String name) {
+    if (name == null) {
+      return null;
+    }
+    final CompiledCodeSet compiledCodeSet = compiledCodeSets.get(name);
+    if (compiledCodeSet != null) {
+      return compiledCodeSet;
+    }
+    final CodeSetType codeSet = codeSets.get(name);
+    return codeSet != null
+        ? compiledCodeSets.computeIfAbsent(name, k -> new CompiledCodeSet(codeSet))
+        : null;
+  }
+
+  /**
+   * Get the scope of the Code Set of a field by field name
+   * @param name field name
+   * @return A Code Set scope or {@code null} if the field is not found or its datatype is not a
+   *         Code Set
+   */
+  CodeSetScope getFieldCodeSetScope(String name) {
+    final Integer id = fieldIds.get(name);
+    return id != null ? getCodeSetScope(getFieldDatatype(id)) : null;
+  }
+
+  /**
+   * Get the tags that may occur in an instance of a repeating group. They are collected once and
+   * then shared.
+   * @param groupType a group
+   * @return tags of the group, its components and nested groups
+   */
+  GroupTags getGroupTags(GroupType groupType) {
+    final GroupTags tags = groupTags.get(groupType);
+    if (tags != null) {
+      return tags;
+    }
+    return groupTags.computeIfAbsent(groupType, g -> {
+      final List<Integer> memberTags = new ArrayList<>();
+      addGroupTags(g.getComponentRefOrGroupRefOrFieldRef(), memberTags);
+      final int[] array = new int[memberTags.size()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = memberTags.get(i);
+      }
+      return new GroupTags(array);
+    });
+  }
+
+  /**
+   * Get a group predicate compiled as a key equality. It is compiled once and then shared.
+   * @param groupType group whose instances are selected
+   * @param predicate text of a predicate
+   * @param evaluator compiles the predicate on first request
+   * @return a key predicate, or {@code null} if the predicate is not a simple key equality
+   */
+  GroupKeyPredicate getGroupKeyPredicate(GroupType groupType, String predicate,
+      Evaluator evaluator) {
+    return groupKeyPredicates.computeIfAbsent(groupType, g -> new ConcurrentHashMap<>())
+        .computeIfAbsent(predicate, p -> Optional
+            .ofNullable(GroupKeyPredicate.compile(p, groupType, this, evaluator)))
+        .orElse(null);
+  }
+
+  /**
+   * @param id field tag
+   * @return {@code true} if the datatype of the field is data, so its value may contain any byte.
+   *         Suitable to parse a {@link RawMessage}.
+   */
+  public boolean isDataField(int id) {
+    return "data".equals(getFieldDatatype(id));
   }
 
   /**
@@ -65,14 +278,7 @@ public class RepositoryAdapter {
    * @return A component or {@code null} if not found
    */ 
   ComponentType getComponent(ComponentRefType componentRefType) {
-    List<ComponentType> components =
-        repository.getComponents().getComponentOrGroup();
-    for (ComponentType component : components) {
-      if (component.getId().equals(componentRefType.getId())) {
-        return component;
-      }
-    }
-    return null;
+    return components.get(componentRefType.getId());
   }
 
   /**
@@ -81,14 +287,7 @@ public class RepositoryAdapter {
    * @return A datatype or {@code null} if not found
    */ 
   Datatype getDatatype(String name) {
-    Datatypes datatypes = repository.getDatatypes();
-    List<Datatype> datatypeList = datatypes.getDatatype();
-    for (Datatype datatype : datatypeList) {
-      if (name.equals(datatype.getName())) {
-        return datatype;
-      }
-    }
-    return null;
+    return datatypes.get(name);
   }
 
   /**
@@ -97,13 +296,11 @@ public class RepositoryAdapter {
    * @return name of the datatype or {@code null} if the field is not found
    */
   String getFieldDatatype(int id) {
-    List<FieldType> fields = repository.getFields().getField();
-    for (FieldType fieldType : fields) {
-      if (fieldType.getId().intValue() == id) {
-        return fieldType.getType();
-      }
+    if (id >= 0 && id < fieldDatatypes.length) {
+      return fieldDatatypes[id];
+    } else {
+      return highFieldDatatypes.get(id);
     }
-    return null;
   }
 
   /**
@@ -112,14 +309,7 @@ public class RepositoryAdapter {
    * @return a group or {@code null} if not found
    */
   GroupType getGroup(GroupRefType groupRefType) {
-    List<ComponentType> components =
-        repository.getComponents().getComponentOrGroup();
-    for (ComponentType component : components) {
-      if (component.getId().equals(groupRefType.getId())) {
-        return (GroupType) component;
-      }
-    }
-    return null;
+    return groups.get(groupRefType.getId());
   }
 
   /**
@@ -129,22 +319,83 @@ public class RepositoryAdapter {
    * @return a message or {@code null} if not found
    */
   MessageType getMessage(String name, String scenario) {
-    List<MessageType> messageList = repository.getMessages().getMessage();
-    for (MessageType messageType : messageList) {
-      if (name.equals(messageType.getName()) && scenario.equals(messageType.getScenario())) {
+    final Map<String, MessageType> scenarios = messages.get(name);
+    return scenarios != null ? scenarios.get(scenario) : null;
+  }
 
-        return messageType;
-      }
-    }
-    return null;
+  /**
+   * Get the base scenario of a message by its MsgType(35) value
+   * @param msgType value of MsgType field
+   * @return a message or {@code null} if not found
+   */
+  MessageType getMessageByMsgType(String msgType) {
+    return messagesByMsgType.get(msgType);
+  }
+
+  /**
+   * Get the layout of a group
+   * <p>
+   * The layout is built on first request for a group and reused thereafter.
+   *
+   * @param groupType a group
+   * @return an immutable layout of the group
+   */
+  MessageLayout getLayout(GroupType groupType) {
+    return layouts.computeIfAbsent(groupType,
+        k -> new MessageLayout(groupType.getComponentRefOrGroupRefOrFieldRef()));
+  }
+
+  /**
+   * Get the layout of a message including members from base scenarios
+   * <p>
+   * The layout is built on first request for a message and reused thereafter.
+   *
+   * @param messageType a message
+   * @return an immutable layout of the message
+   */
+  MessageLayout getLayout(MessageType messageType) {
+    return layouts.computeIfAbsent(messageType,
+        k -> new MessageLayout(combineMessageMembers(messageType)));
+  }
+
+  /**
+   * Get all messages in the Repository
+   * @return a list of messages of all scenarios
+   */
+  List<MessageType> getMessages() {
+    final Messages messageList = repository.getMessages();
+    return messageList != null ? messageList.getMessage() : Collections.emptyList();
   }
 
   /**
    * Get a combined list of a message members including members from base scenarios
+   * 
    * @param messageType a message
-   * @return a combined list of members
+   * @return an immutable combined list of members
    */
   List<Object> getMessageMembers(MessageType messageType) {
+    return getLayout(messageType).getMembers();
+  }
+
+  private void addGroupTags(List<Object> members, List<Integer> tags) {
+    for (Object member : members) {
+      if (member instanceof FieldRefType) {
+        tags.add(((FieldRefType) member).getId().intValue());
+      } else if (member instanceof GroupRefType) {
+        final GroupType groupType = getGroup((GroupRefType) member);
+        if (groupType != null) {
+          tags.add(groupType.getNumInGroupId().intValue());
+          addGroupTags(groupType.getComponentRefOrGroupRefOrFieldRef(), tags);
+        }
+      } else if (member instanceof ComponentRefType) {
+        final ComponentType component = getComponent((ComponentRefType) member);
+        if (component != null) {
+          addGroupTags(component.getComponentRefOrGroupRefOrFieldRef(), tags);
+        }
+      }
+    }
+  }
+  private List<Object> combineMessageMembers(MessageType messageType) {
     List<Object> elements = new ArrayList<Object>();
    
     elements.addAll(
@@ -0,0 +1,334 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.fixprotocol._2016.fixrepository.ComponentRefType;
+import io.fixprotocol._2016.fixrepository.ComponentType;
+import io.fixprotocol._2016.fixrepository.FieldRefType;
+import io.fixprotocol._2016.fixrepository.FieldRuleType;
+import io.fixprotocol._2016.fixrepository.GroupRefType;
+import io.fixprotocol._2016.fixrepository.GroupType;
+import io.fixprotocol._2016.fixrepository.PresenceT;
+import io.fixprotocol.orchestra.dsl.antlr.CompiledExpression;
+import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
+import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+/**
+ * Checks to validate a message or group, compiled once from its definition
+ * <p>
+ * Fields of referenced components are flattened into the plan of the structure that references
+ * them, except for the standard header and trailer, and each repeating group has a nested plan.
+ * Repository lookups and compilation of conditional rules are done when the plan is compiled, so
+ * validating a message just runs the checks in order. A plan is immutable.
+ *
+ * @author Don Mendelson
+ *
+ */
+final class ValidationPlan {
+
+  /**
+   * Checks of one field, or of the instances of a repeating group
+   */
+  static final class Check {
+    private final CompiledCodeSet codeSet;
+    private final CodeSetScope codeSetScope;
+    private final boolean isCodeChecked;
+    private final int[] memoSlots;
+    private final CompiledExpression[] compiledRules;
+    private final ValidationPlan groupPlan;
+    private final GroupTags groupTags;
+    private final GroupType groupType;
+    private final PresenceT presence;
+    private final String[] rules;
+    private final int tag;
+
+    private Check(int tag, PresenceT presence, CompiledCodeSet codeSet,
+        CodeSetScope codeSetScope, boolean isCodeChecked, String[] rules,
+        CompiledExpression[] compiledRules, int[] memoSlots) {
+      this.tag = tag;
+      this.presence = presence;
+      this.codeSet = codeSet;
+      this.codeSetScope = codeSetScope;
+      this.isCodeChecked = isCodeChecked;
+      this.rules = rules;
+      this.compiledRules = compiledRules;
+      this.memoSlots = memoSlots;
+      this.groupPlan = null;
+      this.groupTags = null;
+      this.groupType = null;
+    }
+
+    private Check(GroupType groupType, GroupTags groupTags, ValidationPlan groupPlan) {
+      this.tag = groupType.getNumInGroupId().intValue();
+      this.groupType = groupType;
+      this.groupTags = groupTags;
+      this.groupPlan = groupPlan;
+      this.presence = PresenceT.OPTIONAL;
+      this.codeSet = null;
+      this.codeSetScope = null;
+      this.isCodeChecked = false;
+      this.rules = new String[0];
+      this.compiledRules = new CompiledExpression[0];
+      this.memoSlots = new int[0];
+    }
+
+    /**
+     * @return code set of the field, or {@code null} if its datatype is not a code set
+     */
+    CompiledCodeSet getCodeSet() {
+      return codeSet;
+    }
+
+    /**
+     * @return scope to nest as {@code ^} while the field is validated, or {@code null} if the
+     *         field has no code set or all codes in its rules were bound when compiled
+     */
+    CodeSetScope getCodeSetScope() {
+      return codeSetScope;
+    }
+
+    /**
+     * Compiled conditional rule at an index
+     *
+     * @return a compiled expression, or {@code null} if the rule failed to compile
+     */
+    CompiledExpression getCompiledRule(int index) {
+      return compiledRules[index];
+    }
+
+    /**
+     * Slot of the result of a conditional rule at an index. Rules with the same text that resolve
+     * codes in the same code set share a slot, so a result can be reused within a message.
+     *
+     * @return index less than {@link ValidationPlan#getMemoSlotCount()}, or {@code -1} if the
+     *         result must not be reused
+     */
+    int getMemoSlot(int index) {
+      return memoSlots[index];
+    }
+
+    /**
+     * @return plan for each instance of a repeating group, or {@code null} if this checks a field
+     */
+    ValidationPlan getGroupPlan() {
+      return groupPlan;
+    }
+
+    /**
+     * @return tags that may occur in an instance of a repeating group, or {@code null} if this
+     *         checks a field
+     */
+    GroupTags getGroupTags() {
+      return groupTags;
+    }
+
+    /**
+     * @return definition of a repeating group, or {@code null} if this checks a field
+     */
+    GroupType getGroupType() {
+      return groupType;
+    }
+
+    PresenceT getPresence() {
+      return presence;
+    }
+
+    /**
+     * Source text of a conditional rule at an index
+     */
+    String getRule(int index) {
+      return rules[index];
+    }
+
+    int getRuleCount() {
+      return rules.length;
+    }
+
+    /**
+     * @return tag of the field, or NumInGroup tag of a group
+     */
+    int getTag() {
+      return tag;
+    }
+
+    /**
+     * @return {@code true} if a value of the field is valid. Values of fields that are not
+     *         checked against a code set are always valid.
+     */
+    boolean isValidCode(String value) {
+      return !isCodeChecked || codeSet.contains(value);
+    }
+
+    /**
+     * @param message a raw message
+     * @param index index of a field of the message
+     * @return {@code true} if the value of the field is valid. Values of fields that are not
+     *         checked against a code set are always valid.
+     */
+    boolean isValidCode(RawMessage message, int index) {
+      return !isCodeChecked || codeSet.contains(message, index);
+    }
+  }
+
+  /**
+   * Compiles a plan for a message or group
+   *
+   * @param members elements of the structure
+   * @param repository FIX Repository contains metadata
+   * @param evaluator compiles conditional rules
+   * @return a plan
+   */
+  static ValidationPlan compile(List<Object> members, RepositoryAdapter repository,
+      Evaluator evaluator) {
+    final Map<String, Integer> memoSlots = new HashMap<>();
+    final Check[] checks = compileChecks(members, repository, evaluator, memoSlots);
+    return new ValidationPlan(checks, memoSlots.size());
+  }
+
+  private static Check[] compileChecks(List<Object> members, RepositoryAdapter repository,
+      Evaluator evaluator, Map<String, Integer> memoSlots) {
+    final List<Check> checks = new ArrayList<>();
+    addChecks(members, repository, evaluator, memoSlots, checks);
+    return checks.toArray(new Check[0]);
+  }
+
+  private static void addChecks(List<Object> members, RepositoryAdapter repository,
+      Evaluator evaluator, Map<String, Integer> memoSlots, List<Check> checks) {
+    for (Object member : members) {
+      if (member instanceof FieldRefType) {
+        checks.add(compileField((FieldRefType) member, repository, evaluator, memoSlots));
+      } else if (member instanceof GroupRefType) {
+        final GroupType groupType = repository.getGroup((GroupRefType) member);
+        // a reference that cannot be resolved in the Repository is not checked
+        if (groupType != null) {
+          // results are shared with the enclosing message, so a group plan has no slots of its own
+          checks.add(new Check(groupType, repository.getGroupTags(groupType),
+              new ValidationPlan(compileChecks(groupType.getComponentRefOrGroupRefOrFieldRef(),
+                  repository, evaluator, memoSlots), 0)));
+        }
+      } else if (member instanceof ComponentRefType) {
+        final ComponentType component = repository.getComponent((ComponentRefType) member);
+        if (component != null && !component.getName().equals("StandardHeader")
+            && !component.getName().equals("StandardTrailer")) {
+          addChecks(component.getComponentRefOrGroupRefOrFieldRef(), repository, evaluator,
+              memoSlots, checks);
+        }
+      }
+    }
+  }
+
+  private static Check compileField(FieldRefType fieldRefType, RepositoryAdapter repository,
+      Evaluator evaluator, Map<String, Integer> memoSlots) {
+    final int tag = fieldRefType.getId().intValue();
+    final String datatypeName = repository.getFieldDatatype(tag);
+    final CompiledCodeSet codeSet = repository.getCompiledCodeSet(datatypeName);
+    // a field whose datatype is not a base datatype is checked against its code set
+    final boolean isCodeChecked =
+        codeSet != null && repository.getDatatype(datatypeName) == null;
+    final CodeSetScope codeSetScope = repository.getCodeSetScope(datatypeName);
+    final List<FieldRuleType> fieldRules = fieldRefType.getRule();
+    final String[] rules = new String[fieldRules.size()];
+    final CompiledExpression[] compiledRules = new CompiledExpression[rules.length];
+    final int[] ruleMemoSlots = new int[rules.length];
+    boolean isCodeSetNested = false;
+    for (int i = 0; i < rules.length; i++) {
+      rules[i] = fieldRules.get(i).getWhen();
+      try {
+        compiledRules[i] =
+            repository.compile(rules[i], codeSetScope, evaluator);
+        final boolean isCodeSetReferenced =
+            compiledRules[i].getScopes().contains(SymbolResolver.CODE_SET_ROOT.getName());
+        if (isCodeSetReferenced) {
+          isCodeSetNested = true;
+        }
+        if (compiledRules[i].isAssignment()) {
+          ruleMemoSlots[i] = -1;
+        } else {
+          // a result that depends on codes also depends on the code set of the field
+          final String memoKey = isCodeSetReferenced || compiledRules[i].isCodeSetBound()
+              ? compiledRules[i].getNormalizedText() + '\u0000'
+                  + (codeSet != null ? codeSet.getName() : null)
+              : compiledRules[i].getNormalizedText();
+          ruleMemoSlots[i] = memoSlots.computeIfAbsent(memoKey, k -> memoSlots.size());
+        }
+      } catch (ScoreException e) {
+        // reported each time the rule is tested
+        isCodeSetNested = true;
+        ruleMemoSlots[i] = -1;
+      }
+    }
+    return new Check(tag, fieldRefType.getPresence(), codeSet,
+        isCodeSetNested ? codeSetScope : null, isCodeChecked, rules, compiledRules,
+        ruleMemoSlots);
+  }
+
+  private final Check[] checks;
+  private final Check[] groupChecks;
+  private final int memoSlotCount;
+
+  private ValidationPlan(Check[] checks, int memoSlotCount) {
+    this.checks = checks;
+    this.memoSlotCount = memoSlotCount;
+    final List<Check> groupChecks = new ArrayList<>();
+    for (Check check : checks) {
+      if (check.getGroupPlan() != null) {
+        groupChecks.add(check);
+      }
+    }
+    this.groupChecks = groupChecks.toArray(new Check[0]);
+  }
+
+  /**
+   * @return checks in the order of the message definition
+   */
+  Check[] getChecks() {
+    return checks;
+  }
+
+  /**
+   * @param numInGroupTag NumInGroup tag of a repeating group
+   * @return checks of the group, or {@code null} if the group is not a member of this structure
+   */
+  Check getGroupCheck(int numInGroupTag) {
+    for (Check check : groupChecks) {
+      if (check.getTag() == numInGroupTag) {
+        return check;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return {@code true} if this structure has any repeating groups
+   */
+  boolean hasGroups() {
+    return groupChecks.length > 0;
+  }
+
+  /**
+   * @return number of distinct slots of conditional rule results in a message, including those of
+   *         its groups
+   */
+  int getMemoSlotCount() {
+    return memoSlotCount;
+  }
+
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.util.Arrays;
+
+import io.fixprotocol.orchestra.model.TestException;
+import quickfix.field.SessionRejectReason;
+
+/**
+ * Reusable result of validating a message
+ * <p>
+ * Each error is recorded as an {@link ErrorCode}, the tag of the field in error, and a reference to
+ * the offending value or to the context needed to describe it. Nothing is formatted when an error
+ * is recorded; human-readable text is rendered only on request. A result is reset at the start of
+ * each validation and its storage is retained, so validating a message that passes does not
+ * allocate. A result is not thread-safe.
+ *
+ * @author Don Mendelson
+ *
+ */
+public final class ValidationResult {
+
+  /**
+   * Kind of validation error, with its corresponding QuickFIX/J {@link SessionRejectReason}
+   */
+  public enum ErrorCode {
+    /**
+     * A field is present that is forbidden in this message or scenario
+     */
+    FORBIDDEN_FIELD(SessionRejectReason.TAG_NOT_DEFINED_FOR_THIS_MESSAGE_TYPE),
+    /**
+     * The value of a field is not a code of its code set
+     */
+    INVALID_CODE(SessionRejectReason.VALUE_IS_INCORRECT),
+    /**
+     * A required field, or a conditionally required field whose rule is true, is missing
+     */
+    MISSING_REQUIRED_FIELD(SessionRejectReason.REQUIRED_TAG_MISSING),
+    /**
+     * A conditional rule could not be evaluated
+     */
+    RULE_ERROR(SessionRejectReason.OTHER);
+
+    private final int sessionRejectReason;
+
+    ErrorCode(int sessionRejectReason) {
+      this.sessionRejectReason = sessionRejectReason;
+    }
+
+    /**
+     * @return value of SessionRejectReason(373) for a Reject message
+     */
+    public int getSessionRejectReason() {
+      return sessionRejectReason;
+    }
+  }
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private String[] contexts = new String[INITIAL_CAPACITY];
+  private ErrorCode[] errorCodes = new ErrorCode[INITIAL_CAPACITY];
+  private int errorCount = 0;
+  private String messageType;
+  private int[] tags = new int[INITIAL_CAPACITY];
+  private String[] values = new String[INITIAL_CAPACITY];
+
+  /**
+   * @param index of an error, less than {@link #getErrorCount()}
+   * @return actual value as text, or {@code null} if not applicable
+   */
+  public String getActual(int index) {
+    checkIndex(index);
+    switch (errorCodes[index]) {
+      case FORBIDDEN_FIELD:
+        return "present";
+      case INVALID_CODE:
+        return values[index];
+      case MISSING_REQUIRED_FIELD:
+        return "(not present)";
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @param index of an error, less than {@link #getErrorCount()}
+   * @return description of the error
+   */
+  public String getDetailMessage(int index) {
+    checkIndex(index);
+    switch (errorCodes[index]) {
+      case FORBIDDEN_FIELD:
+        return "Forbidden field " + tags[index] + " is present";
+      case INVALID_CODE:
+        return "Invalid code in field " + tags[index];
+      case MISSING_REQUIRED_FIELD:
+        return "Missing required field " + tags[index];
+      default:
+        return contexts[index];
+    }
+  }
+
+  /**
+   * @param index of an error, less than {@link #getErrorCount()}
+   * @return kind of error
+   */
+  public ErrorCode getErrorCode(int index) {
+    checkIndex(index);
+    return errorCodes[index];
+  }
+
+  /**
+   * @return number of errors found
+   */
+  public int getErrorCount() {
+    return errorCount;
+  }
+
+  /**
+   * @param index of an error, less than {@link #getErrorCount()}
+   * @return expected value as text, or {@code null} if not applicable
+   */
+  public String getExpected(int index) {
+    checkIndex(index);
+    switch (errorCodes[index]) {
+      case FORBIDDEN_FIELD:
+        return "FORBIDDEN";
+      case INVALID_CODE:
+        return "in codeSet " + contexts[index];
+      case MISSING_REQUIRED_FIELD:
+        return "REQUIRED";
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return name of the message type that was validated
+   */
+  public String getMessageType() {
+    return messageType;
+  }
+
+  /**
+   * Returns the value of SessionRejectReason(373) for the first error, suitable for a Reject
+   * message
+   *
+   * @return a reason, or {@code -1} if there are no errors
+   */
+  public int getSessionRejectReason() {
+    return errorCount > 0 ? errorCodes[0].getSessionRejectReason() : -1;
+  }
+
+  /**
+   * @param index of an error, less than {@link #getErrorCount()}
+   * @return tag of the field in error, suitable for RefTagID(371), or {@code 0} if the error is
+   *         not attributed to a field
+   */
+  public int getTag(int index) {
+    checkIndex(index);
+    return tags[index];
+  }
+
+  /**
+   * @param index of an error, less than {@link #getErrorCount()}
+   * @return the offending field value, or {@code null} if not applicable
+   */
+  public String getValue(int index) {
+    checkIndex(index);
+    return values[index];
+  }
+
+  /**
+   * @return {@code true} if any error was found
+   */
+  public boolean hasErrors() {
+    return errorCount > 0;
+  }
+
+  /**
+   * Creates an exception that reports the errors of this result. It does not capture a stack
+   * trace, since it reports invalid input rather than a program fault.
+   *
+   * @return a new exception
+   */
+  public TestException toTestException() {
+    final TestException testException =
+        new TestException("Invalid message type " + messageType, null, false, false);
+    for (int i = 0; i < errorCount; i++) {
+      testException.addDetail(getDetailMessage(i), getExpected(i), getActual(i));
+    }
+    return testException;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("ValidationResult [messageType=")
+        .append(messageType).append(", errors=[");
+    for (int i = 0; i < errorCount; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(errorCodes[i]).append(' ').append(tags[i]);
+    }
+    return sb.append("]]").toString();
+  }
+
+  /**
+   * Records an error
+   *
+   * @param errorCode kind of error
+   * @param tag tag of the field in error, or {@code 0}
+   * @param value offending field value, or {@code null}
+   * @param context code set name of {@link ErrorCode#INVALID_CODE}, or text of
+   *        {@link ErrorCode#RULE_ERROR}
+   */
+  void addError(ErrorCode errorCode, int tag, String value, String context) {
+    if (errorCount == errorCodes.length) {
+      final int capacity = errorCount * 2;
+      errorCodes = Arrays.copyOf(errorCodes, capacity);
+      tags = Arrays.copyOf(tags, capacity);
+      values = Arrays.copyOf(values, capacity);
+      contexts = Arrays.copyOf(contexts, capacity);
+    }
+    errorCodes[errorCount] = errorCode;
+    tags[errorCount] = tag;
+    values[errorCount] = value;
+    contexts[errorCount] = context;
+    errorCount++;
+  }
+
+  /**
+   * Appends the errors of another result, in order
+   *
+   * @param other result of validating part of the same message
+   */
+  void addErrors(ValidationResult other) {
+    for (int i = 0; i < other.errorCount; i++) {
+      addError(other, i);
+    }
+  }
+
+  /**
+   * Appends an error of another result
+   *
+   * @param other result of validating part of the same message
+   * @param index index of the error in the other result
+   */
+  void addError(ValidationResult other, int index) {
+    other.checkIndex(index);
+    addError(other.errorCodes[index], other.tags[index], other.values[index],
+        other.contexts[index]);
+  }
+
+  /**
+   * Clears errors of a previous validation
+   *
+   * @param messageType name of the message type to be validated
+   */
+  void reset(String messageType) {
+    this.messageType = messageType;
+    if (errorCount > 0) {
+      Arrays.fill(errorCodes, 0, errorCount, null);
+      Arrays.fill(values, 0, errorCount, null);
+      Arrays.fill(contexts, 0, errorCount, null);
+      errorCount = 0;
+    }
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= errorCount) {
+      throw new IndexOutOfBoundsException("No error at index " + index);
+    }
+  }
+
+}
@@ -1,14 +1,17 @@
 package io.fixprotocol.orchestra.model.quickfix;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.function.BiPredicate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
 
-import io.fixprotocol._2016.fixrepository.CodeSetType;
-import io.fixprotocol._2016.fixrepository.CodeType;
 import io.fixprotocol._2016.fixrepository.ComponentRefType;
 import io.fixprotocol._2016.fixrepository.ComponentType;
 import io.fixprotocol._2016.fixrepository.Datatype;
@@ -18,14 +21,16 @@ import io.fixprotocol._2016.fixrepository.GroupRefType;
 import io.fixprotocol._2016.fixrepository.GroupType;
 import io.fixprotocol._2016.fixrepository.MessageType;
 import io.fixprotocol._2016.fixrepository.PresenceT;
+import io.fixprotocol.orchestra.dsl.antlr.CompiledExpression;
 import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
 import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
 import io.fixprotocol.orchestra.dsl.antlr.SemanticErrorListener;
-import io.fixprotocol.orchestra.model.FixValue;
 import io.fixprotocol.orchestra.model.PathStep;
 import io.fixprotocol.orchestra.model.Scope;
 import io.fixprotocol.orchestra.model.SymbolResolver;
 import io.fixprotocol.orchestra.model.TestException;
+import io.fixprotocol.orchestra.model.quickfix.ValidationPlan.Check;
+import io.fixprotocol.orchestra.model.quickfix.ValidationResult.ErrorCode;
 import quickfix.FieldMap;
 import quickfix.FieldNotFound;
 import quickfix.Group;
@@ -40,100 +45,495 @@ import quickfix.Message;
  * <li>Checks code membership in a codeSet</li>
  * </ul>
  * Only validates the message body, not session level header and trailer.
- * This implementation is a demonstration of capabilities. There is no claim to high performance.
+ * <p>
+ * A message may be validated as a QuickFIX/J {@link Message} or in its raw tag=value encoding. A
+ * raw message is indexed without decoding it, and only the values of fields that are checked against
+ * a code set or referenced by rules are examined.
+ * <p>
+ * Errors accumulate in a reusable {@link ValidationResult}, so validating a message that passes
+ * does not create an exception or collect errors. A Validator is not thread-safe.
+ * <p>
+ * Optionally, the instances of a large repeating group of a {@link Message} may be divided among
+ * the threads of a fork/join pool. See {@link #setParallelGroups(int, ForkJoinPool, Supplier)}.
  * 
  * @author Don Mendelson
  *
  */
 public class Validator implements io.fixprotocol.orchestra.model.Validator<Message> {
 
+  /**
+   * Adds semantic errors to the result of the current validation
+   */
   private class ErrorListener implements SemanticErrorListener {
 
-    private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
-
     @Override
     public void onError(String msg) {
-      try {
-        messages.put(msg);
-      } catch (InterruptedException e) {
-        // TODO Auto-generated catch block
-        e.printStackTrace();
+      if (result != null) {
+        result.addError(ErrorCode.RULE_ERROR, currentTag, null, msg);
       }
     }
-    
-    void getErrors(Collection<String> toReceive) {
-      messages.drainTo(toReceive);
+  }
+
+  /**
+   * Validates a range of instances of a repeating group. Ranges are split in half until small
+   * enough, and the errors of the halves are concatenated, so errors are reported in the order of
+   * instances no matter which thread validated them.
+   */
+  private static final class GroupTask extends RecursiveTask<GroupTaskResult> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final ValidationPlan groupPlan;
+    private final List<Group> groups;
+    private final int instancesPerTask;
+    /**
+     * Results of conditions evaluated by the calling Validator before the group, shared read-only
+     */
+    private final Map<String, Boolean> memoResults;
+    private final byte[] memoSlots;
+    private final Message message;
+    private final MessageType messageType;
+    private final int to;
+    private final ThreadLocal<Validator> workers;
+
+    GroupTask(ThreadLocal<Validator> workers, Message message, MessageType messageType,
+        byte[] memoSlots, Map<String, Boolean> memoResults, ValidationPlan groupPlan,
+        List<Group> groups, int from, int to, int instancesPerTask) {
+      this.workers = workers;
+      this.message = message;
+      this.messageType = messageType;
+      this.memoSlots = memoSlots;
+      this.memoResults = memoResults;
+      this.groupPlan = groupPlan;
+      this.groups = groups;
+      this.from = from;
+      this.to = to;
+      this.instancesPerTask = instancesPerTask;
     }
-    
-    boolean hasError() {
-      return !messages.isEmpty();
+
+    @Override
+    protected GroupTaskResult compute() {
+      if (to - from <= instancesPerTask) {
+        final GroupTaskResult result = new GroupTaskResult(memoSlots.length);
+        workers.get().validateGroupInstances(message, messageType, memoSlots, memoResults,
+            groupPlan, groups, from, to, result);
+        return result;
+      }
+      final int middle = (from + to) >>> 1;
+      final GroupTask first = new GroupTask(workers, message, messageType, memoSlots,
+          memoResults, groupPlan, groups, from, middle, instancesPerTask);
+      final GroupTask second = new GroupTask(workers, message, messageType, memoSlots,
+          memoResults, groupPlan, groups, middle, to, instancesPerTask);
+      first.fork();
+      final GroupTaskResult secondResult = second.compute();
+      final GroupTaskResult firstResult = first.join();
+      firstResult.append(secondResult);
+      return firstResult;
     }
   }
-  private final ErrorListener errorListener = new ErrorListener();
-  private final Evaluator evaluator;
 
-  private final BiPredicate<String, TestException> predicateEvaluator =
-      new BiPredicate<String, TestException>() {
-
-        public boolean test(String expression, TestException testException) {
-          FixValue<?> fixValue;
-          try {
-            fixValue = evaluator.evaluate(expression);
-            final ArrayList<String> toReceive = new ArrayList<>();
-            errorListener.getErrors(toReceive);
-            toReceive.forEach(testException::addDetail);
-            
-            if (fixValue.getValue() == Boolean.TRUE) {
-              return true;
-            }
-          } catch (ScoreException e) {
-            testException.addDetail(e.getMessage());
+  /**
+   * Errors of a range of group instances, with the conditions first evaluated in the range
+   * <p>
+   * On the calling thread, a condition is evaluated only by the first instance that tests it, and
+   * later instances reuse its result. A range validated by another thread evaluates it again, so
+   * errors reported by that evaluation are dropped when the range is appended to one that already
+   * evaluated the condition. Conditions are pure, so the results are the same.
+   */
+  private static final class GroupTaskResult {
+    final ValidationResult errors = new ValidationResult();
+    /**
+     * Start and end indexes of errors reported by the first evaluation of a condition in the range,
+     * by memo slot
+     */
+    private final int[] slotErrors;
+    /**
+     * Results of conditions first evaluated in the range by memo slot, or 0 if not evaluated
+     */
+    private final byte[] slots;
+
+    GroupTaskResult(int slotCount) {
+      this.slots = new byte[slotCount];
+      this.slotErrors = new int[slotCount * 2];
+    }
+
+    /**
+     * Appends the result of the range that follows this one
+     */
+    void append(GroupTaskResult next) {
+      // position of each error of the next range in this one, after errors are dropped
+      final int[] positions = new int[next.errors.getErrorCount() + 1];
+      boolean[] isDropped = null;
+      for (int slot = 0; slot < slots.length; slot++) {
+        if (slots[slot] != 0 && next.slots[slot] != 0) {
+          if (isDropped == null) {
+            isDropped = new boolean[next.errors.getErrorCount()];
           }
-          return false;
+          Arrays.fill(isDropped, next.slotErrors[slot * 2], next.slotErrors[slot * 2 + 1], true);
+        }
+      }
+      for (int i = 0; i < next.errors.getErrorCount(); i++) {
+        positions[i] = errors.getErrorCount();
+        if (isDropped == null || !isDropped[i]) {
+          errors.addError(next.errors, i);
         }
-      };
+      }
+      positions[next.errors.getErrorCount()] = errors.getErrorCount();
+      for (int slot = 0; slot < slots.length; slot++) {
+        if (slots[slot] == 0 && next.slots[slot] != 0) {
+          slots[slot] = next.slots[slot];
+          slotErrors[slot * 2] = positions[next.slotErrors[slot * 2]];
+          slotErrors[slot * 2 + 1] = positions[next.slotErrors[slot * 2 + 1]];
+        }
+      }
+    }
+
+    /**
+     * Records the first evaluation of a condition in the range
+     *
+     * @param errorStart number of errors before the evaluation
+     */
+    void evaluated(int slot, byte memo, int errorStart) {
+      slots[slot] = memo;
+      slotErrors[slot * 2] = errorStart;
+      slotErrors[slot * 2 + 1] = errors.getErrorCount();
+    }
+
+    /**
+     * Copies results of conditions evaluated in the range, so that the caller does not evaluate
+     * them again
+     */
+    void copySlotsTo(byte[] memoSlots) {
+      for (int slot = 0; slot < slots.length; slot++) {
+        if (slots[slot] != 0) {
+          memoSlots[slot] = slots[slot];
+        }
+      }
+    }
+  }
+
+  private static final byte MEMO_FALSE = 1;
+  private static final byte MEMO_TRUE = 2;
+  private static final PathStep IN_ROOT = new PathStep("in.");
+  /**
+   * Fewest group instances validated by one task, so that a task is worth scheduling
+   */
+  private static final int MIN_INSTANCES_PER_TASK = 16;
+
+  private final ErrorListener errorListener = new ErrorListener();
+  private final Evaluator evaluator;
+  private final IntPredicate isDataField;
+
+  /**
+   * Results of conditions evaluated during one call to {@link #validate(Message, MessageType)},
+   * keyed by normalized expression
+   */
+  private final Map<String, Boolean> conditionResults = new HashMap<>();
+  /**
+   * Results of conditions evaluated by a plan during one validation, indexed by memo slot
+   */
+  private byte[] conditionSlots = new byte[16];
+  /**
+   * Name of the code set currently nested as scope {@code ^}
+   */
+  private String codeSetName;
+  /**
+   * Tag of the field currently validated, to which rule errors are attributed
+   */
+  private int currentTag = 0;
+  /**
+   * Message currently validated by a plan, and its definition, for parallel group tasks
+   */
+  private Message currentMessage;
+  private MessageType currentMessageType;
+  private long evaluationCount = 0;
+  private ForkJoinPool groupPool;
+  /**
+   * Validators of group instances, one per pool thread
+   */
+  private ThreadLocal<Validator> groupWorkers;
+  /**
+   * Receives conditions first evaluated while this Validator validates group instances on behalf
+   * of another, or {@code null}
+   */
+  private GroupTaskResult groupTaskResult;
+  private int parallelGroupThreshold = Integer.MAX_VALUE;
+  private long savedEvaluationCount = 0;
+
+  private boolean isPlanned = true;
+  private final ValidationResult lastResult = new ValidationResult();
+  private final Map<String, PathStep> messageSteps = new ConcurrentHashMap<>();
+  private final Map<MessageType, ValidationPlan> plans;
+  private final RawMessage rawMessage = new RawMessage();
+  private final RawMessageScope rawMessageScope;
+  /**
+   * Reusable scopes for group instances of a raw message, indexed by nesting depth
+   */
+  private final List<RawMessageScope> rawInstanceScopes = new ArrayList<>();
   
   private final RepositoryAdapter repositoryAdapter;
   
+  /**
+   * Result of the validation in progress
+   */
+  private ValidationResult result;
   private final SymbolResolver symbolResolver;
 
   public Validator(RepositoryAdapter repositoryAdapter, SymbolResolver symbolResolver) {
+    this(repositoryAdapter, symbolResolver, new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Constructor for a Validator that shares compiled plans with others. Plans are immutable and
+   * not tied to a SymbolResolver, so they may be used by Validators on any thread.
+   *
+   * @param plans shared map of plans by message type, must be thread-safe
+   */
+  Validator(RepositoryAdapter repositoryAdapter, SymbolResolver symbolResolver,
+      Map<MessageType, ValidationPlan> plans) {
     this.repositoryAdapter = repositoryAdapter;
     this.symbolResolver = symbolResolver;
+    this.plans = plans;
     evaluator = new Evaluator(symbolResolver, errorListener );
+    rawMessageScope = new RawMessageScope(repositoryAdapter, symbolResolver, evaluator);
+    isDataField = repositoryAdapter::isDataField;
+  }
+
+  /**
+   * Compiles validation plans for all messages in the Repository, so that the first message of
+   * each type is not delayed by compilation. Otherwise, a plan is compiled on first use.
+   */
+  public void compilePlans() {
+    for (MessageType messageType : repositoryAdapter.getMessages()) {
+      getPlan(messageType);
+    }
+  }
+
+  /**
+   * @return number of conditional expressions evaluated since statistics were reset
+   */
+  public long getEvaluationCount() {
+    return evaluationCount;
+  }
+
+  /**
+   * A conditional expression that occurs more than once in a message definition is only
+   * evaluated once per message.
+   *
+   * @return number of evaluations of conditional expressions saved by reusing an earlier result
+   *         for the same message since statistics were reset
+   */
+  public long getSavedEvaluationCount() {
+    return savedEvaluationCount;
+  }
+
+  /**
+   * @return {@code true} if messages are validated by running compiled plans
+   * @see #setPlanned(boolean)
+   */
+  public boolean isPlanned() {
+    return isPlanned;
+  }
+
+  /**
+   * Selects how messages are validated. A plan is compiled once for each message type and run for
+   * each message. Otherwise, the message definition is interpreted for each message. Results are
+   * the same either way. Plans are used by default.
+   *
+   * @param isPlanned {@code true} to run compiled plans
+   */
+  public void setPlanned(boolean isPlanned) {
+    this.isPlanned = isPlanned;
+  }
+
+  /**
+   * Validates the instances of large repeating groups in parallel. When a group of a
+   * {@link Message} has at least {@code threshold} instances, its instances are divided among tasks
+   * of a fork/join pool. Each pool thread validates instances with its own Validator, so scope
+   * state and remembered rule results are not shared between threads. Errors are reported in
+   * instance order, the same as when validated on the calling thread.
+   * <p>
+   * Only groups of a message validated by a plan are validated in parallel. Groups nested in a
+   * group instance that is validated by the pool are validated on the pool thread. Evaluations by
+   * pool threads are not counted by {@link #getEvaluationCount()}.
+   *
+   * @param threshold least number of instances of a group to validate in parallel, or
+   *        {@link Integer#MAX_VALUE} to validate all groups on the calling thread, as by default
+   * @param pool runs group tasks. May be {@code null} if threshold is {@link Integer#MAX_VALUE}.
+   * @param symbolResolverFactory creates a SymbolResolver for each pool thread. It should
+   *        configure the SymbolResolver the same as the one passed to the constructor.
+   * @throws IllegalArgumentException if threshold is not positive
+   */
+  public void setParallelGroups(int threshold, ForkJoinPool pool,
+      Supplier<SymbolResolver> symbolResolverFactory) {
+    setParallelGroups(threshold, pool, ThreadLocal.withInitial(
+        () -> new Validator(repositoryAdapter, symbolResolverFactory.get(), plans)));
+  }
+
+  /**
+   * Validates the instances of large repeating groups in parallel with Validators that may be
+   * shared with others
+   *
+   * @param workers Validators of group instances by thread. A worker must not otherwise be in use
+   *        while a group is validated.
+   */
+  void setParallelGroups(int threshold, ForkJoinPool pool, ThreadLocal<Validator> workers) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("Threshold must be positive");
+    }
+    this.parallelGroupThreshold = threshold;
+    this.groupPool = pool;
+    this.groupWorkers = workers;
+  }
+
+  /**
+   * Resets evaluation statistics to zero
+   */
+  public void resetStatistics() {
+    evaluationCount = 0;
+    savedEvaluationCount = 0;
   }
 
   @Override
   public void validate(Message message, MessageType messageType) throws TestException {
-    TestException testException =
-        new TestException("Invalid message type " + messageType.getName());
+    if (!validate(message, messageType, lastResult)) {
+      throw lastResult.toTestException();
+    }
+  }
+
+  /**
+   * Validates a message, reporting errors in a result instead of throwing an exception
+   *
+   * @param message a message to validate
+   * @param messageType definition of the message
+   * @param result receives errors. It is reset first, so it may be reused for each message.
+   * @return {@code true} if the message is valid
+   */
+  public boolean validate(Message message, MessageType messageType, ValidationResult result) {
+    final ValidationPlan plan = begin(messageType, result, isPlanned);
     try (final MessageScope messageScope =
         new MessageScope(message, messageType, repositoryAdapter, symbolResolver, evaluator)) {
-      symbolResolver.nest(new PathStep("in."), messageScope);
+      symbolResolver.nest(IN_ROOT, messageScope);
       try (Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT)) {
-        local.nest(new PathStep(messageType.getName()), messageScope);
+        local.nest(messageSteps.computeIfAbsent(messageType.getName(), PathStep::new),
+            messageScope);
 
-        List<Object> members = repositoryAdapter.getMessageMembers(messageType);
+        if (plan != null) {
+          currentMessage = message;
+          currentMessageType = messageType;
+          validatePlan(message, result, plan);
+        } else {
+          List<Object> members = repositoryAdapter.getMessageMembers(messageType);
+          validateFieldMap(message, result, members);
+        }
+      }
+    } catch (Exception e) {
+      throw new RuntimeException("Internal error", e);
+    } finally {
+      this.result = null;
+      currentTag = 0;
+      currentMessage = null;
+      currentMessageType = null;
+    }
+    return !result.hasErrors();
+  }
 
-        validateFieldMap(message, testException, members);
+  /**
+   * Validates a raw message in a byte array
+   *
+   * @param array holds a message in tag=value encoding, delimited by SOH
+   * @param offset position of the first byte of the message
+   * @param length number of bytes of the message
+   * @param messageType definition of the message
+   * @param result receives errors. It is reset first, so it may be reused for each message.
+   * @return {@code true} if the message is valid
+   * @throws IllegalArgumentException if the message is malformed
+   */
+  public boolean validate(byte[] array, int offset, int length, MessageType messageType,
+      ValidationResult result) {
+    rawMessage.parse(array, offset, length, isDataField);
+    return validate(rawMessage, messageType, result);
+  }
+
+  /**
+   * Validates a raw message in a buffer, from its position to its limit. The position and limit of
+   * the buffer are not changed.
+   *
+   * @param buffer holds a message in tag=value encoding, delimited by SOH
+   * @param messageType definition of the message
+   * @param result receives errors. It is reset first, so it may be reused for each message.
+   * @return {@code true} if the message is valid
+   * @throws IllegalArgumentException if the message is malformed
+   */
+  public boolean validate(ByteBuffer buffer, MessageType messageType, ValidationResult result) {
+    rawMessage.parse(buffer, isDataField);
+    return validate(rawMessage, messageType, result);
+  }
+
+  /**
+   * Validates a raw message that has already been parsed. A raw message is always validated by
+   * running a compiled plan.
+   *
+   * @param message a parsed message. Data fields should have been delimited by
+   *        {@link RepositoryAdapter#isDataField(int)}.
+   * @param messageType definition of the message
+   * @param result receives errors. It is reset first, so it may be reused for each message.
+   * @return {@code true} if the message is valid
+   */
+  public boolean validate(RawMessage message, MessageType messageType, ValidationResult result) {
+    final ValidationPlan plan = begin(messageType, result, true);
+    try (final RawMessageScope messageScope = rawMessageScope.wrap(message, 0,
+        message.getFieldCount(), plan, repositoryAdapter.getLayout(messageType),
+        messageType.getName(), false)) {
+      symbolResolver.nest(IN_ROOT, messageScope);
+      try (Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT)) {
+        local.nest(messageSteps.computeIfAbsent(messageType.getName(), PathStep::new),
+            messageScope);
+        validatePlan(messageScope, result, plan, 0);
       }
     } catch (Exception e) {
       throw new RuntimeException("Internal error", e);
     } finally {
-      if (testException.hasDetails()) {
-        throw testException;
+      this.result = null;
+      currentTag = 0;
+    }
+    return !result.hasErrors();
+  }
+
+  /**
+   * Prepares to validate a message
+   *
+   * @return plan of the message, or {@code null} if its definition is to be interpreted
+   */
+  private ValidationPlan begin(MessageType messageType, ValidationResult result,
+      boolean isPlanned) {
+    result.reset(messageType.getName());
+    this.result = result;
+    conditionResults.clear();
+    final ValidationPlan plan = isPlanned ? getPlan(messageType) : null;
+    if (plan != null) {
+      final int slotCount = plan.getMemoSlotCount();
+      if (conditionSlots.length < slotCount) {
+        conditionSlots = new byte[slotCount];
+      } else {
+        Arrays.fill(conditionSlots, 0, slotCount, (byte) 0);
       }
     }
+    return plan;
   }
 
-  private void validateField(FieldMap fieldMap, TestException testException,
+  private void validateField(FieldMap fieldMap, ValidationResult result,
       FieldRefType fieldRefType) {
     int id = fieldRefType.getId().intValue();
+    currentTag = id;
     PresenceT presence = fieldRefType.getPresence();
     String dataTypeString = repositoryAdapter.getFieldDatatype(id);
-    CodeSetType codeSet = repositoryAdapter.getCodeset(dataTypeString);
+    CompiledCodeSet codeSet = repositoryAdapter.getCompiledCodeSet(dataTypeString);
+    CodeSetScope codeSetScope = repositoryAdapter.getCodeSetScope(dataTypeString);
     if (codeSet != null) {
-      symbolResolver.nest(new PathStep("^"), new CodeSetScope(codeSet) );
+      symbolResolver.nest(SymbolResolver.CODE_SET_ROOT, codeSetScope);
+      codeSetName = codeSet.getName();
     }
     boolean isPresentInMessage = fieldMap.isSetField(id);
 
@@ -143,8 +543,8 @@ public class Validator implements io.fixprotocol.orchestra.model.Validator<Messa
         List<FieldRuleType> rules = fieldRefType.getRule();
         for (FieldRuleType rule : rules) {
           String when = rule.getWhen();
-          if (predicateEvaluator.test(when, testException) && !isPresentInMessage) {
-            testException.addDetail("Missing required field " + id, "REQUIRED", "(not present)");
+          if (testCondition(when, codeSetScope, result) && !isPresentInMessage) {
+            result.addError(ErrorCode.MISSING_REQUIRED_FIELD, id, null, null);
           }
         }
         break;
@@ -152,7 +552,7 @@ public class Validator implements io.fixprotocol.orchestra.model.Validator<Messa
         break;
       case FORBIDDEN:
         if (isPresentInMessage) {
-          testException.addDetail("Forbidden field " + id + " is present", "FORBIDDEN", "present");
+          result.addError(ErrorCode.FORBIDDEN_FIELD, id, null, null);
         }
         break;
       case IGNORED:
@@ -161,7 +561,7 @@ public class Validator implements io.fixprotocol.orchestra.model.Validator<Messa
         break;
       case REQUIRED:
         if (!isPresentInMessage) {
-          testException.addDetail("Missing required field " + id, "REQUIRED", "(not present)");
+          result.addError(ErrorCode.MISSING_REQUIRED_FIELD, id, null, null);
         }
         break;
     }
@@ -172,17 +572,8 @@ public class Validator implements io.fixprotocol.orchestra.model.Validator<Messa
         String datatypeName = repositoryAdapter.getFieldDatatype(id);
         Datatype datatype = repositoryAdapter.getDatatype(datatypeName);
         if (datatype == null) {
-          List<CodeType> codeList = codeSet.getCode();
-          boolean matchesCode = false;
-          for (CodeType codeType : codeList) {
-            if (value.equals(codeType.getValue())) {
-              matchesCode = true;
-              break;
-            }
-          }
-          if (!matchesCode) {
-            testException.addDetail("Invalid code in field " + id,
-                "in codeSet " + codeSet.getName(), value);
+          if (!codeSet.contains(value)) {
+            result.addError(ErrorCode.INVALID_CODE, id, value, codeSet.getName());
           }
 
         }
@@ -192,30 +583,294 @@ public class Validator implements io.fixprotocol.orchestra.model.Validator<Messa
     }
   }
 
-  private void validateFieldMap(FieldMap fieldMap, TestException testException,
+  private void validateField(FieldMap fieldMap, ValidationResult result, Check check) {
+    final int id = check.getTag();
+    final boolean isPresentInMessage = fieldMap.isSetField(id);
+    validatePresence(check, isPresentInMessage, result);
+
+    if (isPresentInMessage) {
+      try {
+        final String value = fieldMap.getString(id);
+        if (!check.isValidCode(value)) {
+          result.addError(ErrorCode.INVALID_CODE, id, value, check.getCodeSet().getName());
+        }
+      } catch (FieldNotFound e) {
+        // already tested for presence
+      }
+    }
+  }
+
+  private void validateField(RawMessageScope scope, ValidationResult result, Check check) {
+    final int id = check.getTag();
+    final int index = scope.indexOf(id);
+    validatePresence(check, index >= 0, result);
+
+    // the value is only decoded to report an error
+    if (index >= 0 && !check.isValidCode(scope.getMessage(), index)) {
+      result.addError(ErrorCode.INVALID_CODE, id, scope.getMessage().getString(index),
+          check.getCodeSet().getName());
+    }
+  }
+
+  /**
+   * Checks presence of a field, evaluating its conditional rules
+   */
+  private void validatePresence(Check check, boolean isPresentInMessage,
+      ValidationResult result) {
+    final int id = check.getTag();
+    currentTag = id;
+    final CompiledCodeSet codeSet = check.getCodeSet();
+    codeSetName = codeSet != null ? codeSet.getName() : null;
+    // codes are bound when rules are compiled, so a scope is only nested for codes not found then
+    final CodeSetScope codeSetScope = check.getCodeSetScope();
+    if (codeSetScope != null) {
+      symbolResolver.nest(SymbolResolver.CODE_SET_ROOT, codeSetScope);
+    }
+
+    switch (check.getPresence()) {
+      case CONDITIONAL:
+        for (int i = 0; i < check.getRuleCount(); i++) {
+          final CompiledExpression rule = check.getCompiledRule(i);
+          final boolean isRequired = rule != null
+              ? testCondition(rule, check.getMemoSlot(i), result)
+              : testCondition(check.getRule(i), check.getCodeSetScope(), result);
+          if (isRequired && !isPresentInMessage) {
+            result.addError(ErrorCode.MISSING_REQUIRED_FIELD, id, null, null);
+          }
+        }
+        break;
+      case FORBIDDEN:
+        if (isPresentInMessage) {
+          result.addError(ErrorCode.FORBIDDEN_FIELD, id, null, null);
+        }
+        break;
+      case REQUIRED:
+        if (!isPresentInMessage) {
+          result.addError(ErrorCode.MISSING_REQUIRED_FIELD, id, null, null);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void validatePlan(FieldMap fieldMap, ValidationResult result,
+      ValidationPlan plan) {
+    for (Check check : plan.getChecks()) {
+      final ValidationPlan groupPlan = check.getGroupPlan();
+      if (groupPlan != null) {
+        final List<Group> groups = fieldMap.getGroups(check.getTag());
+        if (groups.size() >= parallelGroupThreshold && currentMessage != null) {
+          // tasks start from the conditions evaluated so far, as the next instance would
+          final byte[] memoSlots = Arrays.copyOf(conditionSlots,
+              getPlan(currentMessageType).getMemoSlotCount());
+          final GroupTaskResult groupResult = groupPool.invoke(new GroupTask(groupWorkers,
+              currentMessage, currentMessageType, memoSlots, new HashMap<>(conditionResults),
+              groupPlan, groups, 0, groups.size(), Math.max(MIN_INSTANCES_PER_TASK,
+                  groups.size() / (groupPool.getParallelism() * 4))));
+          result.addErrors(groupResult.errors);
+          groupResult.copySlotsTo(conditionSlots);
+        } else {
+          for (Group group : groups) {
+            validatePlan(group, result, groupPlan);
+          }
+        }
+      } else {
+        validateField(fieldMap, result, check);
+      }
+    }
+  }
+
+  private void validatePlan(RawMessageScope scope, ValidationResult result, ValidationPlan plan,
+      int depth) {
+    for (Check check : plan.getChecks()) {
+      final ValidationPlan groupPlan = check.getGroupPlan();
+      if (groupPlan != null) {
+        int start = scope.firstInstance(check);
+        while (start >= 0) {
+          final int end = scope.instanceEnd(check, start);
+          final RawMessageScope instanceScope = getRawInstanceScope(depth).wrap(
+              scope.getMessage(), start, end, groupPlan,
+              repositoryAdapter.getLayout(check.getGroupType()), check.getGroupType().getName(),
+              true);
+          validatePlan(instanceScope, result, groupPlan, depth + 1);
+          start = scope.isInstanceStart(check, end) ? end : -1;
+        }
+      } else {
+        validateField(scope, result, check);
+      }
+    }
+  }
+
+  /**
+   * Validates a range of instances of a group of a message on behalf of another Validator. The
+   * message is nested as scope the same way, and conditions already evaluated by the other
+   * Validator are reused.
+   *
+   * @param memoSlots results of conditions of the plan of the message by memo slot
+   * @param memoResults results of conditions evaluated without a plan
+   * @param taskResult receives errors and the conditions first evaluated in the range
+   */
+  private void validateGroupInstances(Message message, MessageType messageType, byte[] memoSlots,
+      Map<String, Boolean> memoResults, ValidationPlan groupPlan, List<Group> groups, int from,
+      int to, GroupTaskResult taskResult) {
+    final ValidationResult result = taskResult.errors;
+    this.result = result;
+    this.groupTaskResult = taskResult;
+    conditionResults.clear();
+    conditionResults.putAll(memoResults);
+    if (conditionSlots.length < memoSlots.length) {
+      conditionSlots = new byte[memoSlots.length];
+    }
+    System.arraycopy(memoSlots, 0, conditionSlots, 0, memoSlots.length);
+    try (final MessageScope messageScope =
+        new MessageScope(message, messageType, repositoryAdapter, symbolResolver, evaluator)) {
+      symbolResolver.nest(IN_ROOT, messageScope);
+      try (Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT)) {
+        local.nest(messageSteps.computeIfAbsent(messageType.getName(), PathStep::new),
+            messageScope);
+        for (int i = from; i < to; i++) {
+          validatePlan(groups.get(i), result, groupPlan);
+        }
+      }
+    } catch (Exception e) {
+      throw new RuntimeException("Internal error", e);
+    } finally {
+      this.result = null;
+      this.groupTaskResult = null;
+      currentTag = 0;
+    }
+  }
+
+  private RawMessageScope getRawInstanceScope(int depth) {
+    while (rawInstanceScopes.size() <= depth) {
+      rawInstanceScopes
+          .add(new RawMessageScope(repositoryAdapter, symbolResolver, evaluator));
+    }
+    return rawInstanceScopes.get(depth);
+  }
+
+  private void validateFieldMap(FieldMap fieldMap, ValidationResult result,
       List<Object> members) {
     for (Object member : members) {
       if (member instanceof FieldRefType) {
         FieldRefType fieldRefType = (FieldRefType) member;
-        validateField(fieldMap, testException, fieldRefType);
+        validateField(fieldMap, result, fieldRefType);
       } else if (member instanceof GroupRefType) {
         GroupRefType groupRefType = (GroupRefType) member;
         GroupType groupType = repositoryAdapter.getGroup(groupRefType);       
         List<Group> groups = fieldMap.getGroups(groupType.getNumInGroupId().intValue());
         for (Group group : groups) {
-          validateFieldMap(group, testException,
+          validateFieldMap(group, result,
               groupType.getComponentRefOrGroupRefOrFieldRef());
         }
       } else if (member instanceof ComponentRefType) {
         ComponentRefType componentRefType = (ComponentRefType) member;
         ComponentType component = repositoryAdapter.getComponent(componentRefType);
         if (!component.getName().equals("StandardHeader") && !component.getName().equals("StandardTrailer"))
-        validateFieldMap(fieldMap, testException,
+        validateFieldMap(fieldMap, result,
             component.getComponentRefOrGroupRefOrFieldRef());
       }
     }
   }
 
+  private ValidationPlan getPlan(MessageType messageType) {
+    final ValidationPlan plan = plans.get(messageType);
+    if (plan != null) {
+      return plan;
+    }
+    return plans.computeIfAbsent(messageType, m -> ValidationPlan
+        .compile(repositoryAdapter.getMessageMembers(m), repositoryAdapter, evaluator));
+  }
+
+  private boolean testCondition(String expression, CodeSetScope codeSetScope,
+      ValidationResult result) {
+    try {
+      return testCondition(repositoryAdapter.compile(expression, codeSetScope, evaluator),
+          result);
+    } catch (ScoreException e) {
+      result.addError(ErrorCode.RULE_ERROR, currentTag, null, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Evaluates a condition, reusing its result if it was already evaluated for the current message
+   */
+  private boolean testCondition(CompiledExpression compiledExpression,
+      ValidationResult result) {
+    final String key = memoKey(compiledExpression);
+    if (key != null) {
+      final Boolean memo = conditionResults.get(key);
+      if (memo != null) {
+        savedEvaluationCount++;
+        return memo;
+      }
+    }
+    final boolean value = evaluateCondition(compiledExpression, result);
+    if (key != null) {
+      conditionResults.put(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * Evaluates a condition of a plan, reusing its result if a condition with the same memo slot was
+   * already evaluated for the current message
+   *
+   * @param memoSlot slot of the result in the plan, or {@code -1} if it must not be reused
+   */
+  private boolean testCondition(CompiledExpression compiledExpression, int memoSlot,
+      ValidationResult result) {
+    if (memoSlot >= 0) {
+      final byte memo = conditionSlots[memoSlot];
+      if (memo != 0) {
+        savedEvaluationCount++;
+        return memo == MEMO_TRUE;
+      }
+    }
+    final int errorStart = result.getErrorCount();
+    final boolean value = evaluateCondition(compiledExpression, result);
+    if (memoSlot >= 0) {
+      conditionSlots[memoSlot] = value ? MEMO_TRUE : MEMO_FALSE;
+      if (groupTaskResult != null) {
+        groupTaskResult.evaluated(memoSlot, conditionSlots[memoSlot], errorStart);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Evaluates a condition. Semantic errors are added to the result by the error listener.
+   */
+  private boolean evaluateCondition(CompiledExpression compiledExpression,
+      ValidationResult result) {
+    evaluationCount++;
+    try {
+      return evaluator.test(compiledExpression);
+    } catch (ScoreException e) {
+      result.addError(ErrorCode.RULE_ERROR, currentTag, null, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Conditions are pure and the message does not change while it is validated, so a result can be
+   * reused. A result that refers to code set scope also depends on the current code set.
+   *
+   * @return key of a memoized result, or {@code null} if the result must not be reused
+   */
+  private String memoKey(CompiledExpression compiledExpression) {
+    if (compiledExpression.isAssignment()) {
+      return null;
+    } else if (compiledExpression.isCodeSetBound()
+        || compiledExpression.getScopes().contains(SymbolResolver.CODE_SET_ROOT.getName())) {
+      return compiledExpression.getNormalizedText() + '\u0000' + codeSetName;
+    } else {
+      return compiledExpression.getNormalizedText();
+    }
+  }
+
   MessageType getMessage(String name) {
     return repositoryAdapter.getMessage(name, "base");
   }
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.fixprotocol._2016.fixrepository.MessageType;
+import io.fixprotocol._2016.fixrepository.Repository;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+import io.fixprotocol.orchestra.model.TestException;
+import quickfix.field.TradSesStatus;
+import quickfix.field.TradingSessionID;
+import quickfix.fix50sp2.TradingSessionStatus;
+
+public class ConcurrentValidatorTest {
+
+  private static Repository repository;
+  private MessageType messageType;
+  private RepositoryAdapter repositoryAdapter;
+  private ConcurrentValidator validator;
+
+  @BeforeClass
+  public static void setupOnce() throws Exception {
+    repository = unmarshal(
+        Thread.currentThread().getContextClassLoader().getResourceAsStream("mit_2016.xml"));
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    repositoryAdapter = new RepositoryAdapter(repository);
+    validator = new ConcurrentValidator(repositoryAdapter);
+    messageType = repositoryAdapter.getMessage("TradingSessionStatus", "base");
+  }
+
+  @Test
+  public void validateConcurrently() throws Exception {
+    final int[] statuses =
+        {TradSesStatus.Open, 82, TradSesStatus.RequestRejected, TradSesStatus.Closed};
+    final String[] expected = new String[statuses.length];
+    final Validator reference = new Validator(repositoryAdapter, new SymbolResolver());
+    for (int i = 0; i < statuses.length; i++) {
+      expected[i] = validationResult(reference, message(statuses[i]));
+    }
+
+    validator.compilePlans();
+    final int threadCount = 4;
+    final int iterations = 2000;
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      final List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < threadCount; t++) {
+        futures.add(executor.submit(() -> {
+          final TradingSessionStatus[] messages = new TradingSessionStatus[statuses.length];
+          for (int i = 0; i < statuses.length; i++) {
+            messages[i] = message(statuses[i]);
+          }
+          int mismatches = 0;
+          for (int n = 0; n < iterations; n++) {
+            final int i = n % statuses.length;
+            if (!expected[i].equals(validationResult(validator, messages[i]))) {
+              mismatches++;
+            }
+          }
+          return mismatches;
+        }));
+      }
+      for (Future<Integer> future : futures) {
+        assertEquals(0, future.get().intValue());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static TradingSessionStatus message(int status) {
+    final TradingSessionStatus message = new TradingSessionStatus();
+    message.set(new TradingSessionID(TradingSessionID.Day));
+    message.set(new TradSesStatus(status));
+    return message;
+  }
+
+  private static Repository unmarshal(InputStream inputFile) throws JAXBException {
+    JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
+    Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+    return (Repository) jaxbUnmarshaller.unmarshal(inputFile);
+  }
+
+  private String validationResult(io.fixprotocol.orchestra.model.Validator<quickfix.Message> v,
+      TradingSessionStatus message) {
+    try {
+      v.validate(message, messageType);
+      return "valid";
+    } catch (TestException e) {
+      return e.getMessage();
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.fixprotocol._2016.fixrepository.Repository;
+import io.fixprotocol.orchestra.model.quickfix.ValidationResult.ErrorCode;
+import quickfix.field.TradSesStatus;
+import quickfix.field.TradingSessionID;
+import quickfix.fix50sp2.TradingSessionStatus;
+
+public class LogValidatorTest {
+
+  private static Repository repository;
+
+  @BeforeClass
+  public static void setupOnce() throws Exception {
+    repository = unmarshal(
+        Thread.currentThread().getContextClassLoader().getResourceAsStream("mit_2016.xml"));
+  }
+
+  private static Repository unmarshal(InputStream inputFile) throws JAXBException {
+    JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
+    Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+    return (Repository) jaxbUnmarshaller.unmarshal(inputFile);
+  }
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private LogValidator logValidator;
+
+  @Before
+  public void setUp() throws Exception {
+    logValidator = new LogValidator(new RepositoryAdapter(repository));
+  }
+
+  @After
+  public void tearDown() throws Exception {}
+
+  @Test
+  public void validateLog() throws IOException {
+    TradingSessionStatus valid = new TradingSessionStatus();
+    valid.set(new TradingSessionID(TradingSessionID.Day));
+    valid.set(new TradSesStatus(TradSesStatus.Open));
+    TradingSessionStatus invalid = new TradingSessionStatus();
+    invalid.set(new TradingSessionID(TradingSessionID.Day));
+    invalid.set(new TradSesStatus(82));
+
+    File logFile = folder.newFile("FIXT.1.1-sender-target.messages.log");
+    final int repetitions = 100;
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(logFile.toPath(), StandardCharsets.ISO_8859_1)) {
+      for (int i = 0; i < repetitions; i++) {
+        // with and without a timestamp, as written by QuickFIX/J file logs
+        writer.write("20171122-10:00:00.000: " + valid.toString());
+        writer.newLine();
+        writer.write(invalid.toString());
+        writer.newLine();
+        writer.write("not a message");
+        writer.newLine();
+        writer.write("8=FIXT.1.1\u00019=5\u0001x=0\u0001");
+        writer.newLine();
+      }
+    }
+
+    // small chunks to validate in many tasks
+    logValidator.setChunkSize(1000);
+    logValidator.setParallelism(4);
+    LogValidationReport report = logValidator.validate(Collections.singletonList(logFile.toPath()));
+
+    assertEquals(2 * repetitions, report.getMessageCount());
+    assertEquals(repetitions, report.getInvalidMessageCount());
+    assertEquals(repetitions, report.getMalformedMessageCount());
+    assertEquals(2 * repetitions, report.getMessageCount("TradingSessionStatus"));
+    assertEquals(repetitions, report.getViolationCount("TradingSessionStatus", TradSesStatus.FIELD,
+        ErrorCode.INVALID_CODE));
+    assertEquals(logFile.length(), report.getByteCount());
+    report.print(System.out);
+  }
+}
@@ -19,6 +19,9 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -31,7 +34,9 @@ import org.junit.Test;
 import io.fixprotocol._2016.fixrepository.MessageType;
 import io.fixprotocol._2016.fixrepository.Repository;
 import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
+import io.fixprotocol.orchestra.model.DecimalFixValue;
 import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.PathBinding;
 import io.fixprotocol.orchestra.model.PathStep;
 import io.fixprotocol.orchestra.model.Scope;
 import io.fixprotocol.orchestra.model.SymbolResolver;
@@ -39,6 +44,7 @@ import quickfix.field.MDEntryPx;
 import quickfix.field.MDEntrySize;
 import quickfix.field.MDEntryType;
 import quickfix.field.MDReqID;
+import quickfix.field.MDUpdateAction;
 import quickfix.field.OrderID;
 import quickfix.fix50sp2.MarketDataIncrementalRefresh;
 
@@ -51,7 +57,10 @@ public class MessageScopeTest {
     repository = unmarshal(Thread.currentThread().getContextClassLoader().getResourceAsStream("mit_2016.xml"));
   }
 
+  private Evaluator evaluator;
   private MessageScope messageScope;
+  private RepositoryAdapter repositoryAdapter;
+  private SymbolResolver symbolResolver;
   private MarketDataIncrementalRefresh md = new MarketDataIncrementalRefresh();
   
   /**
@@ -59,12 +68,12 @@ public class MessageScopeTest {
    */
   @Before
   public void setUp() throws Exception {
-    final RepositoryAdapter repositoryAdapter = new RepositoryAdapter(repository);
+    repositoryAdapter = new RepositoryAdapter(repository);
     final MessageType messageType =
         repositoryAdapter.getMessage("MarketDataIncrementalRefresh", "base");
-    final SymbolResolver symbolResolver = new SymbolResolver();
+    symbolResolver = new SymbolResolver();
     //symbolResolver.setTrace(true);
-    final Evaluator evaluator = new Evaluator(symbolResolver);
+    evaluator = new Evaluator(symbolResolver);
     messageScope = new MessageScope(md, messageType, repositoryAdapter, symbolResolver, evaluator);
   }
 
@@ -77,12 +86,40 @@ public class MessageScopeTest {
     assertEquals(mdReqId, node.getValue().toString());
   }
   
+  @Test
+  public void testResolveFieldCached() {
+    md.set(new MDReqID("REQ1234"));
+    PathStep pathStep = new PathStep("MDReqID");
+    FixValue<?> node = (FixValue<?>) messageScope.resolve(pathStep);
+    assertSame(node, messageScope.resolve(pathStep));
+    // a field set again is decoded again
+    md.set(new MDReqID("REQ5678"));
+    FixValue<?> node2 = (FixValue<?>) messageScope.resolve(pathStep);
+    assertNotSame(node, node2);
+    assertEquals("REQ5678", node2.getValue().toString());
+  }
+
   @Test
   public void testFieldNotFound() {
     PathStep pathStep = new PathStep("MDReqID");
     FixValue<?> node = (FixValue<?>) messageScope.resolve(pathStep );
     assertNull(node.getValue());
   }
+
+  @Test
+  public void testPrimitiveFieldNotFound() {
+    MarketDataIncrementalRefresh.NoMDEntries group = new MarketDataIncrementalRefresh.NoMDEntries();
+    group.set(new MDEntryType(MDEntryType.Bid));
+    md.addGroup(group);
+    PathStep pathStep = new PathStep("MDIncGrp");
+    pathStep.setIndex(1);
+    Scope node = (Scope) messageScope.resolve(pathStep);
+    for (String name : new String[] {"NumberOfOrders", "MDUpdateAction", "PreviouslyReported"}) {
+      FixValue<?> node2 = (FixValue<?>) node.resolve(new PathStep(name));
+      assertNotNull(name, node2);
+      assertNull(name, node2.getValue());
+    }
+  }
   
   @Test
   public void testResolveGroupIndex() {
@@ -137,6 +174,186 @@ public class MessageScopeTest {
     assertEquals(new BigDecimal("12.31"), node2.getValue());
   }
   
+  @Test
+  public void testResolveGroupPredicateEvaluated() {
+    MarketDataIncrementalRefresh.NoMDEntries group = new MarketDataIncrementalRefresh.NoMDEntries();
+    group.set(new MDEntryType(MDEntryType.Bid));
+    group.set(new MDEntryPx(12.32));
+    md.addGroup(group);
+    group.set(new MDEntryType(MDEntryType.Offer));
+    group.set(new MDEntryPx(12.31));
+    group.set(new MDEntrySize(200));
+    md.addGroup(group);
+    List<String> errors = new ArrayList<>();
+    Evaluator listeningEvaluator = new Evaluator(symbolResolver, errors::add);
+    MessageScope scope = new MessageScope(md, repositoryAdapter.getMessage(
+        "MarketDataIncrementalRefresh", "base"), repositoryAdapter, symbolResolver,
+        listeningEvaluator);
+    PathStep indexStep = new PathStep("MDIncGrp");
+    indexStep.setIndex(2);
+    Scope second = (Scope) scope.resolve(indexStep);
+    // an instance keeps its scope
+    assertSame(second, scope.resolve(indexStep));
+
+    PathStep pathStep = new PathStep("MDIncGrp");
+    pathStep.setPredicate("MDEntrySize > 100");
+    assertSame(second, scope.resolve(pathStep));
+    // instances are not left nested in the local scope
+    Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT);
+    assertNull(local.resolve(new PathStep("MDIncGrp")));
+    errors.clear();
+    pathStep.setPredicate("MDEntrySize >");
+    assertNull(scope.resolve(pathStep));
+    assertEquals(1, errors.size());
+  }
+
+  @Test
+  public void testResolveGroupKey() {
+    MarketDataIncrementalRefresh.NoMDEntries group = new MarketDataIncrementalRefresh.NoMDEntries();
+    for (int i = 0; i < 100; i++) {
+      group.set(new MDEntryType(MDEntryType.Bid));
+      group.set(new MDEntryPx(12.00 + i / 100.0));
+      md.addGroup(group);
+    }
+    PathStep pathStep = new PathStep("MDIncGrp");
+    pathStep.setPredicate("MDEntryType==^Offer");
+    assertNull(messageScope.resolve(pathStep));
+    // index is rebuilt after an instance is added
+    group.set(new MDEntryType(MDEntryType.Offer));
+    group.set(new MDEntryPx(13.00));
+    md.addGroup(group);
+    Scope node = (Scope) messageScope.resolve(pathStep);
+    assertNotNull(node);
+    assertEquals(0, new BigDecimal("13.00")
+        .compareTo((BigDecimal) ((FixValue<?>) node.resolve(new PathStep("MDEntryPx"))).getValue()));
+    // decimal keys match regardless of scale
+    pathStep.setPredicate("MDEntryPx==12.5");
+    node = (Scope) messageScope.resolve(pathStep);
+    assertNotNull(node);
+    assertEquals(0, new BigDecimal("12.5")
+        .compareTo((BigDecimal) ((FixValue<?>) node.resolve(new PathStep("MDEntryPx"))).getValue()));
+  }
+
+  @Test
+  public void testRawResolveGroupPredicate() {
+    // a raw group instance begins with its delimiter field
+    MarketDataIncrementalRefresh.NoMDEntries group = new MarketDataIncrementalRefresh.NoMDEntries();
+    group.set(new MDUpdateAction(MDUpdateAction.New));
+    group.set(new MDEntryType(MDEntryType.Bid));
+    group.set(new MDEntryPx(12.32));
+    md.addGroup(group);
+    group = new MarketDataIncrementalRefresh.NoMDEntries();
+    group.set(new MDUpdateAction(MDUpdateAction.New));
+    group.set(new MDEntryType(MDEntryType.Offer));
+    group.set(new MDEntryPx(12.31));
+    group.set(new MDEntrySize(200));
+    md.addGroup(group);
+    byte[] bytes = md.toString().getBytes(StandardCharsets.ISO_8859_1);
+    RawMessage message = new RawMessage();
+    message.parse(bytes, 0, bytes.length, repositoryAdapter::isDataField);
+    MessageType messageType = repositoryAdapter.getMessage("MarketDataIncrementalRefresh", "base");
+    ValidationPlan plan = ValidationPlan.compile(repositoryAdapter.getMessageMembers(messageType),
+        repositoryAdapter, evaluator);
+    RawMessageScope rawScope = new RawMessageScope(repositoryAdapter, symbolResolver, evaluator)
+        .wrap(message, 0, message.getFieldCount(), plan, repositoryAdapter.getLayout(messageType),
+            messageType.getName(), false);
+
+    // by key index
+    PathStep pathStep = new PathStep("MDIncGrp");
+    pathStep.setPredicate("MDEntryType==^Offer");
+    Scope node = (Scope) rawScope.resolve(pathStep);
+    assertNotNull(node);
+    assertEquals(0, new BigDecimal("200")
+        .compareTo((BigDecimal) ((FixValue<?>) node.resolve(new PathStep("MDEntrySize"))).getValue()));
+    // evaluated for each instance, one of which lacks a field of the predicate
+    pathStep.setPredicate("MDEntrySize > 100");
+    node = (Scope) rawScope.resolve(pathStep);
+    assertNotNull(node);
+    assertEquals(new BigDecimal("12.31"),
+        ((FixValue<?>) node.resolve(new PathStep("MDEntryPx"))).getValue());
+    pathStep.setPredicate("MDEntrySize > 300");
+    assertNull(rawScope.resolve(pathStep));
+    // instances are not left nested in the local scope
+    Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT);
+    assertNull(local.resolve(new PathStep("MDIncGrp")));
+  }
+
+  @Test
+  public void testScaledDecimals() {
+    evaluator.setScaledDecimals(true);
+    MarketDataIncrementalRefresh.NoMDEntries group = new MarketDataIncrementalRefresh.NoMDEntries();
+    group.set(new MDEntryType(MDEntryType.Bid));
+    group.set(new MDEntryPx(12.31));
+    group.set(new MDEntrySize(200));
+    md.addGroup(group);
+    PathStep pathStep = new PathStep("MDIncGrp");
+    pathStep.setPredicate("MDEntryPx==12.31");
+    Scope node = (Scope) messageScope.resolve(pathStep );
+    assertNotNull(node);
+    FixValue<?> node2 = (FixValue<?>) node.resolve(new PathStep("MDEntryPx"));
+    assertTrue(node2 instanceof DecimalFixValue);
+    assertTrue(((DecimalFixValue) node2).isScaled());
+    assertEquals(0, new BigDecimal("12.31").compareTo((BigDecimal) node2.getValue()));
+  }
+
+  @Test
+  public void testBindGroupField() {
+    MarketDataIncrementalRefresh.NoMDEntries group = new MarketDataIncrementalRefresh.NoMDEntries();
+    group.set(new MDEntryType(MDEntryType.Bid));
+    group.set(new MDEntryPx(12.32));
+    md.addGroup(group);
+    PathStep groupStep = new PathStep("MDIncGrp");
+    groupStep.setIndex(1);
+    PathBinding binding =
+        messageScope.bind(new PathStep[] {groupStep, new PathStep("MDEntryPx")});
+    assertNotNull(binding);
+    FixValue<?> node = (FixValue<?>) binding.resolve(messageScope);
+    assertEquals(new BigDecimal("12.32"), node.getValue());
+    assertNull(messageScope.bind(new PathStep[] {new PathStep("NoSuchField")}));
+  }
+
+  @Test
+  public void testEvaluateBound() throws Exception {
+    md.set(new MDReqID("REQ1234"));
+    MarketDataIncrementalRefresh.NoMDEntries group = new MarketDataIncrementalRefresh.NoMDEntries();
+    group.set(new MDEntryType(MDEntryType.Bid));
+    group.set(new MDEntryPx(12.32));
+    md.addGroup(group);
+    evaluator.getContext().getSymbolResolver().nest(new PathStep("in."), messageScope);
+    assertEquals(Boolean.TRUE, evaluator.evaluate("in.MDReqID == \"REQ1234\"").getValue());
+    assertEquals(Boolean.TRUE, evaluator.evaluate("in.MDIncGrp[1].MDEntryPx == 12.32").getValue());
+    // same compiled expressions reuse bindings for another message of the same type
+    md.set(new MDReqID("REQ5678"));
+    assertEquals(Boolean.FALSE, evaluator.evaluate("in.MDReqID == \"REQ1234\"").getValue());
+  }
+
+  @Test
+  public void testAssignCached() throws Exception {
+    md.set(new MDReqID("REQ1234"));
+    MarketDataIncrementalRefresh.NoMDEntries group = new MarketDataIncrementalRefresh.NoMDEntries();
+    group.set(new MDEntryType(MDEntryType.Bid));
+    group.set(new MDEntryPx(12.32));
+    md.addGroup(group);
+    evaluator.getContext().getSymbolResolver().nest(new PathStep("in."), messageScope);
+    // the caller owns an evaluated field, so changing it does not change the message
+    @SuppressWarnings("unchecked")
+    FixValue<BigDecimal> price =
+        (FixValue<BigDecimal>) evaluator.evaluate("in.MDIncGrp[1].MDEntryPx");
+    price.setValue(BigDecimal.ONE);
+    assertEquals(0, new BigDecimal("12.32").compareTo(
+        (BigDecimal) evaluator.evaluate("in.MDIncGrp[1].MDEntryPx").getValue()));
+
+    // assigning an existing field sets it in the message, not only in the resolved value
+    evaluator.evaluate("in.MDReqID = \"REQ5678\"");
+    assertEquals("REQ5678", md.getMDReqID().getValue());
+    assertEquals("REQ5678", evaluator.evaluate("in.MDReqID").getValue());
+    evaluator.evaluate("in.MDIncGrp[1].MDEntryPx = 12.5");
+    assertEquals(0, new BigDecimal("12.5").compareTo(
+        md.getGroup(1, new MarketDataIncrementalRefresh.NoMDEntries()).getDecimal(270)));
+    assertEquals(0, new BigDecimal("12.5").compareTo(
+        (BigDecimal) evaluator.evaluate("in.MDIncGrp[1].MDEntryPx").getValue()));
+  }
+
   private static Repository unmarshal(InputStream inputFile) throws JAXBException {
     JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
     Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
@@ -136,6 +136,15 @@ public class PopulatorTest {
      
     System.out.println(outboundMessage.toString());
     assertEquals(clOrdId, outboundMessage.getClOrdID().getValue());
+    assertEquals(2, outboundMessage.getGroupCount(453));
+
+    // the compiled plan is reused for the next message, and constant groups from its template are
+    // copied so that changing one message does not affect the next
+    String expected = outboundMessage.toString();
+    outboundMessage.getGroups(453).get(0).setString(448, "XYZ");
+    ExecutionReport nextMessage = new ExecutionReport();
+    populator.populate(inboundMessage, inboundMessageType, nextMessage, outboundMessageType);
+    assertEquals(expected, nextMessage.toString());
    }
 
   private static Repository unmarshal(InputStream inputFile) throws JAXBException {
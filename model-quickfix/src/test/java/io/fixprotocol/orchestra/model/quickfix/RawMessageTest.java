@@ -0,0 +1,89 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RawMessageTest {
+
+  private RawMessage message;
+
+  @Before
+  public void setUp() throws Exception {
+    message = new RawMessage();
+  }
+
+  @Test
+  public void parse() {
+    byte[] bytes = toBytes("8=FIXT.1.1|9=20|35=h|340=2|336=1|54=-12|10=000|");
+    message.parse(bytes, 0, bytes.length, null);
+    assertEquals(7, message.getFieldCount());
+    assertEquals(35, message.getTag(2));
+    assertEquals(3, message.indexOf(340));
+    assertEquals(-1, message.indexOf(341));
+    assertEquals(-1, message.indexOf(336, 0, 3));
+    assertEquals(2, message.getInt(message.indexOf(340)));
+    assertEquals(-12, message.getInt(message.indexOf(54)));
+    assertEquals('h', message.getChar(2));
+    assertEquals("FIXT.1.1", message.getString(0));
+  }
+
+  @Test
+  public void reuse() {
+    byte[] first = toBytes("35=h|340=2|");
+    message.parse(first, 0, first.length, null);
+    byte[] second = toBytes("xx35=0|336=1|yy");
+    message.parse(second, 2, second.length - 4, null);
+    assertEquals(2, message.getFieldCount());
+    assertEquals(-1, message.indexOf(340));
+    assertEquals(1, message.getInt(message.indexOf(336)));
+  }
+
+  @Test
+  public void dataField() {
+    // value of field 96 contains a delimiter, so it is delimited by its length in field 95
+    byte[] bytes = toBytes("35=A|95=5|96=ab|cd|10=000|");
+    message.parse(bytes, 0, bytes.length, tag -> tag == 96);
+    assertEquals(4, message.getFieldCount());
+    assertEquals("ab\u0001cd", message.getString(2));
+    assertEquals(10, message.getTag(3));
+  }
+
+  @Test
+  public void directBuffer() {
+    byte[] bytes = toBytes("35=h|1300=ABC|");
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+    message.parse(buffer, null);
+    assertEquals("ABC", message.getString(message.indexOf(1300)));
+    assertEquals(0, buffer.position());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void malformed() {
+    byte[] bytes = toBytes("35=h|3x0=2|");
+    message.parse(bytes, 0, bytes.length, null);
+  }
+
+  private static byte[] toBytes(String s) {
+    return s.replace('|', '\u0001').getBytes(StandardCharsets.ISO_8859_1);
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.fixprotocol._2016.fixrepository.CodeSetType;
+import io.fixprotocol._2016.fixrepository.CodeType;
+import io.fixprotocol._2016.fixrepository.FieldRefType;
+import io.fixprotocol._2016.fixrepository.MessageType;
+import io.fixprotocol._2016.fixrepository.Repository;
+import io.fixprotocol.orchestra.dsl.antlr.CompiledExpression;
+import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+
+public class RepositoryAdapterTest {
+
+  private static RepositoryAdapter repositoryAdapter;
+
+  @BeforeClass
+  public static void setupOnce() throws Exception {
+    repositoryAdapter = new RepositoryAdapter(
+        unmarshal(Thread.currentThread().getContextClassLoader().getResourceAsStream("mit_2016.xml")));
+  }
+
+  @Test
+  public void fieldDatatype() {
+    assertEquals("Price", repositoryAdapter.getFieldDatatype(44));
+    assertNull(repositoryAdapter.getFieldDatatype(-1));
+    assertNull(repositoryAdapter.getFieldDatatype(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void codeset() {
+    String datatype = repositoryAdapter.getFieldDatatype(54);
+    assertEquals(datatype, repositoryAdapter.getCodeset(datatype).getName());
+    assertNotNull(repositoryAdapter.getDatatype("Price"));
+    assertNull(repositoryAdapter.getCodeset("NoSuchCodeSet"));
+  }
+
+  @Test
+  public void compiledCodeSet() {
+    CompiledCodeSet side = repositoryAdapter.getCompiledCodeSet("SideCodeSet");
+    assertSame(side, repositoryAdapter.getCompiledCodeSet("SideCodeSet"));
+    assertTrue(side.contains("1"));
+    assertFalse(side.contains("Z"));
+    assertFalse(side.contains("11"));
+    assertEquals('1', side.getConstant("Buy").getValue());
+    assertNull(side.getConstant("NoSuchCode"));
+    assertNull(repositoryAdapter.getCompiledCodeSet("NoSuchCodeSet"));
+
+    CodeSetType codeSet = new CodeSetType();
+    codeSet.setName("TestCodeSet");
+    codeSet.setType("String");
+    for (String value : new String[] {"7", "42", "042", "100000", "AB"}) {
+      CodeType code = new CodeType();
+      code.setName("Code" + value);
+      code.setValue(value);
+      codeSet.getCode().add(code);
+    }
+    CompiledCodeSet compiled = new CompiledCodeSet(codeSet);
+    for (String value : new String[] {"7", "42", "042", "100000", "AB"}) {
+      assertTrue(value, compiled.contains(value));
+    }
+    for (String value : new String[] {"8", "43", "0042", "99999", "A", "", "-1"}) {
+      assertFalse(value, compiled.contains(value));
+    }
+    assertEquals("042", compiled.getConstant("Code042").getValue());
+  }
+
+  @Test
+  public void compileBound() throws Exception {
+    Evaluator evaluator = new Evaluator(new SymbolResolver());
+    CodeSetScope side = repositoryAdapter.getCodeSetScope("SideCodeSet");
+    CompiledExpression compiled = repositoryAdapter.compile("Side == ^Buy", null, evaluator);
+    assertSame(compiled, repositoryAdapter.compile("Side == ^Buy", null, evaluator));
+    assertNotSame(compiled, repositoryAdapter.compile("Side == ^Buy", side, evaluator));
+    assertSame(repositoryAdapter.compile("Side == ^Buy", side, evaluator),
+        repositoryAdapter.compile("Side == ^Buy", side, evaluator));
+  }
+
+  @Test
+  public void message() {
+    MessageType messageType = repositoryAdapter.getMessage("ExecutionReport", "traded");
+    assertNotNull(messageType);
+    assertEquals("traded", messageType.getScenario());
+    assertNull(repositoryAdapter.getMessage("ExecutionReport", "NoSuchScenario"));
+    List<Object> members = repositoryAdapter.getMessageMembers(messageType);
+    assertTrue(members.size() > messageType.getStructure().getComponentOrComponentRefOrGroup().size());
+    assertSame(members, repositoryAdapter.getMessageMembers(messageType));
+  }
+
+  @Test
+  public void layout() {
+    MessageType messageType = repositoryAdapter.getMessage("ExecutionReport", "traded");
+    MessageLayout layout = repositoryAdapter.getLayout(messageType);
+    assertSame(layout, repositoryAdapter.getLayout(messageType));
+    FieldRefType lastPx = (FieldRefType) layout.getMember("LastPx");
+    assertNotNull(lastPx);
+    assertSame(lastPx, layout.getField(31));
+    assertNull(layout.getMember("NoSuchField"));
+    assertNull(layout.getField(Integer.MAX_VALUE));
+  }
+
+  private static Repository unmarshal(InputStream inputFile) throws JAXBException {
+    JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
+    Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+    return (Repository) jaxbUnmarshaller.unmarshal(inputFile);
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2017 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package io.fixprotocol.orchestra.model.quickfix;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.fixprotocol._2016.fixrepository.MessageType;
+import io.fixprotocol._2016.fixrepository.Repository;
+import io.fixprotocol.orchestra.model.SymbolResolver;
+import quickfix.field.TradSesStatus;
+import quickfix.field.TradingSessionID;
+import quickfix.fix50sp2.TradingSessionStatus;
+
+/**
+ * Compares throughput of plan-based and interpreted validation by {@link Validator}
+ * <p>
+ * Run from the test classpath: {@code java -cp <test classpath>
+ * io.fixprotocol.orchestra.model.quickfix.ValidatorBenchmark}
+ *
+ * @author Don Mendelson
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt =
+        new OptionsBuilder().include(ValidatorBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+
+  @Param({"true", "false"})
+  public boolean planned;
+
+  private TradingSessionStatus message;
+  private MessageType messageType;
+  private final ValidationResult result = new ValidationResult();
+  private Validator validator;
+
+  @Setup
+  public void setUp() throws Exception {
+    RepositoryAdapter repositoryAdapter = new RepositoryAdapter(unmarshal(
+        Thread.currentThread().getContextClassLoader().getResourceAsStream("mit_2016.xml")));
+    validator = new Validator(repositoryAdapter, new SymbolResolver());
+    validator.compilePlans();
+    validator.setPlanned(planned);
+    messageType = repositoryAdapter.getMessage("TradingSessionStatus", "base");
+    message = new TradingSessionStatus();
+    message.set(new TradingSessionID(TradingSessionID.Day));
+    message.set(new TradSesStatus(TradSesStatus.Open));
+  }
+
+  @Benchmark
+  public boolean validate() {
+    return validator.validate(message, messageType, result);
+  }
+
+  private static Repository unmarshal(InputStream inputFile) throws JAXBException {
+    JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
+    Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+    return (Repository) jaxbUnmarshaller.unmarshal(inputFile);
+  }
+}
@@ -1,9 +1,14 @@
 package io.fixprotocol.orchestra.model.quickfix;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -14,10 +19,17 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import io.fixprotocol._2016.fixrepository.FieldRefType;
+import io.fixprotocol._2016.fixrepository.FieldRuleType;
+import io.fixprotocol._2016.fixrepository.GroupRefType;
+import io.fixprotocol._2016.fixrepository.GroupType;
 import io.fixprotocol._2016.fixrepository.MessageType;
+import io.fixprotocol._2016.fixrepository.PresenceT;
 import io.fixprotocol._2016.fixrepository.Repository;
 import io.fixprotocol.orchestra.model.SymbolResolver;
 import io.fixprotocol.orchestra.model.TestException;
+import quickfix.Group;
+import quickfix.Message;
 import quickfix.SessionID;
 import quickfix.field.TradSesStatus;
 import quickfix.field.TradingSessionID;
@@ -110,4 +122,241 @@ public class ValidatorTest {
     validator.validate(message, messageType);
   }
 
+  @Test
+  public void reuseResult() {
+    TradingSessionStatus invalid = new TradingSessionStatus();
+    invalid.set(new TradingSessionID(TradingSessionID.Day));
+    invalid.set(new TradSesStatus(82));
+    TradingSessionStatus valid = new TradingSessionStatus();
+    valid.set(new TradingSessionID(TradingSessionID.Day));
+    valid.set(new TradSesStatus(TradSesStatus.Open));
+    MessageType messageType = repositoryAdapter.getMessage("TradingSessionStatus", "base");
+    ValidationResult result = new ValidationResult();
+
+    assertFalse(validator.validate(invalid, messageType, result));
+    assertEquals(1, result.getErrorCount());
+    assertEquals("TradingSessionStatus", result.getMessageType());
+    assertEquals(ValidationResult.ErrorCode.INVALID_CODE, result.getErrorCode(0));
+    assertEquals(TradSesStatus.FIELD, result.getTag(0));
+    assertEquals("82", result.getValue(0));
+    assertEquals("82", result.getActual(0));
+    // SessionRejectReason value is incorrect (out of range) for this tag
+    assertEquals(5, result.getSessionRejectReason());
+    TestException testException = result.toTestException();
+    assertEquals(0, testException.getStackTrace().length);
+    assertEquals(validationResult(invalid, messageType), testException.getMessage());
+
+    assertTrue(validator.validate(valid, messageType, result));
+    assertFalse(result.hasErrors());
+  }
+
+  @Test
+  public void rawMatchesParsed() {
+    TradingSessionStatus[] messages = new TradingSessionStatus[4];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = new TradingSessionStatus();
+    }
+    messages[1].set(new TradingSessionID(TradingSessionID.Day));
+    messages[1].set(new TradSesStatus(82));
+    messages[2].set(new TradingSessionID(TradingSessionID.Day));
+    messages[2].set(new TradSesStatus(TradSesStatus.Open));
+    messages[3].set(new TradingSessionID(TradingSessionID.Day));
+    messages[3].set(new TradSesStatus(TradSesStatus.RequestRejected));
+    MessageType messageType = repositoryAdapter.getMessage("TradingSessionStatus", "base");
+    ValidationResult parsedResult = new ValidationResult();
+    ValidationResult rawResult = new ValidationResult();
+    for (TradingSessionStatus message : messages) {
+      byte[] bytes = message.toString().getBytes(StandardCharsets.ISO_8859_1);
+      boolean isValid = validator.validate(message, messageType, parsedResult);
+      assertEquals(isValid,
+          validator.validate(bytes, 0, bytes.length, messageType, rawResult));
+      assertEquals(parsedResult.toString(), rawResult.toString());
+
+      ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+      buffer.put(bytes).flip();
+      assertEquals(isValid, validator.validate(buffer, messageType, rawResult));
+      assertEquals(parsedResult.toString(), rawResult.toString());
+      assertEquals(0, buffer.position());
+    }
+  }
+
+  @Test
+  public void conditionStatistics() throws TestException {
+    TradingSessionStatus message = new TradingSessionStatus();
+    message.set(new TradingSessionID(TradingSessionID.Day));
+    message.set(new TradSesStatus(TradSesStatus.Open));
+    MessageType messageType = repositoryAdapter.getMessage("TradingSessionStatus", "base");
+    validator.validate(message, messageType);
+    assertEquals(1, validator.getEvaluationCount());
+    assertEquals(0, validator.getSavedEvaluationCount());
+    // results are not carried over to the next message
+    validator.validate(message, messageType);
+    assertEquals(2, validator.getEvaluationCount());
+    validator.resetStatistics();
+    assertEquals(0, validator.getEvaluationCount());
+  }
+
+  @Test
+  public void conditionShared() throws Exception {
+    RepositoryAdapter adapter = copyRepository();
+    MessageType messageType = adapter.getMessage("TradingSessionStatus", "base");
+    MessageLayout layout = adapter.getLayout(messageType);
+    addRule((FieldRefType) layout.getMember("TradSesReqID"), "in.TradSesStatus == 5");
+    addRule((FieldRefType) layout.getMember("MarketSegmentID"), "in.TradSesStatus == 5");
+
+    TradingSessionStatus message = new TradingSessionStatus();
+    message.set(new TradingSessionID(TradingSessionID.Day));
+    message.set(new TradSesStatus(TradSesStatus.Open));
+    Validator validator = new Validator(adapter, new SymbolResolver());
+    validator.validate(message, messageType);
+    // one evaluation for the added condition, plus the rule of TradSesStatusRejReason
+    assertEquals(2, validator.getEvaluationCount());
+    assertEquals(1, validator.getSavedEvaluationCount());
+  }
+
+  @Test
+  public void conditionNotSharedAcrossCodeSets() throws Exception {
+    RepositoryAdapter adapter = copyRepository();
+    MessageType messageType = adapter.getMessage("TradingSessionStatus", "base");
+    MessageLayout layout = adapter.getLayout(messageType);
+    // the fields have different code sets, so a condition with codes is kept for each
+    addRule((FieldRefType) layout.getMember("TradSesMethod"), "in.TradSesStatus == ^Halted");
+    addRule((FieldRefType) layout.getMember("TradSesMode"), "in.TradSesStatus == ^Halted");
+
+    TradingSessionStatus message = new TradingSessionStatus();
+    message.set(new TradingSessionID(TradingSessionID.Day));
+    message.set(new TradSesStatus(TradSesStatus.Open));
+    Validator validator = new Validator(adapter, new SymbolResolver());
+    validator.validate(message, messageType);
+    // each added condition, plus the rule of TradSesStatusRejReason
+    assertEquals(3, validator.getEvaluationCount());
+    assertEquals(0, validator.getSavedEvaluationCount());
+  }
+
+  @Test
+  public void planMatchesInterpreted() {
+    TradingSessionStatus[] messages = new TradingSessionStatus[4];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = new TradingSessionStatus();
+    }
+    messages[1].set(new TradingSessionID(TradingSessionID.Day));
+    messages[1].set(new TradSesStatus(82));
+    messages[2].set(new TradingSessionID(TradingSessionID.Day));
+    messages[2].set(new TradSesStatus(TradSesStatus.Open));
+    messages[3].set(new TradingSessionID(TradingSessionID.Day));
+    messages[3].set(new TradSesStatus(TradSesStatus.RequestRejected));
+    MessageType messageType = repositoryAdapter.getMessage("TradingSessionStatus", "base");
+    for (TradingSessionStatus message : messages) {
+      validator.setPlanned(true);
+      String planned = validationResult(message, messageType);
+      validator.setPlanned(false);
+      assertEquals(planned, validationResult(message, messageType));
+    }
+  }
+
+  @Test
+  public void parallelGroupMatchesSerial() {
+    Message message = new Message();
+    for (int i = 0; i < 500; i++) {
+      // NoPartyIDs(453) with PartyID(448), PartyIDSource(447), and PartyRole(452)
+      Group party = new Group(453, 448);
+      party.setString(448, "P" + i);
+      party.setChar(447, i % 7 == 0 ? '~' : 'D');
+      party.setInt(452, i % 11 == 0 ? 9999 : 1);
+      message.addGroup(party);
+    }
+    MessageType messageType = repositoryAdapter.getMessage("ExecutionReport", "base");
+    ValidationResult serialResult = new ValidationResult();
+    ValidationResult parallelResult = new ValidationResult();
+    assertFalse(validator.validate(message, messageType, serialResult));
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      validator.setParallelGroups(100, pool, SymbolResolver::new);
+      assertFalse(validator.validate(message, messageType, parallelResult));
+    } finally {
+      pool.shutdown();
+    }
+    assertTrue(serialResult.getErrorCount() > 500 / 7 + 500 / 11);
+    assertEquals(serialResult.toString(), parallelResult.toString());
+    for (int i = 0; i < serialResult.getErrorCount(); i++) {
+      assertEquals(serialResult.getValue(i), parallelResult.getValue(i));
+    }
+  }
+
+  @Test
+  public void parallelGroupRuleError() throws Exception {
+    RepositoryAdapter adapter = copyRepository();
+    MessageType messageType = adapter.getMessage("ExecutionReport", "base");
+    MessageLayout layout = adapter.getLayout(messageType);
+    GroupType parties = adapter.getGroup((GroupRefType) layout.getMember("Parties"));
+    // LastQty is not set, so the rule cannot be evaluated
+    for (Object member : parties.getComponentRefOrGroupRefOrFieldRef()) {
+      if (member instanceof FieldRefType && ((FieldRefType) member).getId().intValue() == 452) {
+        addRule((FieldRefType) member, "in.LastQty > 0");
+      }
+    }
+    // the same rule follows the group, so its result is reused after the group
+    addRule((FieldRefType) layout.getMember("ListID"), "in.LastQty > 0");
+
+    Message message = new Message();
+    for (int i = 0; i < 500; i++) {
+      Group party = new Group(453, 448);
+      party.setString(448, "P" + i);
+      party.setChar(447, 'D');
+      party.setInt(452, 1);
+      message.addGroup(party);
+    }
+    Validator validator = new Validator(adapter, new SymbolResolver());
+    ValidationResult serialResult = new ValidationResult();
+    ValidationResult parallelResult = new ValidationResult();
+    assertFalse(validator.validate(message, messageType, serialResult));
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      validator.setParallelGroups(100, pool, SymbolResolver::new);
+      assertFalse(validator.validate(message, messageType, parallelResult));
+      assertEquals(serialResult.toString(), parallelResult.toString());
+      // parallelism can be turned off again
+      validator.setParallelGroups(Integer.MAX_VALUE, null, SymbolResolver::new);
+      assertFalse(validator.validate(message, messageType, parallelResult));
+      assertEquals(serialResult.toString(), parallelResult.toString());
+    } finally {
+      pool.shutdown();
+    }
+    int ruleErrors = 0;
+    for (int i = 0; i < serialResult.getErrorCount(); i++) {
+      if (serialResult.getErrorCode(i) == ValidationResult.ErrorCode.RULE_ERROR) {
+        ruleErrors++;
+      }
+    }
+    assertEquals(1, ruleErrors);
+  }
+
+  /**
+   * @return a private copy of the Repository, for a test that adds rules to it
+   */
+  private static RepositoryAdapter copyRepository() throws JAXBException {
+    return new RepositoryAdapter(
+        unmarshal(Thread.currentThread().getContextClassLoader().getResourceAsStream("mit_2016.xml")));
+  }
+
+  private static void addRule(FieldRefType fieldRef, String when) {
+    FieldRuleType rule = new FieldRuleType();
+    rule.setName(fieldRef.getName());
+    rule.setPresence(PresenceT.REQUIRED);
+    rule.setWhen(when);
+    fieldRef.setPresence(PresenceT.CONDITIONAL);
+    fieldRef.getRule().add(rule);
+  }
+
+  private String validationResult(TradingSessionStatus message, MessageType messageType) {
+    try {
+      validator.validate(message, messageType);
+      return "valid";
+    } catch (TestException e) {
+      return e.getMessage();
+    }
+  }
+
 }